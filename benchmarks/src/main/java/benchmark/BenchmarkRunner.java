@@ -0,0 +1,40 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * This class runs the benchmarks. It accepts every JMH command-line option,
+ * but writes its results as JSON to jmh-result.json unless told otherwise, so
+ * that runs can be compared by tools.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Run the benchmarks.
+     *
+     * @param args JMH command-line options, e.g. "BoardBenchmark -p size=3,15"
+     * @throws CommandLineOptionException If the options could not be parsed
+     * @throws RunnerException            If a benchmark failed
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        CommandLineOptions command = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        if (!command.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!command.getResult().hasValue()) {
+            builder.result("jmh-result.json");
+        }
+        Options options = builder.parent(command).build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,211 @@
+package benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.Board;
+import model.BoardCodec;
+import model.GameEvent;
+
+/**
+ * Benchmarks of the Board operations that every move goes through: making and
+ * taking back a move, checking the state of the game, resetting, notifying
+ * listeners, and saving and loading through both the BoardCodec format and
+ * the legacy object serialization format.
+ *
+ * Every benchmark runs on square Boards of each of the given sizes, with a
+ * win length of the size, capped at 5. The phase sets how full the Board is
+ * when measured: empty, half full or full. The notification benchmark is also
+ * run with each of the given numbers of listeners, held in a state of its own
+ * so that the other benchmarks are not repeated for every listener count.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+
+    @Param({ "3", "7", "15", "19" })
+    public int size;
+
+    @Param({ "early", "mid", "full" })
+    public String phase;
+
+    private Board board;
+    private byte[] saved;
+    private ByteBuffer encoded;
+    // A cell that is empty in the position, or -1 on a full Board.
+    private int emptyCell;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        board = createPosition();
+        emptyCell = -1;
+        for (int cell = 0; cell < size * size && emptyCell < 0; cell++) {
+            if (board.getCharacter(cell / size, cell % size) == ' ') {
+                emptyCell = cell;
+            }
+        }
+        saved = serialize(board);
+        encoded = ByteBuffer.allocate(BoardCodec.encodedSize(board));
+    }
+
+    /**
+     * Play the moves of the benchmark's phase on a new Board. Moves are
+     * random but seeded, so every run measures the same positions.
+     */
+    private Board createPosition() {
+        Board position = new Board(size, size, Math.min(size, 5));
+        int cells = size * size;
+        int moves = phase.equals("early") ? Math.min(2, cells) : phase.equals("mid") ? cells / 2 : cells;
+        Random random = new Random(3110);
+        while (position.getMoveCount() < moves) {
+            int cell = random.nextInt(cells);
+            position.makeMove(cell / size, cell % size);
+        }
+        return position;
+    }
+
+    private static byte[] serialize(Board board) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(board);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Make a move and take it back, so the position is the same every time.
+     * On a full Board this measures a rejected move.
+     */
+    @Benchmark
+    public boolean makeMove() {
+        return playAndTakeBack(board);
+    }
+
+    /**
+     * Check the state of the game through a GameEvent, which allocates.
+     */
+    @Benchmark
+    public GameEvent.Status boardState() {
+        return board.boardState().getStatus();
+    }
+
+    /**
+     * Check the state of the game through the cached status, which should not
+     * allocate. Run with "-prof gc" to compare the allocation rates.
+     */
+    @Benchmark
+    public GameEvent.Status status() {
+        return board.getStatus();
+    }
+
+    /**
+     * Reset a Board and replay its last move, so there is always something to
+     * clear.
+     */
+    @Benchmark
+    public int resetBoard() {
+        board.resetBoard();
+        board.makeMove(0, 0);
+        return board.getMoveCount();
+    }
+
+    /**
+     * Make and take back a move on a Board with listeners, each of which is
+     * notified twice (once on a full Board).
+     */
+    @Benchmark
+    public boolean notifyListeners(Listeners listeners) {
+        return playAndTakeBack(listeners.notifying);
+    }
+
+    private boolean playAndTakeBack(Board position) {
+        if (emptyCell < 0) {
+            // The Board is full, so the move is rejected
+            return position.makeMove(0, 0);
+        }
+        position.makeMove(emptyCell / size, emptyCell % size);
+        return position.unmakeMove();
+    }
+
+    /**
+     * The Board of the notification benchmark, in the same position as the
+     * benchmark's Board, with its listeners.
+     */
+    @State(Scope.Thread)
+    public static class Listeners {
+
+        // The number of listeners notified.
+        @Param({ "1", "8" })
+        public int listeners;
+
+        private Board notifying;
+
+        @Setup(Level.Trial)
+        public void setUp(BoardBenchmark benchmark, Blackhole blackhole) {
+            notifying = benchmark.createPosition();
+            for (int i = 0; i < listeners; i++) {
+                notifying.addListener(() -> blackhole.consume(notifying.getMoveCount()));
+            }
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        encoded.clear();
+        BoardCodec.encode(board, encoded);
+        return encoded;
+    }
+
+    @Benchmark
+    public Board decode() throws IOException {
+        encoded.clear();
+        BoardCodec.encode(board, encoded);
+        encoded.flip();
+        return BoardCodec.decode(encoded);
+    }
+
+    /**
+     * Save through the legacy object serialization format.
+     */
+    @Benchmark
+    public byte[] save() throws IOException {
+        return serialize(board);
+    }
+
+    /**
+     * Load through the legacy object serialization format.
+     */
+    @Benchmark
+    public Board load() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(saved))) {
+            return (Board) in.readObject();
+        }
+    }
+}
@@ -0,0 +1,459 @@
+package ai;
+
+import java.util.Arrays;
+
+import metrics.Metrics;
+import model.Board;
+import model.GameEvent;
+import model.ThreatIndex;
+
+/**
+ * This class represents a computer opponent for Tic Tac Toe.
+ *
+ * Moves are chosen with an iteratively deepened negamax search with alpha-beta
+ * pruning. Results are kept in a TranspositionTable keyed by the canonical
+ * Zobrist hash of the Board, so rotations and reflections of a position share
+ * one entry, and the best move of the previous iteration is always searched
+ * first. The search plays on a private copy of the Board, making and taking
+ * back moves rather than copying the Board at every node.
+ *
+ * On Boards too large for every cell to be near a piece, the search plays on
+ * a copy that keeps a ThreatIndex. A side that can win plays the winning move,
+ * a side that must block only considers the cells that block, and otherwise
+ * only the empty cells near a piece are searched, in order of the lines they
+ * extend or block. On a 15x15 Board this searches a few dozen moves per node
+ * instead of a couple of hundred.
+ *
+ * If an OpeningBook or a Tablebase covering the Board has been set, positions
+ * they hold are answered from them directly without searching, the book
+ * first.
+ *
+ * Positions are scored from the side to move's point of view: a win is worth
+ * WIN minus the number of moves needed to reach it, so faster wins (and slower
+ * losses) are preferred. Positions that are not decided within the search
+ * depth score 0.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class ComputerPlayer {
+
+    /**
+     * The score of a position won by the side to move.
+     */
+    public static final int WIN = 1000000;
+    // Scores further than this from WIN are not wins or losses.
+    static final int MAX_PLY = 1 << 16;
+    // The deepest search the transposition table can record.
+    private static final int MAX_DEPTH = 255;
+    // How far from a piece a move can be and still be searched by default.
+    private static final int CANDIDATE_DISTANCE = 2;
+
+    private final TranspositionTable table;
+    private final int maxDepth;
+    private final long timeLimitMillis;
+    private Tablebase tablebase;
+    private OpeningBook book;
+    private int candidateDistance = CANDIDATE_DISTANCE;
+
+    // Cells ordered from the centre of the Board outwards.
+    private int[] order;
+    private int orderWidth, orderHeight;
+    // The moves and their ordering scores at each ply, reused between nodes.
+    private int[][] moveLists;
+    private int[][] scoreLists;
+
+    private long nodes;
+    private long deadline;
+    private boolean aborted;
+    private int rootMove;
+    private int lastScore;
+
+    /**
+     * Construct a new ComputerPlayer that searches for up to one second per
+     * move with a table of about a million entries.
+     */
+    public ComputerPlayer() {
+        this(MAX_DEPTH, 1000, 20);
+    }
+
+    /**
+     * Construct a new ComputerPlayer.
+     *
+     * @param maxDepth        The maximum number of moves to look ahead
+     * @param timeLimitMillis The time allowed per move, or 0 for no limit
+     * @param tableSizeLog2   The base 2 logarithm of the transposition table size
+     */
+    public ComputerPlayer(int maxDepth, long timeLimitMillis, int tableSizeLog2) {
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("The search depth must be at least 1");
+        }
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+        this.timeLimitMillis = timeLimitMillis;
+        this.table = new TranspositionTable(tableSizeLog2);
+    }
+
+    /**
+     * Choose a move for the player whose turn it is.
+     *
+     * @param board The Board to choose a move on. It is not modified.
+     * @return The chosen cell (x * width + y), or -1 if the game is over
+     */
+    public int chooseMove(Board board) {
+        if (board.getStatus() != GameEvent.Status.NO_WINNER) {
+            return -1;
+        }
+        Metrics metrics = Metrics.get();
+        if (metrics == null) {
+            return search(board);
+        }
+        long start = System.nanoTime();
+        int move = search(board);
+        metrics.searched(nodes, move, System.nanoTime() - start);
+        return move;
+    }
+
+    /**
+     * Choose a move from the OpeningBook, the Tablebase, or by iterative
+     * deepening.
+     *
+     * @param board The Board to choose a move on, where the game is not over
+     * @return The chosen cell
+     */
+    private int search(Board board) {
+        nodes = 0;
+        if (book != null) {
+            int index = book.probe(board);
+            int move = index < 0 ? -1 : book.bestMove(board, index);
+            if (move >= 0) {
+                lastScore = book.score(index);
+                return move;
+            }
+        }
+        if (tablebase != null) {
+            int entry = tablebase.probe(board);
+            if (entry >= 0 && Tablebase.bestMove(entry) >= 0) {
+                int value = Tablebase.value(entry);
+                lastScore = value == 0 ? 0 : value * (WIN - Tablebase.distance(entry));
+                return Tablebase.bestMove(entry);
+            }
+        }
+        prepareOrder(board);
+        table.newSearch();
+        aborted = false;
+        deadline = System.nanoTime() + timeLimitMillis * 1000000L;
+
+        int best = -1;
+        for (int cell : order) {
+            if (isEmpty(board, cell)) {
+                best = cell;
+                break;
+            }
+        }
+        int empty = board.getWidth() * board.getHeight() - board.getMoveCount();
+        int limit = Math.min(maxDepth, empty);
+        Board position = new Board(board);
+        int span = 2 * candidateDistance + 1;
+        if (candidateDistance > 0 && (board.getWidth() > span || board.getHeight() > span)) {
+            position.enableThreatIndex(candidateDistance);
+        }
+        for (int depth = 1; depth <= limit; depth++) {
+            rootMove = -1;
+            int score = negamax(position, depth, -WIN, WIN, 0);
+            if (aborted) {
+                break;
+            }
+            if (rootMove >= 0) {
+                best = rootMove;
+            }
+            lastScore = score;
+            // Once the result is proven there is nothing left to learn
+            if (Math.abs(score) > WIN - MAX_PLY) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Answer positions from a Tablebase instead of searching, where it covers
+     * the Board.
+     *
+     * @param tablebase The Tablebase to use, or null to always search
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Answer positions from an OpeningBook instead of searching, where it
+     * holds them.
+     *
+     * @param book The OpeningBook to use, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Set how far from the pieces on a large Board moves are searched. Moves
+     * further away are only searched on an empty Board, which is what makes
+     * searching large Boards practical.
+     *
+     * @param candidateDistance The distance in king moves, or 0 to search
+     *                          every empty cell
+     */
+    public void setCandidateDistance(int candidateDistance) {
+        if (candidateDistance < 0) {
+            throw new IllegalArgumentException("The candidate distance cannot be negative");
+        }
+        this.candidateDistance = candidateDistance;
+    }
+
+    /**
+     * Get the number of positions visited by the last call to chooseMove().
+     *
+     * @return The number of nodes searched
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the score of the last completed search iteration.
+     *
+     * @return The score for the side that was to move
+     */
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * Search a position.
+     *
+     * @param board The position to search
+     * @param depth The remaining number of moves to look ahead
+     * @param alpha The score the side to move is already guaranteed
+     * @param beta  The score the opponent is already guaranteed
+     * @param ply   The distance from the root of the search
+     * @return The score of the position for the side to move
+     */
+    private int negamax(Board board, int depth, int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & 1023) == 0 && timeLimitMillis > 0 && System.nanoTime() > deadline) {
+            aborted = true;
+        }
+        if (aborted) {
+            return 0;
+        }
+        GameEvent.Status status = board.getStatus();
+        if (status == GameEvent.Status.WINNER) {
+            // The last move won, so the side to move has lost
+            return -(WIN - ply);
+        }
+        if (status == GameEvent.Status.DRAW || depth == 0) {
+            return 0;
+        }
+
+        // Equivalent positions share one entry, with the move stored in the
+        // canonical orientation
+        int symmetry = board.getCanonicalSymmetry();
+        long key = board.getSymmetricHash(symmetry);
+        long entry = table.probe(key);
+        int tableMove = -1;
+        if (entry != 0L) {
+            tableMove = TranspositionTable.move(entry);
+            if (tableMove >= 0) {
+                tableMove = board.inverseTransformCell(symmetry, tableMove);
+            }
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && score >= beta)
+                        || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestScore = -WIN;
+        int bestMove = -1;
+        int width = board.getWidth();
+        int count = generateMoves(board, ply, tableMove);
+        int[] moves = moveLists[ply];
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            board.makeMove(cell / width, cell % width);
+            int score = -negamax(board, depth - 1, -beta, -alpha, ply + 1);
+            board.unmakeMove();
+            if (aborted) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = cell;
+                if (ply == 0) {
+                    rootMove = cell;
+                }
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, toTable(bestScore, ply),
+                bestMove < 0 ? -1 : board.transformCell(symmetry, bestMove), depth, bound);
+        return bestScore;
+    }
+
+    /**
+     * List the moves to search in a position, most promising first, in the
+     * move list of its ply.
+     *
+     * @param board     The position, where the game is not over
+     * @param ply       The distance from the root of the search
+     * @param tableMove The best move found earlier, or -1
+     * @return The number of moves listed
+     */
+    private int generateMoves(Board board, int ply, int tableMove) {
+        int[] moves = moveLists[ply];
+        if (moves == null) {
+            moves = moveLists[ply] = new int[order.length];
+            scoreLists[ply] = new int[order.length];
+        }
+        ThreatIndex threats = board.getThreatIndex();
+        if (threats == null || threats.getCandidateCount() == 0) {
+            int count = 0;
+            if (tableMove >= 0 && isEmpty(board, tableMove)) {
+                moves[count++] = tableMove;
+            }
+            for (int cell : order) {
+                if (cell != tableMove && isEmpty(board, cell)) {
+                    moves[count++] = cell;
+                }
+            }
+            return count;
+        }
+        boolean turn = board.getCurrentTurn();
+        if (threats.getWinningCellCount(turn) > 0) {
+            moves[0] = threats.getWinningCell(turn, 0);
+            return 1;
+        }
+        int threatened = threats.getWinningCellCount(!turn);
+        if (threatened > 0) {
+            // Any other move loses at once
+            for (int i = 0; i < threatened; i++) {
+                moves[i] = threats.getWinningCell(!turn, i);
+            }
+            return threatened;
+        }
+        int[] scores = scoreLists[ply];
+        int count = 0;
+        if (tableMove >= 0 && isEmpty(board, tableMove)) {
+            moves[count] = tableMove;
+            scores[count++] = Integer.MAX_VALUE;
+        }
+        for (int i = 0; i < threats.getCandidateCount(); i++) {
+            int cell = threats.getCandidate(i);
+            if (cell == tableMove) {
+                continue;
+            }
+            // Insertion sort, as there are only a few dozen candidates
+            int score = threats.getScore(cell, turn);
+            int j = count++;
+            for (; j > 0 && scores[j - 1] < score; j--) {
+                moves[j] = moves[j - 1];
+                scores[j] = scores[j - 1];
+            }
+            moves[j] = cell;
+            scores[j] = score;
+        }
+        return count;
+    }
+
+    /**
+     * Convert a score relative to the root into one relative to the current
+     * position, so that stored wins stay correct when reached at another ply.
+     */
+    static int toTable(int score, int ply) {
+        if (score > WIN - MAX_PLY) {
+            return score + ply;
+        }
+        if (score < -(WIN - MAX_PLY)) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Convert a stored score back into one relative to the root.
+     */
+    static int fromTable(int score, int ply) {
+        if (score > WIN - MAX_PLY) {
+            return score - ply;
+        }
+        if (score < -(WIN - MAX_PLY)) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    static boolean isEmpty(Board board, int cell) {
+        return board.getCharacter(cell / board.getWidth(), cell % board.getWidth()) == ' ';
+    }
+
+    /**
+     * Prepare the move order for the dimensions of a Board, unless it is
+     * already prepared.
+     *
+     * @param board The Board that will be searched
+     */
+    private void prepareOrder(Board board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        if (order == null || orderWidth != width || orderHeight != height) {
+            order = centreOutOrder(width, height);
+            orderWidth = width;
+            orderHeight = height;
+            moveLists = new int[order.length + 1][];
+            scoreLists = new int[order.length + 1][];
+        }
+    }
+
+    /**
+     * Order the cells of a Board from its centre outwards, since central cells
+     * take part in the most lines.
+     *
+     * @param width  The width of the Board
+     * @param height The height of the Board
+     * @return Every cell of the Board, most central first
+     */
+    static int[] centreOutOrder(int width, int height) {
+        Integer[] cells = new Integer[width * height];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = i;
+        }
+        Arrays.sort(cells, (a, b) -> Integer.compare(distance(a, width, height), distance(b, width, height)));
+        int[] order = new int[cells.length];
+        for (int i = 0; i < cells.length; i++) {
+            order[i] = cells[i];
+        }
+        return order;
+    }
+
+    /**
+     * Get twice the Chebyshev distance of a cell from the centre of the Board.
+     */
+    private static int distance(int cell, int width, int height) {
+        int x = cell / width;
+        int y = cell % width;
+        return Math.max(Math.abs(2 * x - (height - 1)), Math.abs(2 * y - (width - 1)));
+    }
+}
@@ -0,0 +1,492 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import metrics.Metrics;
+import model.Board;
+import model.GameEvent;
+
+/**
+ * This class represents a computer opponent for Boards far too large to
+ * search exhaustively, such as 15x15 or 19x19 gomoku, using Monte Carlo tree
+ * search with the UCT selection rule.
+ *
+ * Every search thread repeatedly walks down one shared tree, choosing the
+ * child with the best upper confidence bound, then finishes the game with
+ * random moves (a playout) and adds the result to every node on its path.
+ * Node statistics are a single long per node, holding the visits and the
+ * reward, updated with atomic adds rather than locks. A thread counts its
+ * visit on the way down and its reward on the way back, so until the playout
+ * finishes the visit looks like a loss (a virtual loss), steering the other
+ * threads towards different paths. Children are created once a node has been
+ * visited a few times, and published with a compare-and-set, so two threads expanding the
+ * same node simply keep whichever array was published first.
+ *
+ * Each thread plays on its own copy of the Board, making and taking back
+ * moves, and keeps its own random generator and scratch arrays, so a playout
+ * allocates nothing. Only empty cells within two cells of a piece are
+ * considered as moves, and a move that wins at once, or stops the opponent
+ * winning at once, is played without searching.
+ *
+ * The search runs for a time budget, a playout budget, or whichever ends
+ * first. Positions held by an OpeningBook, if one has been set, are answered
+ * from it without searching.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MonteCarloPlayer {
+
+    // The UCT exploration constant, sqrt(2) for rewards between 0 and 1.
+    private static final double EXPLORATION = Math.sqrt(2);
+    // A node's children are created on this visit, so the many leaves visited
+    // only a few times cost no memory.
+    private static final int EXPAND_VISITS = 8;
+    // Only empty cells this close to a piece are considered.
+    private static final int NEIGHBOURHOOD = 2;
+
+    private final int threads;
+    private final long timeLimitMillis;
+    private final long maxPlayouts;
+    private long seed = System.nanoTime();
+    private OpeningBook book;
+
+    /**
+     * Construct a new MonteCarloPlayer that searches for one second per move
+     * on every available processor.
+     */
+    public MonteCarloPlayer() {
+        this(Runtime.getRuntime().availableProcessors(), 1000, 0);
+    }
+
+    /**
+     * Construct a new MonteCarloPlayer.
+     *
+     * @param threads         The number of threads to search with
+     * @param timeLimitMillis The time allowed per move, or 0 for no limit
+     * @param maxPlayouts     The playouts allowed per move, or 0 for no limit
+     */
+    public MonteCarloPlayer(int threads, long timeLimitMillis, long maxPlayouts) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The search needs at least one thread");
+        }
+        if (timeLimitMillis <= 0 && maxPlayouts <= 0) {
+            throw new IllegalArgumentException("The search needs a time or playout limit");
+        }
+        this.threads = threads;
+        this.timeLimitMillis = timeLimitMillis;
+        this.maxPlayouts = maxPlayouts;
+    }
+
+    /**
+     * Seed the random playouts, so that a search with one thread and a playout
+     * limit always chooses the same move.
+     *
+     * @param seed The seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Answer positions from an OpeningBook instead of searching, where it
+     * holds them.
+     *
+     * @param book The OpeningBook to use, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Choose a move for the player whose turn it is.
+     *
+     * @param board The Board to choose a move on. It is not modified.
+     * @return The chosen cell (x * width + y), or -1 if the game is over
+     */
+    public int chooseMove(Board board) {
+        if (board.getStatus() != GameEvent.Status.NO_WINNER) {
+            return -1;
+        }
+        Metrics metrics = Metrics.get();
+        long start = metrics == null ? 0L : System.nanoTime();
+        MonteCarloResult result = search(board);
+        if (metrics != null) {
+            metrics.searched(result.getPlayouts(), result.getBestMove(), System.nanoTime() - start);
+        }
+        return result.getBestMove();
+    }
+
+    /**
+     * Search a position.
+     *
+     * @param board The position to search. It is not modified.
+     * @return The chosen move and the statistics of the search
+     */
+    public MonteCarloResult search(Board board) {
+        long start = System.nanoTime();
+        if (board.getStatus() != GameEvent.Status.NO_WINNER) {
+            return new MonteCarloResult(-1, 0, 0, 0, 0, threads);
+        }
+        if (book != null) {
+            int index = book.probe(board);
+            int move = index < 0 ? -1 : book.bestMove(board, index);
+            if (move >= 0) {
+                return new MonteCarloResult(move, bookWinRate(book.score(index)), 0, 0, System.nanoTime() - start,
+                        threads);
+            }
+        }
+        Board position = new Board(board);
+        int forced = forcedMove(position);
+        if (forced >= 0) {
+            // A winning move is certain; a blocking move is simply necessary
+            int width = position.getWidth();
+            char own = position.getCurrentTurn() ? 'x' : 'o';
+            double winRate = position.completesLine(forced / width, forced % width, own) ? 1 : 0.5;
+            return new MonteCarloResult(forced, winRate, 0, 0, System.nanoTime() - start, threads);
+        }
+
+        Node root = new Node(-1);
+        AtomicInteger nodes = new AtomicInteger(1);
+        Node[] moves = expand(root, position, nodes);
+        if (moves.length == 1) {
+            return new MonteCarloResult(moves[0].move, 0.5, 0, nodes.get(), System.nanoTime() - start, threads);
+        }
+
+        long deadline = timeLimitMillis > 0 ? start + timeLimitMillis * 1000000L : Long.MAX_VALUE;
+        AtomicLong claimed = new AtomicLong();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            workers.add(new Worker(root, new Board(position), seeds.split(), nodes, claimed, deadline));
+        }
+        long playouts = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (Future<Long> future : pool.invokeAll(workers)) {
+                playouts += future.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("A search thread failed", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // The most visited move is the most reliable, not the best average
+        Node best = moves[0];
+        for (Node move : moves) {
+            if (move.visits() > best.visits()) {
+                best = move;
+            }
+        }
+        double winRate = best.visits() == 0 ? 0.5 : best.reward() / (2.0 * best.visits());
+        return new MonteCarloResult(best.move, winRate, playouts, nodes.get(), System.nanoTime() - start, threads);
+    }
+
+    /**
+     * Convert the score of an OpeningBook entry into a win rate.
+     *
+     * @param score The score for the side to move
+     * @return 1 or 0 for a decided position, otherwise the rating of the move
+     *         scaled from 0 to 1
+     */
+    private static double bookWinRate(int score) {
+        if (Math.abs(score) > ComputerPlayer.WIN - ComputerPlayer.MAX_PLY) {
+            return score > 0 ? 1 : 0;
+        }
+        return Math.max(0, Math.min(1, 0.5 + score / 2000.0));
+    }
+
+    /**
+     * Find a move that wins at once, or failing that one that stops the
+     * opponent winning at once.
+     *
+     * @param board The position
+     * @return The cell to play, or -1 if there is none
+     */
+    private static int forcedMove(Board board) {
+        char own = board.getCurrentTurn() ? 'x' : 'o';
+        char other = board.getCurrentTurn() ? 'o' : 'x';
+        int width = board.getWidth();
+        int cells = width * board.getHeight();
+        int block = -1;
+        for (int cell = 0; cell < cells; cell++) {
+            if (ComputerPlayer.isEmpty(board, cell)) {
+                if (board.completesLine(cell / width, cell % width, own)) {
+                    return cell;
+                }
+                if (block < 0 && board.completesLine(cell / width, cell % width, other)) {
+                    block = cell;
+                }
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Create the children of a node, one per candidate move, unless another
+     * thread already has.
+     *
+     * @param node     The node
+     * @param position The position at the node
+     * @param nodes    The count of nodes in the tree
+     * @return The children of the node
+     */
+    private static Node[] expand(Node node, Board position, AtomicInteger nodes) {
+        Node[] children = node.children;
+        if (children != null) {
+            return children;
+        }
+        int width = position.getWidth();
+        int height = position.getHeight();
+        int cells = width * height;
+        boolean[] near = new boolean[cells];
+        boolean occupied = false;
+        for (int cell = 0; cell < cells; cell++) {
+            if (ComputerPlayer.isEmpty(position, cell)) {
+                continue;
+            }
+            occupied = true;
+            int x = cell / width;
+            int y = cell % width;
+            for (int i = Math.max(0, x - NEIGHBOURHOOD); i <= Math.min(height - 1, x + NEIGHBOURHOOD); i++) {
+                for (int j = Math.max(0, y - NEIGHBOURHOOD); j <= Math.min(width - 1, y + NEIGHBOURHOOD); j++) {
+                    near[i * width + j] = true;
+                }
+            }
+        }
+        if (!occupied) {
+            // The centre is the strongest opening on any empty Board
+            near[(height / 2) * width + width / 2] = true;
+        }
+        int count = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (near[cell] && ComputerPlayer.isEmpty(position, cell)) {
+                count++;
+            }
+        }
+        children = new Node[count];
+        count = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            if (near[cell] && ComputerPlayer.isEmpty(position, cell)) {
+                children[count++] = new Node(cell);
+            }
+        }
+        if (Node.CHILDREN.compareAndSet(node, null, children)) {
+            nodes.addAndGet(children.length);
+            return children;
+        }
+        return node.children;
+    }
+
+    /**
+     * This class represents a position in the search tree, reached by a move
+     * from its parent.
+     */
+    private static final class Node {
+        private static final AtomicLongFieldUpdater<Node> STATS = AtomicLongFieldUpdater.newUpdater(Node.class,
+                "stats");
+        private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN = AtomicReferenceFieldUpdater
+                .newUpdater(Node.class, Node[].class, "children");
+
+        private final int move;
+        // The visits (high 32 bits) and the reward in half points (low 32
+        // bits) for the player who made the move: 2 for a win, 1 for a draw.
+        private volatile long stats;
+        // Null until the node is expanded.
+        private volatile Node[] children;
+
+        private Node(int move) {
+            this.move = move;
+        }
+
+        private int visits() {
+            return (int) (stats >>> 32);
+        }
+
+        private long reward() {
+            return stats & 0xFFFFFFFFL;
+        }
+
+        private void addVisit() {
+            STATS.addAndGet(this, 1L << 32);
+        }
+
+        private void addReward(int halfPoints) {
+            STATS.addAndGet(this, halfPoints);
+        }
+    }
+
+    /**
+     * This class represents one search thread, with its own copy of the root
+     * position and everything a playout needs.
+     */
+    private final class Worker implements Callable<Long> {
+        private final Node root;
+        private final Board position;
+        private final SplittableRandom random;
+        private final AtomicInteger nodes;
+        private final AtomicLong claimed;
+        private final long deadline;
+        private final int width, cells;
+        private final boolean rootTurn;
+        private final Node[] path;
+        private final int[] empty;
+
+        private Worker(Node root, Board position, SplittableRandom random, AtomicInteger nodes, AtomicLong claimed,
+                long deadline) {
+            this.root = root;
+            this.position = position;
+            this.random = random;
+            this.nodes = nodes;
+            this.claimed = claimed;
+            this.deadline = deadline;
+            width = position.getWidth();
+            cells = width * position.getHeight();
+            rootTurn = position.getCurrentTurn();
+            path = new Node[cells + 1];
+            empty = new int[cells];
+        }
+
+        @Override
+        public Long call() {
+            long count = 0;
+            while ((maxPlayouts <= 0 || claimed.getAndIncrement() < maxPlayouts) && System.nanoTime() < deadline) {
+                iterate();
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Walk down the tree, play the game out and record the result.
+         */
+        private void iterate() {
+            int depth = 0;
+            Node node = root;
+            node.addVisit();
+            path[depth++] = node;
+            while (position.getStatus() == GameEvent.Status.NO_WINNER) {
+                Node[] children = node.children;
+                if (children == null) {
+                    if (node.visits() < EXPAND_VISITS) {
+                        break;
+                    }
+                    children = expand(node, position, nodes);
+                }
+                node = select(node, children);
+                node.addVisit();
+                position.makeMove(node.move / width, node.move % width);
+                path[depth++] = node;
+            }
+
+            char winner = playout();
+            for (int i = 0; i < depth; i++) {
+                // The root's move was made by the opponent of the side to move
+                boolean moverIsX = (i % 2 == 1) == rootTurn;
+                path[i].addReward(winner == ' ' ? 1 : (winner == 'x') == moverIsX ? 2 : 0);
+            }
+            for (int i = 1; i < depth; i++) {
+                position.unmakeMove();
+            }
+        }
+
+        /**
+         * Choose the child with the best upper confidence bound, or the first
+         * one no thread has visited yet.
+         */
+        private Node select(Node parent, Node[] children) {
+            double logVisits = Math.log(Math.max(1, parent.visits()));
+            Node best = children[0];
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (Node child : children) {
+                long stats = child.stats;
+                int visits = (int) (stats >>> 32);
+                if (visits == 0) {
+                    return child;
+                }
+                double value = (stats & 0xFFFFFFFFL) / (2.0 * visits)
+                        + EXPLORATION * Math.sqrt(logVisits / visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Finish the game with random moves, then take them back.
+         *
+         * @return The winner, 'x' or 'o', or ' ' for a draw
+         */
+        private char playout() {
+            int count = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if (ComputerPlayer.isEmpty(position, cell)) {
+                    empty[count++] = cell;
+                }
+            }
+            int played = 0;
+            while (count > 0 && position.getStatus() == GameEvent.Status.NO_WINNER) {
+                int i = random.nextInt(count);
+                int cell = empty[i];
+                empty[i] = empty[--count];
+                position.makeMove(cell / width, cell % width);
+                played++;
+            }
+            char winner = position.getWinner();
+            for (; played > 0; played--) {
+                position.unmakeMove();
+            }
+            return winner;
+        }
+    }
+
+    /**
+     * Search a position with 1 thread, then with twice as many threads at a
+     * time up to every available processor (or the given number of threads),
+     * and report the playout rate and how it scales.
+     *
+     * @param args The width, height and win length of the Board, optionally
+     *             followed by the time per search in milliseconds, the number
+     *             of threads and the moves already played as cell indices
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: MonteCarloPlayer <width> <height> <winLength> [millis] [threads] [cell...]");
+            System.exit(1);
+        }
+        Board board = new Board(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        long millis = args.length > 3 ? Long.parseLong(args[3]) : 2000;
+        int threads = args.length > 4 ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        for (int i = 5; i < args.length; i++) {
+            int cell = Integer.parseInt(args[i]);
+            board.makeMove(cell / board.getWidth(), cell % board.getWidth());
+        }
+        // Search once to warm up the JIT, so the 1 thread baseline is not penalised
+        new MonteCarloPlayer(1, millis / 2, 0).search(board);
+        MonteCarloResult single = new MonteCarloPlayer(1, millis, 0).search(board);
+        System.out.println(single);
+        int count = 1;
+        while (count < threads) {
+            count = Math.min(2 * count, threads);
+            MonteCarloResult result = new MonteCarloPlayer(count, millis, 0).search(board);
+            System.out.println(result);
+            System.out.printf("Scaling with %d threads: %.2fx%n", count, result.getScaling(single));
+        }
+    }
+}
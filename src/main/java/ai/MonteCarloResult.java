@@ -0,0 +1,120 @@
+package ai;
+
+/**
+ * This class represents the outcome of a Monte Carlo tree search: the chosen
+ * move, how often it won in the playouts, and how many playouts were run.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MonteCarloResult {
+
+    private final int bestMove;
+    private final double winRate;
+    private final long playouts;
+    private final int nodes;
+    private final long elapsedNanos;
+    private final int threads;
+
+    /**
+     * Construct a new MonteCarloResult.
+     *
+     * @param bestMove     The chosen move (x * width + y), or -1 if the game is
+     *                     over
+     * @param winRate      The share of the chosen move's playouts won by the
+     *                     side to move, counting draws as half
+     * @param playouts     The number of playouts run
+     * @param nodes        The number of nodes in the search tree
+     * @param elapsedNanos The time taken by the search
+     * @param threads      The number of threads that searched
+     */
+    public MonteCarloResult(int bestMove, double winRate, long playouts, int nodes, long elapsedNanos, int threads) {
+        this.bestMove = bestMove;
+        this.winRate = winRate;
+        this.playouts = playouts;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+    }
+
+    /**
+     * Get the chosen move.
+     *
+     * @return The chosen move (x * width + y), or -1 if the game is over
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get how often the chosen move won in the playouts.
+     *
+     * @return The share of its playouts won, from 0 to 1, counting draws as half
+     */
+    public double getWinRate() {
+        return winRate;
+    }
+
+    /**
+     * Get the number of playouts run.
+     *
+     * @return The playout count
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * Get the number of nodes in the search tree.
+     *
+     * @return The node count
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the time taken by the search.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the number of threads that searched.
+     *
+     * @return The thread count
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the search speed.
+     *
+     * @return The number of playouts run per second
+     */
+    public double getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Get how many times more playouts per second this search ran than another.
+     *
+     * @param baseline A search of the same position, usually with 1 thread
+     * @return The ratio of this result's playout rate to the baseline's
+     */
+    public double getScaling(MonteCarloResult baseline) {
+        double base = baseline.getPlayoutsPerSecond();
+        return base == 0 ? 0 : getPlayoutsPerSecond() / base;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("best move %d (%.1f%% won) with %d thread(s): %d playouts, %d nodes in %.3f s, "
+                + "%.0f playouts/s", bestMove, 100 * winRate, threads, playouts, nodes, elapsedNanos / 1e9,
+                getPlayoutsPerSecond());
+    }
+}
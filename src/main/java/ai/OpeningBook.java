@@ -0,0 +1,150 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.Board;
+
+/**
+ * This class represents an opening book written by the OpeningBookBuilder: the
+ * best move and its score for the positions of the first few moves of a game,
+ * so that the computer can answer them without searching.
+ *
+ * Like a Tablebase, the file is memory-mapped rather than read onto the heap,
+ * so every JVM on the host that maps the same book shares one copy of it
+ * through the page cache, and a book of any size costs no heap. Entries are
+ * sorted by the canonical hash of their position, and looked up by binary
+ * search over the mapping. Rotations and reflections of a position share one
+ * entry, with its move stored in the canonical orientation.
+ *
+ * The file holds a 24 byte header (magic number, version, width, height, win
+ * length and entry count, as ints) followed by 16 bytes per position: the
+ * canonical hash, the move and the score.
+ *
+ * A score is from the side to move's point of view. Positions decided by a
+ * search hold the ComputerPlayer's score of a win or loss. Other positions
+ * are rated from -1000 to 1000: their search score, which is 0 for a position
+ * that is not decided, or 1000 times the mean outcome of the games played
+ * from them.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class OpeningBook {
+
+    static final int MAGIC = 0x5454424B;
+    // Version 2 books hold hashes keyed by the dimensions and win length.
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 24;
+    static final int ENTRY_SIZE = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int width, height, winLength, entries;
+
+    private OpeningBook(MappedByteBuffer buffer, int width, int height, int winLength, int entries) {
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.entries = entries;
+    }
+
+    /**
+     * Map an opening book file.
+     *
+     * @param path The file written by the OpeningBookBuilder
+     * @return The mapped OpeningBook
+     * @throws IOException If the file could not be mapped or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(path + " is not an opening book");
+        }
+        int entries = buffer.getInt(20);
+        if (entries < 0 || buffer.capacity() != HEADER_SIZE + (long) ENTRY_SIZE * entries) {
+            throw new IOException(path + " is truncated or corrupt");
+        }
+        return new OpeningBook(buffer, buffer.getInt(8), buffer.getInt(12), buffer.getInt(16), entries);
+    }
+
+    /**
+     * Check whether this OpeningBook holds positions of a Board's dimensions.
+     *
+     * @param board The Board to check
+     * @return True if positions of the Board can be probed
+     */
+    public boolean covers(Board board) {
+        return board.getWidth() == width && board.getHeight() == height && board.getWinLength() == winLength;
+    }
+
+    /**
+     * Get the number of positions in the book.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Look up the current position of a Board.
+     *
+     * @param board The Board to look up
+     * @return The index of the position's entry, or -1 if the book does not
+     *         cover the Board or hold the position
+     */
+    public int probe(Board board) {
+        if (!covers(board)) {
+            return -1;
+        }
+        long key = board.getCanonicalHash();
+        int low = 0;
+        int high = entries - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long hash = buffer.getLong(HEADER_SIZE + ENTRY_SIZE * middle);
+            if (hash < key) {
+                low = middle + 1;
+            } else if (hash > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Get the best move of a probed position.
+     *
+     * @param board The Board that was probed
+     * @param index The index returned by probe()
+     * @return The best move (x * width + y) on the Board, or -1 if the move is
+     *         not empty, which only a hash collision can cause
+     */
+    public int bestMove(Board board, int index) {
+        int move = buffer.getInt(HEADER_SIZE + ENTRY_SIZE * index + 8);
+        if (move < 0 || move >= width * height) {
+            return -1;
+        }
+        move = board.inverseTransformCell(board.getCanonicalSymmetry(), move);
+        return board.getCharacter(move / width, move % width) == ' ' ? move : -1;
+    }
+
+    /**
+     * Get the score of a probed position's best move.
+     *
+     * @param index The index returned by probe()
+     * @return The score for the side to move
+     */
+    public int score(int index) {
+        return buffer.getInt(HEADER_SIZE + ENTRY_SIZE * index + 12);
+    }
+}
@@ -0,0 +1,284 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import dataset.DatasetReader;
+import model.Board;
+import model.GameEvent;
+import model.ThreatIndex;
+
+/**
+ * This class builds an OpeningBook for the first few moves of games on a
+ * Board of given dimensions, from deep searches, from the outcomes of games
+ * recorded in a dataset, or both.
+ *
+ * Searching visits every position reachable in the first plies moves and asks
+ * a ComputerPlayer for its best move. On Boards larger than 5x5, only moves
+ * within two cells of a piece are followed, as in the ComputerPlayer's own
+ * search. Aggregating games counts how each move played in the first plies
+ * moves of every game in a DatasetReader turned out, and keeps the move with
+ * the best mean outcome. A position found both ways keeps its search result.
+ *
+ * The builder holds its entries in hash maps, keyed by the canonical hash of
+ * their position, and only sorts them when the book is written.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class OpeningBookBuilder {
+
+    // How far from a piece the moves followed on large Boards can be.
+    private static final int CANDIDATE_DISTANCE = 2;
+
+    private final int width, height, winLength;
+    // The move (high 32 bits) and score (low 32 bits) of each position, by
+    // canonical hash.
+    private final Map<Long, Long> entries = new HashMap<>();
+
+    /**
+     * Construct a new OpeningBookBuilder.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     */
+    public OpeningBookBuilder(int width, int height, int winLength) {
+        // Fail now rather than while building if the dimensions are invalid
+        new Board(width, height, winLength);
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+    }
+
+    private static long pack(int move, int score) {
+        return ((long) move << 32) | (score & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Search every position of the first plies moves of a game.
+     *
+     * @param computer The ComputerPlayer to search with
+     * @param plies    The number of moves to cover from the empty Board
+     * @return The number of positions searched
+     */
+    public int addSearches(ComputerPlayer computer, int plies) {
+        Board board = new Board(width, height, winLength);
+        int span = 2 * CANDIDATE_DISTANCE + 1;
+        if (width > span || height > span) {
+            board.enableThreatIndex(CANDIDATE_DISTANCE);
+        }
+        Set<Long> visited = new HashSet<>();
+        search(board, computer, plies, visited);
+        return visited.size();
+    }
+
+    /**
+     * Search a position and every position reachable from it within the first
+     * plies moves of the game.
+     */
+    private void search(Board board, ComputerPlayer computer, int plies, Set<Long> visited) {
+        if (board.getStatus() != GameEvent.Status.NO_WINNER || board.getMoveCount() >= plies) {
+            return;
+        }
+        int symmetry = board.getCanonicalSymmetry();
+        long key = board.getSymmetricHash(symmetry);
+        if (!visited.add(key)) {
+            return;
+        }
+        int move = computer.chooseMove(board);
+        entries.put(key, pack(board.transformCell(symmetry, move), computer.getLastScore()));
+        for (int cell : followedMoves(board)) {
+            board.makeMove(cell / width, cell % width);
+            search(board, computer, plies, visited);
+            board.unmakeMove();
+        }
+    }
+
+    /**
+     * List the moves to follow from a position: the candidates of its
+     * ThreatIndex if it has one and the Board is not empty, and every empty
+     * cell otherwise. The list is copied, as the candidates change as moves
+     * are made.
+     */
+    private int[] followedMoves(Board board) {
+        ThreatIndex threats = board.getThreatIndex();
+        if (threats != null && threats.getCandidateCount() > 0) {
+            int[] moves = new int[threats.getCandidateCount()];
+            for (int i = 0; i < moves.length; i++) {
+                moves[i] = threats.getCandidate(i);
+            }
+            Arrays.sort(moves);
+            return moves;
+        }
+        int[] moves = new int[width * height - board.getMoveCount()];
+        int count = 0;
+        for (int cell = 0; cell < width * height; cell++) {
+            if (board.getCharacter(cell / width, cell % width) == ' ') {
+                moves[count++] = cell;
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * Add the best scoring move of every position played in the first plies
+     * moves of the games in a dataset, unless the position has already been
+     * searched.
+     *
+     * @param reader   The dataset, for Boards of the builder's dimensions
+     * @param plies    The number of moves to cover from the empty Board
+     * @param minGames The fewest games a move must have been played in to be
+     *                 chosen
+     * @return The number of positions added
+     * @throws IOException If the dataset could not be read
+     */
+    public int addGames(DatasetReader reader, int plies, int minGames) throws IOException {
+        if (reader.getWidth() != width || reader.getHeight() != height || reader.getWinLength() != winLength) {
+            throw new IllegalArgumentException("The dataset does not match the dimensions of the book");
+        }
+        // The games played and half points scored by each move of each
+        // position, by canonical hash and canonical move
+        Map<Long, Map<Integer, long[]>> outcomes = new HashMap<>();
+        Board board = new Board(width, height, winLength);
+        while (reader.next()) {
+            int pieces = reader.getMoveCount();
+            if (pieces == 0) {
+                board.resetBoard();
+            }
+            // Games are written whole, so the Board follows each game from
+            // its first record until the last ply of the book
+            if (pieces >= plies || board.getMoveCount() != pieces) {
+                continue;
+            }
+            int move = reader.getMove();
+            int symmetry = board.getCanonicalSymmetry();
+            long[] stats = outcomes.computeIfAbsent(board.getSymmetricHash(symmetry), key -> new HashMap<>())
+                    .computeIfAbsent(board.transformCell(symmetry, move), key -> new long[2]);
+            char winner = reader.getWinner();
+            stats[0]++;
+            stats[1] += winner == ' ' ? 1 : (winner == 'x') == reader.getCurrentTurn() ? 2 : 0;
+            board.makeMove(move / width, move % width);
+        }
+        int added = 0;
+        for (Map.Entry<Long, Map<Integer, long[]>> position : outcomes.entrySet()) {
+            int bestMove = -1;
+            double bestMean = Double.NEGATIVE_INFINITY;
+            for (Map.Entry<Integer, long[]> move : position.getValue().entrySet()) {
+                long[] stats = move.getValue();
+                // The mean outcome from -1 (always lost) to 1 (always won)
+                double mean = (double) stats[1] / stats[0] - 1;
+                if (stats[0] >= minGames && (mean > bestMean || (mean == bestMean && move.getKey() < bestMove))) {
+                    bestMove = move.getKey();
+                    bestMean = mean;
+                }
+            }
+            long entry = pack(bestMove, (int) Math.round(1000 * bestMean));
+            if (bestMove >= 0 && entries.putIfAbsent(position.getKey(), entry) == null) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Get the number of positions in the book so far.
+     *
+     * @return The number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Write the book to a file, sorted by position hash.
+     *
+     * @param path The file to write
+     * @throws IOException If the file could not be written
+     */
+    public void write(Path path) throws IOException {
+        long[] keys = new long[entries.size()];
+        int count = 0;
+        for (long key : entries.keySet()) {
+            keys[count++] = key;
+        }
+        Arrays.sort(keys);
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_SIZE + OpeningBook.ENTRY_SIZE * keys.length);
+        buffer.putInt(OpeningBook.MAGIC).putInt(OpeningBook.VERSION).putInt(width).putInt(height).putInt(winLength)
+                .putInt(keys.length);
+        for (long key : keys) {
+            long entry = entries.get(key);
+            buffer.putLong(key).putInt((int) (entry >>> 32)).putInt((int) entry);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Build an opening book file.
+     *
+     * @param args The file to write and the number of plies to cover,
+     *             optionally followed by the width, height and win length of
+     *             the Board (3 3 3 by default). With --millis=m, each position
+     *             is searched for m milliseconds (1000 by default); with
+     *             --games=file, the games of a dataset are aggregated as well,
+     *             and with --games-only they are the only source.
+     * @throws IOException If the book could not be written or the dataset read
+     */
+    public static void main(String[] args) throws IOException {
+        long millis = 1000;
+        String games = null;
+        boolean search = true;
+        String[] positional = new String[5];
+        int count = 0;
+        for (String arg : args) {
+            if (arg.startsWith("--millis=")) {
+                millis = Long.parseLong(arg.substring("--millis=".length()));
+            } else if (arg.startsWith("--games=")) {
+                games = arg.substring("--games=".length());
+            } else if (arg.equals("--games-only")) {
+                search = false;
+            } else if (count < positional.length) {
+                positional[count++] = arg;
+            }
+        }
+        if (count != 2 && count != 5) {
+            System.err.println("Usage: OpeningBookBuilder <file> <plies> [width height winLength] [--millis=m] "
+                    + "[--games=dataset] [--games-only]");
+            System.exit(1);
+        }
+        int plies = Integer.parseInt(positional[1]);
+        OpeningBookBuilder builder = count == 5
+                ? new OpeningBookBuilder(Integer.parseInt(positional[2]), Integer.parseInt(positional[3]),
+                        Integer.parseInt(positional[4]))
+                : new OpeningBookBuilder(Board.SIZE, Board.SIZE, Board.SIZE);
+        long start = System.nanoTime();
+        if (search) {
+            int searched = builder.addSearches(new ComputerPlayer(255, millis, 20), plies);
+            System.out.printf("Searched %d positions in %.1f s%n", searched, (System.nanoTime() - start) / 1e9);
+        }
+        if (games != null) {
+            try (DatasetReader reader = new DatasetReader(Paths.get(games))) {
+                int added = builder.addGames(reader, plies, 10);
+                System.out.printf("Added %d positions from %d records of games%n", added, reader.getRecordsRead());
+            }
+        }
+        builder.write(Paths.get(positional[0]));
+        System.out.printf("Wrote %d positions to %s in %.1f s%n", builder.size(), positional[0],
+                (System.nanoTime() - start) / 1e9);
+    }
+}
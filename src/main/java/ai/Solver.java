@@ -0,0 +1,337 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import model.Board;
+import model.GameEvent;
+
+/**
+ * This class represents a parallel solver that finds the game-theoretic value
+ * and best move of a position by searching its whole game tree.
+ *
+ * The search is alpha-beta negamax split across a ForkJoinPool with the young
+ * brothers wait scheme: at every node with enough empty cells left, the first
+ * (eldest) move is searched alone, and only then are its younger brothers
+ * forked in parallel, each on its own copy of the Board. Brothers share the
+ * best score found so far, and a brother that refutes the node cancels the
+ * others. All threads share one TranspositionTable, which needs no locks and
+ * is keyed by canonical hash so that symmetric positions are solved once.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class Solver {
+
+    // The deepest search the transposition table can record.
+    private static final int MAX_DEPTH = 255;
+
+    private final int threads;
+    private final int splitDepth;
+    private final TranspositionTable table;
+    private final LongAdder nodes = new LongAdder();
+    private int[] order;
+
+    /**
+     * Construct a new Solver that uses every available processor.
+     */
+    public Solver() {
+        this(Runtime.getRuntime().availableProcessors(), 22);
+    }
+
+    /**
+     * Construct a new Solver.
+     *
+     * @param threads       The number of threads to search with
+     * @param tableSizeLog2 The base 2 logarithm of the transposition table size
+     */
+    public Solver(int threads, int tableSizeLog2) {
+        this(threads, tableSizeLog2, 5);
+    }
+
+    /**
+     * Construct a new Solver.
+     *
+     * @param threads       The number of threads to search with
+     * @param tableSizeLog2 The base 2 logarithm of the transposition table size
+     * @param splitDepth    The fewest empty cells a node needs for its moves to
+     *                      be searched in parallel
+     */
+    public Solver(int threads, int tableSizeLog2, int splitDepth) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The solver needs at least one thread");
+        }
+        this.threads = threads;
+        this.splitDepth = splitDepth;
+        this.table = new TranspositionTable(tableSizeLog2);
+    }
+
+    /**
+     * Solve a position.
+     *
+     * @param board The position to solve. It is not modified.
+     * @return The value and best move of the position
+     */
+    public SolverResult solve(Board board) {
+        order = ComputerPlayer.centreOutOrder(board.getWidth(), board.getHeight());
+        table.clear();
+        table.newSearch();
+        nodes.reset();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long start = System.nanoTime();
+        try {
+            Board root = new Board(board);
+            int score = pool.invoke(new SearchTask(root, -ComputerPlayer.WIN, ComputerPlayer.WIN, 0, null));
+            int symmetry = root.getCanonicalSymmetry();
+            long entry = table.probe(root.getSymmetricHash(symmetry));
+            int move = entry == 0L || TranspositionTable.move(entry) < 0 ? -1
+                    : root.inverseTransformCell(symmetry, TranspositionTable.move(entry));
+            return new SolverResult(score, move, nodes.sum(), System.nanoTime() - start, threads);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * This class represents a node where the younger brothers are searched in
+     * parallel. It holds the best score and move found by any brother.
+     */
+    private static final class SplitPoint {
+        private final SplitPoint parent;
+        private final int beta;
+        // The best score (high 32 bits) and move (low 32 bits) found so far.
+        private final AtomicLong best;
+        private volatile boolean cutoff;
+
+        private SplitPoint(SplitPoint parent, int alpha, int beta, int move) {
+            this.parent = parent;
+            this.beta = beta;
+            this.best = new AtomicLong(pack(alpha, move));
+        }
+
+        private static long pack(int score, int move) {
+            return ((long) score << 32) | (move & 0xFFFFFFFFL);
+        }
+
+        private int alpha() {
+            return (int) (best.get() >> 32);
+        }
+
+        /**
+         * Record a brother's score, keeping it if it is the best so far.
+         */
+        private void update(int score, int move) {
+            long current;
+            while (score > (int) ((current = best.get()) >> 32)) {
+                if (best.compareAndSet(current, pack(score, move))) {
+                    break;
+                }
+            }
+            if (score >= beta) {
+                cutoff = true;
+            }
+        }
+
+        /**
+         * Check whether this node or any node above it has been refuted, making
+         * the search below it pointless.
+         */
+        private boolean isCancelled() {
+            for (SplitPoint point = this; point != null; point = point.parent) {
+                if (point.cutoff) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * This class represents the search of one position on its own Board.
+     */
+    private final class SearchTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int alpha, beta, ply;
+        private final SplitPoint split;
+        private final int move;
+        private long count;
+
+        /**
+         * Construct a task that searches a position.
+         *
+         * @param board The position, owned by this task
+         * @param alpha The lower bound of the search window
+         * @param beta  The upper bound of the search window
+         * @param ply   The distance from the root
+         * @param split The split point this task is a brother at, or null
+         */
+        private SearchTask(Board board, int alpha, int beta, int ply, SplitPoint split) {
+            this(board, alpha, beta, ply, split, -1);
+        }
+
+        private SearchTask(Board board, int alpha, int beta, int ply, SplitPoint split, int move) {
+            this.board = board;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.ply = ply;
+            this.split = split;
+            this.move = move;
+        }
+
+        @Override
+        protected Integer compute() {
+            try {
+                if (split == null) {
+                    return search(board, alpha, beta, ply, null);
+                }
+                // Younger brothers start from the best score found so far
+                int score = -search(board, -beta, -Math.max(alpha, split.alpha()), ply, split);
+                if (!split.isCancelled()) {
+                    split.update(score, move);
+                }
+                return score;
+            } finally {
+                nodes.add(count);
+            }
+        }
+
+        /**
+         * Search a position to the end of the game.
+         *
+         * @param board The position to search
+         * @param alpha The score the side to move is already guaranteed
+         * @param beta  The score the opponent is already guaranteed
+         * @param ply   The distance from the root
+         * @param split The innermost split point above this position, or null
+         * @return The score of the position for the side to move, or anything if
+         *         the search was cancelled
+         */
+        private int search(Board board, int alpha, int beta, int ply, SplitPoint split) {
+            count++;
+            if (split != null && split.isCancelled()) {
+                return 0;
+            }
+            GameEvent.Status status = board.getStatus();
+            if (status == GameEvent.Status.WINNER) {
+                return -(ComputerPlayer.WIN - ply);
+            }
+            if (status == GameEvent.Status.DRAW) {
+                return 0;
+            }
+
+            int empty = board.getWidth() * board.getHeight() - board.getMoveCount();
+            int depth = Math.min(empty, MAX_DEPTH);
+            // Equivalent positions share one entry, with the move stored in the
+            // canonical orientation
+            int symmetry = board.getCanonicalSymmetry();
+            long key = board.getSymmetricHash(symmetry);
+            long entry = table.probe(key);
+            int tableMove = -1;
+            if (entry != 0L) {
+                tableMove = TranspositionTable.move(entry);
+                if (tableMove >= 0) {
+                    tableMove = board.inverseTransformCell(symmetry, tableMove);
+                }
+                if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                    int score = ComputerPlayer.fromTable(TranspositionTable.score(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT
+                            || (bound == TranspositionTable.LOWER && score >= beta)
+                            || (bound == TranspositionTable.UPPER && score <= alpha)) {
+                        return score;
+                    }
+                }
+            }
+
+            int originalAlpha = alpha;
+            int bestScore = -ComputerPlayer.WIN;
+            int bestMove = -1;
+            int width = board.getWidth();
+            List<SearchTask> brothers = null;
+            SplitPoint point = null;
+            for (int i = -1; i < order.length; i++) {
+                int cell = i < 0 ? tableMove : order[i];
+                if (cell < 0 || (i >= 0 && cell == tableMove) || !ComputerPlayer.isEmpty(board, cell)) {
+                    continue;
+                }
+                if (bestMove >= 0 && empty >= splitDepth) {
+                    // The eldest brother has been searched, so fork the rest
+                    if (brothers == null) {
+                        brothers = new ArrayList<>();
+                        point = new SplitPoint(split, bestScore, beta, bestMove);
+                    }
+                    Board copy = new Board(board);
+                    copy.makeMove(cell / width, cell % width);
+                    brothers.add(new SearchTask(copy, alpha, beta, ply + 1, point, cell));
+                    continue;
+                }
+                board.makeMove(cell / width, cell % width);
+                int score = -search(board, -beta, -alpha, ply + 1, split);
+                board.unmakeMove();
+                if (split != null && split.isCancelled()) {
+                    return 0;
+                }
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = cell;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                }
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+
+            if (brothers != null) {
+                invokeAll(brothers);
+                if (split != null && split.isCancelled()) {
+                    return 0;
+                }
+                long best = point.best.get();
+                bestScore = (int) (best >> 32);
+                bestMove = (int) best;
+            }
+
+            int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER
+                    : bestScore >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            table.store(key, ComputerPlayer.toTable(bestScore, ply),
+                    bestMove < 0 ? -1 : board.transformCell(symmetry, bestMove), depth, bound);
+            return bestScore;
+        }
+    }
+
+    /**
+     * Solve a position with 1 thread and then with every available processor
+     * (or the given number of threads), and report the value, speed and speedup.
+     *
+     * @param args The width, height and win length of the Board, optionally
+     *             followed by the number of threads and the moves already played
+     *             as cell indices
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            System.err.println("Usage: Solver <width> <height> <winLength> [threads] [cell...]");
+            System.exit(1);
+        }
+        Board board = new Board(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        for (int i = 4; i < args.length; i++) {
+            int cell = Integer.parseInt(args[i]);
+            board.makeMove(cell / board.getWidth(), cell % board.getWidth());
+        }
+        // Solve once to warm up the JIT, so the 1 thread baseline is not penalised
+        new Solver(1, 22).solve(board);
+        SolverResult single = new Solver(1, 22).solve(board);
+        System.out.println(single);
+        SolverResult parallel = new Solver(threads, 22).solve(board);
+        System.out.println(parallel);
+        System.out.printf("Speedup with %d threads: %.2fx%n", threads, parallel.getSpeedup(single));
+    }
+}
@@ -0,0 +1,124 @@
+package ai;
+
+/**
+ * This class represents the outcome of solving a position with the Solver: its
+ * game-theoretic value, the best move, and how much work it took to find them.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SolverResult {
+
+    private final int score;
+    private final int bestMove;
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int threads;
+
+    /**
+     * Construct a new SolverResult.
+     *
+     * @param score        The score of the position for the side to move
+     * @param bestMove     The best move (x * width + y), or -1 if the game is over
+     * @param nodes        The number of positions searched
+     * @param elapsedNanos The time taken to solve the position
+     * @param threads      The number of threads that searched
+     */
+    public SolverResult(int score, int bestMove, long nodes, long elapsedNanos, int threads) {
+        this.score = score;
+        this.bestMove = bestMove;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+    }
+
+    /**
+     * Get the game-theoretic value of the position for the side to move.
+     *
+     * @return 1 for a win, 0 for a draw and -1 for a loss
+     */
+    public int getValue() {
+        return Integer.signum(score);
+    }
+
+    /**
+     * Get the number of moves left in the game with perfect play from both
+     * sides, if it is decided.
+     *
+     * @return The number of moves until the game is won, or -1 for a draw
+     */
+    public int getDistance() {
+        return score == 0 ? -1 : ComputerPlayer.WIN - Math.abs(score);
+    }
+
+    /**
+     * Get the score of the position, as used by the search.
+     *
+     * @return The score for the side to move
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the best move in the position.
+     *
+     * @return The best move (x * width + y), or -1 if the game is over
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get the number of positions searched.
+     *
+     * @return The node count
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Get the time taken to solve the position.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the number of threads that searched.
+     *
+     * @return The thread count
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the search speed.
+     *
+     * @return The number of positions searched per second
+     */
+    public double getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Get how much faster this result was found than another.
+     *
+     * @param baseline A result for the same position, usually with 1 thread
+     * @return The ratio of the baseline's time to this result's time
+     */
+    public double getSpeedup(SolverResult baseline) {
+        return elapsedNanos == 0 ? 0 : (double) baseline.elapsedNanos / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        String value = getValue() > 0 ? "win" : getValue() < 0 ? "loss" : "draw";
+        return String.format("%s (best move %d) with %d thread(s): %d nodes in %.3f s, %.0f nodes/s", value, bestMove,
+                threads, nodes, elapsedNanos / 1e9, getNodesPerSecond());
+    }
+}
@@ -0,0 +1,152 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import model.Board;
+
+/**
+ * This class represents a perfect-play tablebase written by the
+ * TablebaseGenerator.
+ *
+ * The file is memory-mapped rather than read onto the heap, so a lookup is a
+ * couple of reads from the mapping with no allocation and no search, and every
+ * JVM on the host that maps the same file shares one copy of it through the
+ * page cache.
+ *
+ * The file holds a 12 byte header (magic number, version, width, height, win
+ * length and entry count) followed by 2 bytes per position: the value in the
+ * low 2 bits and the distance to the end in the high 6 bits of the first
+ * byte, then the best move.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class Tablebase {
+
+    static final int MAGIC = 0x54544254;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int ENTRY_SIZE = 2;
+    // Stored values, from the side to move's point of view. 0 marks a
+    // position that cannot be reached.
+    static final int WIN = 1;
+    static final int DRAW = 2;
+    static final int LOSS = 3;
+    static final int NO_MOVE = 0xFF;
+
+    private final MappedByteBuffer buffer;
+    private final int width, height, winLength, cells;
+
+    private Tablebase(MappedByteBuffer buffer, int width, int height, int winLength) {
+        this.buffer = buffer;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.cells = width * height;
+    }
+
+    /**
+     * Map a tablebase file.
+     *
+     * @param path The file written by the TablebaseGenerator
+     * @return The mapped Tablebase
+     * @throws IOException If the file could not be mapped or is not a tablebase
+     */
+    public static Tablebase open(Path path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.get(4) != VERSION) {
+            throw new IOException(path + " is not a tablebase");
+        }
+        int width = buffer.get(5);
+        int height = buffer.get(6);
+        int winLength = buffer.get(7);
+        int entries = buffer.getInt(8);
+        int expected = 1;
+        for (int i = 0; i < width * height; i++) {
+            expected *= 3;
+        }
+        if (entries != expected || buffer.capacity() != HEADER_SIZE + (long) ENTRY_SIZE * entries) {
+            throw new IOException(path + " is truncated or corrupt");
+        }
+        return new Tablebase(buffer, width, height, winLength);
+    }
+
+    /**
+     * Check whether this Tablebase holds positions of a Board's dimensions.
+     *
+     * @param board The Board to check
+     * @return True if positions of the Board can be probed
+     */
+    public boolean covers(Board board) {
+        return board.getWidth() == width && board.getHeight() == height && board.getWinLength() == winLength;
+    }
+
+    /**
+     * Look up the current position of a Board.
+     *
+     * @param board The Board to look up
+     * @return The packed entry of the position, or -1 if the Tablebase does not
+     *         cover the Board or the position cannot be reached in play
+     */
+    public int probe(Board board) {
+        if (!covers(board)) {
+            return -1;
+        }
+        int index = 0;
+        for (int cell = cells - 1; cell >= 0; cell--) {
+            char piece = board.getCharacter(cell / width, cell % width);
+            index = index * 3 + (piece == 'x' ? 1 : piece == 'o' ? 2 : 0);
+        }
+        int offset = HEADER_SIZE + ENTRY_SIZE * index;
+        int packed = buffer.get(offset) & 0xFF;
+        if ((packed & 0x3) == 0) {
+            return -1;
+        }
+        return packed | (buffer.get(offset + 1) & 0xFF) << 8;
+    }
+
+    /**
+     * Get the value of a probed position for the side to move.
+     *
+     * @param entry The entry returned by probe()
+     * @return 1 for a win, 0 for a draw and -1 for a loss
+     */
+    public static int value(int entry) {
+        switch (entry & 0x3) {
+        case WIN:
+            return 1;
+        case LOSS:
+            return -1;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Get the number of moves left in the game with perfect play.
+     *
+     * @param entry The entry returned by probe()
+     * @return The distance to the end of the game
+     */
+    public static int distance(int entry) {
+        return (entry >>> 2) & 0x3F;
+    }
+
+    /**
+     * Get the best move of a probed position.
+     *
+     * @param entry The entry returned by probe()
+     * @return The best move (x * width + y), or -1 if the game is over
+     */
+    public static int bestMove(int entry) {
+        int move = entry >>> 8;
+        return move == NO_MOVE ? -1 : move;
+    }
+}
@@ -0,0 +1,224 @@
+package ai;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import model.Board;
+import model.GameEvent;
+
+/**
+ * This class generates a Tablebase: the perfect-play value, distance to the
+ * end and best move of every position reachable on a small Board.
+ *
+ * Generation runs in two passes. A forward pass plays out every reachable
+ * position on a Board, marks the terminal ones (won or full) and sorts the
+ * rest into layers by the number of pieces placed. A retrograde pass then
+ * walks the layers from the fullest Board back to the empty one, resolving
+ * each position from its already resolved successors.
+ *
+ * Positions are indexed by reading the cells as base 3 digits (0 for empty, 1
+ * for X and 2 for O), so a 3x3 Board needs 3^9 = 19683 entries.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class TablebaseGenerator {
+
+    // Larger Boards do not fit a directly indexed table.
+    private static final int MAX_CELLS = 16;
+
+    private final int width, height, winLength, cells;
+    private final int[] powers;
+    private final byte[] values;
+    private final byte[] distances;
+    private final byte[] moves;
+    private final boolean[] reachable;
+    // Indices of the non-terminal reachable positions, by number of pieces.
+    private final int[][] layers;
+    private final int[] layerSizes;
+
+    /**
+     * Construct a new TablebaseGenerator for the classic 3x3 game.
+     */
+    public TablebaseGenerator() {
+        this(Board.SIZE, Board.SIZE, Board.SIZE);
+    }
+
+    /**
+     * Construct a new TablebaseGenerator.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     */
+    public TablebaseGenerator(int width, int height, int winLength) {
+        cells = width * height;
+        if (cells > MAX_CELLS) {
+            throw new IllegalArgumentException("Tablebases are limited to " + MAX_CELLS + " cells");
+        }
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        powers = new int[cells + 1];
+        powers[0] = 1;
+        for (int i = 1; i <= cells; i++) {
+            powers[i] = powers[i - 1] * 3;
+        }
+        values = new byte[powers[cells]];
+        distances = new byte[powers[cells]];
+        moves = new byte[powers[cells]];
+        reachable = new boolean[powers[cells]];
+        layers = new int[cells + 1][16];
+        layerSizes = new int[cells + 1];
+    }
+
+    /**
+     * Solve every reachable position and write the Tablebase to a file.
+     *
+     * @param path The file to write
+     * @throws IOException If the file could not be written
+     */
+    public void generate(Path path) throws IOException {
+        Board board = new Board(width, height, winLength);
+        visit(board, 0);
+        retrograde();
+
+        ByteBuffer buffer = ByteBuffer.allocate(Tablebase.HEADER_SIZE + Tablebase.ENTRY_SIZE * values.length);
+        buffer.putInt(Tablebase.MAGIC).put((byte) Tablebase.VERSION).put((byte) width).put((byte) height)
+                .put((byte) winLength).putInt(values.length);
+        for (int i = 0; i < values.length; i++) {
+            buffer.put(reachable[i] ? (byte) (values[i] | distances[i] << 2) : 0).put(moves[i]);
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Forward pass: visit every position reachable from the current one.
+     *
+     * @param board The Board holding the position
+     * @param index The index of the position
+     */
+    private void visit(Board board, int index) {
+        if (reachable[index]) {
+            return;
+        }
+        reachable[index] = true;
+        moves[index] = (byte) Tablebase.NO_MOVE;
+        GameEvent.Status status = board.getStatus();
+        if (status == GameEvent.Status.WINNER) {
+            // The last move won, so the side to move has lost
+            values[index] = Tablebase.LOSS;
+            return;
+        }
+        if (status == GameEvent.Status.DRAW) {
+            values[index] = Tablebase.DRAW;
+            return;
+        }
+        int pieces = board.getMoveCount();
+        if (layerSizes[pieces] == layers[pieces].length) {
+            layers[pieces] = Arrays.copyOf(layers[pieces], 2 * layers[pieces].length);
+        }
+        layers[pieces][layerSizes[pieces]++] = index;
+
+        int digit = board.getCurrentTurn() ? 1 : 2;
+        for (int cell = 0; cell < cells; cell++) {
+            if (board.makeMove(cell / width, cell % width)) {
+                visit(board, index + digit * powers[cell]);
+                board.unmakeMove();
+            }
+        }
+    }
+
+    /**
+     * Retrograde pass: resolve the non-terminal positions from the fullest
+     * layer back to the empty Board.
+     */
+    private void retrograde() {
+        for (int pieces = cells - 1; pieces >= 0; pieces--) {
+            // X moves first, so X is to move whenever an even number of pieces is placed
+            int digit = pieces % 2 == 0 ? 1 : 2;
+            for (int i = 0; i < layerSizes[pieces]; i++) {
+                resolve(layers[pieces][i], digit);
+            }
+        }
+    }
+
+    /**
+     * Resolve a position from its successors: win by the fastest route to a
+     * lost successor, otherwise draw, otherwise lose as slowly as possible.
+     *
+     * @param index The index of the position
+     * @param digit The digit of the side to move
+     */
+    private void resolve(int index, int digit) {
+        int bestValue = 0;
+        int bestDistance = 0;
+        int bestMove = Tablebase.NO_MOVE;
+        for (int cell = 0; cell < cells; cell++) {
+            if ((index / powers[cell]) % 3 != 0) {
+                continue;
+            }
+            int child = index + digit * powers[cell];
+            // The successor's value is from the opponent's point of view
+            int value = Tablebase.WIN + Tablebase.LOSS - values[child];
+            int distance = distances[child] + 1;
+            if (rank(value) > rank(bestValue) || (value == bestValue
+                    && (value == Tablebase.WIN ? distance < bestDistance : distance > bestDistance))) {
+                bestValue = value;
+                bestDistance = distance;
+                bestMove = cell;
+            }
+        }
+        values[index] = (byte) bestValue;
+        distances[index] = (byte) bestDistance;
+        moves[index] = (byte) bestMove;
+    }
+
+    /**
+     * Order the stored values from worst to best for the side to move.
+     */
+    private static int rank(int value) {
+        switch (value) {
+        case Tablebase.WIN:
+            return 3;
+        case Tablebase.DRAW:
+            return 2;
+        case Tablebase.LOSS:
+            return 1;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Generate a Tablebase file.
+     *
+     * @param args The file to write, optionally followed by the width, height
+     *             and win length of the Board (3 3 3 by default)
+     * @throws IOException If the file could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1 && args.length != 4) {
+            System.err.println("Usage: TablebaseGenerator <file> [width height winLength]");
+            System.exit(1);
+        }
+        TablebaseGenerator generator = args.length == 4
+                ? new TablebaseGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                        Integer.parseInt(args[3]))
+                : new TablebaseGenerator();
+        long start = System.nanoTime();
+        generator.generate(Paths.get(args[0]));
+        System.out.printf("Wrote %s in %.1f ms%n", args[0], (System.nanoTime() - start) / 1e6);
+    }
+}
@@ -0,0 +1,153 @@
+package ai;
+
+/**
+ * This class represents a fixed-size transposition table used by the search
+ * to remember the results of positions it has already seen.
+ *
+ * Entries are stored in two parallel primitive arrays, so storing and probing
+ * never allocate. Each entry packs its score, best move, search depth, bound
+ * type and the search generation that wrote it into a single long: 32 bits of
+ * score, 17 of move (enough for every cell of the largest Board), 8 of depth,
+ * 2 of bound and 5 of generation. A slot is
+ * replaced when the new result was searched at least as deeply as the one
+ * held, or when the held result was written by an earlier search.
+ *
+ * The table can be shared by several searching threads without locks. Each
+ * slot stores the key XORed with its entry, so a probe only accepts an entry
+ * if the entry and the stored key still XOR back to the probed key. A slot
+ * read while another thread is writing it fails that check and is treated as
+ * a miss, rather than returning a torn entry.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class TranspositionTable {
+
+    /**
+     * Bound type of an exact score.
+     */
+    public static final int EXACT = 1;
+    /**
+     * Bound type of a score that is at least the stored value.
+     */
+    public static final int LOWER = 2;
+    /**
+     * Bound type of a score that is at most the stored value.
+     */
+    public static final int UPPER = 3;
+
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+
+    /**
+     * Construct a new TranspositionTable.
+     *
+     * @param sizeLog2 The base 2 logarithm of the number of entries (e.g. 20 for
+     *                 about a million entries, 16 MB)
+     */
+    public TranspositionTable(int sizeLog2) {
+        if (sizeLog2 < 1 || sizeLog2 > 30) {
+            throw new IllegalArgumentException("Table size must be between 2^1 and 2^30 entries");
+        }
+        keys = new long[1 << sizeLog2];
+        entries = new long[1 << sizeLog2];
+        mask = (1 << sizeLog2) - 1;
+    }
+
+    /**
+     * Start a new search. Entries from earlier searches remain usable, but are
+     * always replaced by new results.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0x1F;
+    }
+
+    /**
+     * Remove every entry from the table.
+     */
+    public void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = 0L;
+            entries[i] = 0L;
+        }
+    }
+
+    /**
+     * Look up a position.
+     *
+     * @param key The hash of the position
+     * @return The packed entry of the position, or 0 if it is not in the table
+     */
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = entries[index];
+        return (keys[index] ^ entry) == key ? entry : 0L;
+    }
+
+    /**
+     * Store the result of searching a position.
+     *
+     * @param key   The hash of the position
+     * @param score The score of the position for the side to move
+     * @param move  The best move found, or -1 if there is none
+     * @param depth The depth the position was searched to (0 to 255)
+     * @param bound EXACT, LOWER or UPPER
+     */
+    public void store(long key, int score, int move, int depth, int bound) {
+        int index = (int) key & mask;
+        long held = entries[index];
+        if (held != 0L && (keys[index] ^ held) != key && generation(held) == generation && depth(held) > depth) {
+            return;
+        }
+        long entry = (score & 0xFFFFFFFFL) | ((long) ((move + 1) & 0x1FFFF) << 32)
+                | ((long) (depth & 0xFF) << 49) | ((long) bound << 57) | ((long) generation << 59);
+        entries[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    /**
+     * Get the score of a packed entry.
+     *
+     * @param entry The entry returned by probe()
+     * @return The stored score
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * Get the best move of a packed entry.
+     *
+     * @param entry The entry returned by probe()
+     * @return The stored move, or -1 if there is none
+     */
+    public static int move(long entry) {
+        return (int) ((entry >>> 32) & 0x1FFFF) - 1;
+    }
+
+    /**
+     * Get the search depth of a packed entry.
+     *
+     * @param entry The entry returned by probe()
+     * @return The stored depth
+     */
+    public static int depth(long entry) {
+        return (int) ((entry >>> 49) & 0xFF);
+    }
+
+    /**
+     * Get the bound type of a packed entry.
+     *
+     * @param entry The entry returned by probe()
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry) {
+        return (int) ((entry >>> 57) & 0x3);
+    }
+
+    private static int generation(long entry) {
+        return (int) (entry >>> 59);
+    }
+}
@@ -1,39 +1,290 @@
 package controller;
 
+import java.util.concurrent.Executor;
+
+import ai.ComputerPlayer;
+import ai.MonteCarloPlayer;
+import ai.OpeningBook;
+import ai.Tablebase;
 import model.Board;
+import model.GameEvent;
 
 /**
  * This class represents the game controller for Tic Tac Toe. It is the main
  * component of the controller in the MVC pattern.
- * 
+ *
  * Although it could be argued that a game as simple as Tic Tac Toe does not
  * need a controller, the controller serves to decouple the model and view. This
  * in turn leads to less smelly code, and an overall more cohesive design.
- * 
+ *
+ * The controller can also seat a ComputerPlayer as X, as O, or as both. Clicks
+ * made while it is the computer's turn are ignored, and the computer replies as
+ * soon as it is its turn to move. On Boards with more than MONTE_CARLO_CELLS
+ * cells, where the ComputerPlayer's exhaustive search cannot see far enough,
+ * a MonteCarloPlayer is seated instead. Either answers from an OpeningBook,
+ * if one has been set, before searching.
+ *
+ * By default the computer searches on the thread that called the controller,
+ * which does not return until the computer has moved; with the computer
+ * seated as both players, until the game is over. A GUI should instead set
+ * search executors, so that searches run in the background and each move is
+ * made back on the event dispatch thread. The controller must then only be
+ * called from that thread. A search whose position has changed by the time
+ * it finishes, because a move was undone or the game was reset or reloaded,
+ * is thrown away.
+ *
  * @author John Breton
  * @version December 15th, 2019
  */
 public class GameController {
 
+    /**
+     * Boards with more cells than this are played by a MonteCarloPlayer.
+     */
+    public static final int MONTE_CARLO_CELLS = 100;
+
     private final Board board;
+    private ComputerPlayer computer;
+    private MonteCarloPlayer monteCarlo;
+    private Tablebase tablebase;
+    private OpeningBook book;
+    private boolean computerX, computerO;
+    // Runs the computer's searches, or null to search on the calling thread.
+    private Executor searchExecutor;
+    // Makes the moves found by searches run on the searchExecutor.
+    private Executor moveExecutor;
+    // Counts the changes made through the controller, so that a search
+    // started before the latest change can be recognised and thrown away.
+    private int generation;
 
     /**
      * Construct a new GameController.
-     * 
+     *
      * @param board The Board this GameController will be broadcasting to.
      */
     public GameController(Board board) {
         this.board = board;
     }
 
+    /**
+     * Seat the computer as either, both or neither of the players. If it is
+     * now the computer's turn, it moves immediately.
+     *
+     * @param asX True if the computer should play X
+     * @param asO True if the computer should play O
+     */
+    public void seatComputer(boolean asX, boolean asO) {
+        computerX = asX;
+        computerO = asO;
+        if ((asX || asO) && computer == null && monteCarlo == null) {
+            if (board.getWidth() * board.getHeight() > MONTE_CARLO_CELLS) {
+                monteCarlo = new MonteCarloPlayer();
+                monteCarlo.setOpeningBook(book);
+            } else {
+                computer = new ComputerPlayer();
+                computer.setTablebase(tablebase);
+                computer.setOpeningBook(book);
+            }
+        }
+        playComputerTurns();
+    }
+
+    /**
+     * Use a particular ComputerPlayer whenever the computer is seated, rather
+     * than the default one, which searches for up to a second per move with a
+     * table of about a million entries.
+     *
+     * @param computer The ComputerPlayer to move with
+     */
+    public void setComputerPlayer(ComputerPlayer computer) {
+        this.computer = computer;
+        this.monteCarlo = null;
+        computer.setTablebase(tablebase);
+        computer.setOpeningBook(book);
+    }
+
+    /**
+     * Use a MonteCarloPlayer whenever the computer is seated, whatever the size
+     * of the Board.
+     *
+     * @param monteCarlo The MonteCarloPlayer to move with
+     */
+    public void setMonteCarloPlayer(MonteCarloPlayer monteCarlo) {
+        this.monteCarlo = monteCarlo;
+        monteCarlo.setOpeningBook(book);
+    }
+
+    /**
+     * Run the computer's searches on one executor and make its moves on
+     * another, so that the thread calling the controller is never blocked by
+     * a search. Searches must not overlap, so the searchExecutor should run
+     * one task at a time.
+     *
+     * @param searchExecutor The executor to search on, or null to search on
+     *                       the calling thread
+     * @param moveExecutor   The executor to make moves on, which must run
+     *                       tasks on the thread that calls the controller
+     */
+    public void setSearchExecutors(Executor searchExecutor, Executor moveExecutor) {
+        if ((searchExecutor == null) != (moveExecutor == null)) {
+            throw new IllegalArgumentException("Both executors must be set, or neither");
+        }
+        this.searchExecutor = searchExecutor;
+        this.moveExecutor = moveExecutor;
+    }
+
+    /**
+     * Let the computer answer positions from a Tablebase instead of searching.
+     *
+     * @param tablebase The Tablebase to use, or null to always search
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        if (computer != null) {
+            computer.setTablebase(tablebase);
+        }
+    }
+
+    /**
+     * Let the computer answer the positions of an OpeningBook instead of
+     * searching.
+     *
+     * @param book The OpeningBook to use, or null to always search
+     */
+    public void setOpeningBook(OpeningBook book) {
+        this.book = book;
+        if (computer != null) {
+            computer.setOpeningBook(book);
+        }
+        if (monteCarlo != null) {
+            monteCarlo.setOpeningBook(book);
+        }
+    }
+
+    /**
+     * Get the OpeningBook the computer answers positions from.
+     *
+     * @return The OpeningBook, or null if the computer always searches
+     */
+    public OpeningBook getOpeningBook() {
+        return book;
+    }
+
+    /**
+     * Get the Tablebase the computer answers positions from.
+     *
+     * @return The Tablebase, or null if the computer always searches
+     */
+    public Tablebase getTablebase() {
+        return tablebase;
+    }
+
+    /**
+     * Check whether the computer plays X.
+     *
+     * @return True if the computer plays X
+     */
+    public boolean isComputerX() {
+        return computerX;
+    }
+
+    /**
+     * Check whether the computer plays O.
+     *
+     * @return True if the computer plays O
+     */
+    public boolean isComputerO() {
+        return computerO;
+    }
+
     /**
      * Register when a grid button has been clicked. Passes the information along to
      * the Board to make a move at the passed coordinates.
-     * 
+     *
      * @param x The x coordinate of the button that has been clicked.
      * @param y The y coordinate of the button that has been clicked.
      */
     public void registerClick(int x, int y) {
-        board.makeMove(x, y);
+        if (isComputerTurn()) {
+            return;
+        }
+        if (board.makeMove(x, y)) {
+            playComputerTurns();
+        }
+    }
+
+    /**
+     * Start a new game on the Board. If the computer plays X, it makes the first
+     * move.
+     */
+    public void resetGame() {
+        board.resetBoard();
+        playComputerTurns();
+    }
+
+    /**
+     * Take back the last move. When playing against the computer, its reply is
+     * taken back as well so that it is the human player's turn again.
+     */
+    public void undo() {
+        if (board.unmakeMove()) {
+            while (isComputerTurn() && board.unmakeMove()) {
+                // Keep taking back moves until a human player is to move
+            }
+            playComputerTurns();
+        }
+    }
+
+    /**
+     * Replay the last move taken back. When playing against the computer, its
+     * reply is replayed as well.
+     */
+    public void redo() {
+        if (board.redoMove()) {
+            while (isComputerTurn() && board.redoMove()) {
+                // Keep replaying moves until a human player is to move
+            }
+            playComputerTurns();
+        }
+    }
+
+    /**
+     * Let the computer move for as long as it is its turn and the game is not
+     * over. With search executors set, start a search in the background and
+     * return; the search's move is made later, and plays on from there.
+     */
+    private void playComputerTurns() {
+        generation++;
+        if (searchExecutor == null) {
+            while (isComputerTurn() && board.getStatus() == GameEvent.Status.NO_WINNER) {
+                int cell = monteCarlo != null ? monteCarlo.chooseMove(board) : computer.chooseMove(board);
+                if (cell < 0 || !board.makeMove(cell / board.getWidth(), cell % board.getWidth())) {
+                    return;
+                }
+            }
+            return;
+        }
+        if (!isComputerTurn() || board.getStatus() != GameEvent.Status.NO_WINNER) {
+            return;
+        }
+        // The search reads a copy, so the Board is free to change meanwhile
+        Board position = new Board(board);
+        ComputerPlayer searcher = computer;
+        MonteCarloPlayer treeSearcher = monteCarlo;
+        Executor mover = moveExecutor;
+        int started = generation;
+        searchExecutor.execute(() -> {
+            int cell = treeSearcher != null ? treeSearcher.chooseMove(position) : searcher.chooseMove(position);
+            mover.execute(() -> {
+                if (started == generation && cell >= 0
+                        && board.makeMove(cell / board.getWidth(), cell % board.getWidth())) {
+                    playComputerTurns();
+                }
+            });
+        });
+    }
+
+    private boolean isComputerTurn() {
+        return board.getCurrentTurn() ? computerX : computerO;
     }
 }
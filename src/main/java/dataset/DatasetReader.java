@@ -0,0 +1,327 @@
+package dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * This class reads back a dataset file written by a DatasetWriter, one record
+ * at a time.
+ *
+ * The file is read front to back through a FileChannel in large sequential
+ * reads, and each block is inflated into a buffer that is reused for the next,
+ * so a file of any number of records is read in constant memory without
+ * allocating per record. The reader is a cursor: next() moves to the next
+ * record, whose fields are then read with the getters.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class DatasetReader implements Closeable {
+
+    // The size of each read from the file.
+    private static final int READ_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final int width, height, winLength;
+    private final int positionBytes, recordBytes, blockRecords;
+    private final Inflater inflater = new Inflater();
+    // Bytes read from the file but not yet inflated.
+    private ByteBuffer input = ByteBuffer.allocate(READ_BYTES);
+    // The records of the current block.
+    private final byte[] block;
+    private int blockCount, index = -1, offset;
+    private long records;
+    private boolean endOfFile;
+
+    /**
+     * Open a dataset file.
+     *
+     * @param path The file to read
+     * @throws IOException If the file could not be opened or is not a dataset
+     */
+    public DatasetReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            input.limit(0);
+            if (!fill(DatasetWriter.HEADER_BYTES)) {
+                throw new StreamCorruptedException(path + " is not a dataset");
+            }
+            if (input.getInt() != DatasetWriter.MAGIC || input.getInt() != DatasetWriter.VERSION) {
+                throw new StreamCorruptedException(path + " is not a dataset");
+            }
+            width = input.getInt();
+            height = input.getInt();
+            winLength = input.getInt();
+            recordBytes = input.getInt();
+            blockRecords = input.getInt();
+            if (width < 1 || height < 1 || blockRecords < 1
+                    || recordBytes != DatasetWriter.recordBytes(width * height)) {
+                throw new StreamCorruptedException(path + " has an invalid header");
+            }
+            positionBytes = (2 * width * height + 7) / 8;
+            block = new byte[blockRecords * recordBytes];
+        } catch (IOException ex) {
+            close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Make sure the input holds at least the given number of unread bytes,
+     * reading more of the file if needed.
+     *
+     * @param bytes The number of bytes needed
+     * @return False if the file ends first
+     * @throws IOException If the file could not be read
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (input.remaining() >= bytes) {
+            return true;
+        }
+        if (bytes > input.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(bytes, 2 * input.capacity()));
+            larger.put(input);
+            input = larger;
+        } else {
+            input.compact();
+        }
+        while (input.position() < bytes && !endOfFile) {
+            if (channel.read(input) < 0) {
+                endOfFile = true;
+            }
+        }
+        input.flip();
+        return input.remaining() >= bytes;
+    }
+
+    /**
+     * Move to the next record.
+     *
+     * @return False if there are no more records
+     * @throws IOException If the file could not be read or is corrupt
+     */
+    public boolean next() throws IOException {
+        if (++index < blockCount) {
+            offset += recordBytes;
+            return true;
+        }
+        if (!fill(DatasetWriter.BLOCK_HEADER_BYTES)) {
+            if (input.hasRemaining()) {
+                throw new StreamCorruptedException("The dataset ends part way through a block header");
+            }
+            index = blockCount;
+            return false;
+        }
+        int count = input.getInt();
+        int length = input.getInt();
+        if (count < 1 || count > blockRecords || length < 0) {
+            throw new StreamCorruptedException("Invalid block of " + count + " records in " + length + " bytes");
+        }
+        if (!fill(length)) {
+            throw new StreamCorruptedException("The dataset ends part way through a block");
+        }
+        inflater.reset();
+        inflater.setInput(input.array(), input.position(), length);
+        int expected = count * recordBytes;
+        try {
+            int inflated = 0;
+            while (inflated < expected && !inflater.finished()) {
+                int n = inflater.inflate(block, inflated, expected - inflated);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += n;
+            }
+            if (inflated != expected) {
+                throw new StreamCorruptedException("A block holds " + inflated + " bytes instead of " + expected);
+            }
+        } catch (DataFormatException ex) {
+            throw new StreamCorruptedException("A block could not be inflated: " + ex.getMessage());
+        }
+        input.position(input.position() + length);
+        blockCount = count;
+        records += count;
+        index = 0;
+        offset = 0;
+        return true;
+    }
+
+    private void checkRecord() {
+        if (index < 0 || index >= blockCount) {
+            throw new IllegalStateException("There is no current record");
+        }
+    }
+
+    /**
+     * Get the piece on a cell of the current record's position.
+     *
+     * @param cell The cell (x * width + y)
+     * @return 0 for empty, 1 for X and 2 for O
+     */
+    public int getPiece(int cell) {
+        checkRecord();
+        if (cell < 0 || cell >= width * height) {
+            throw new IndexOutOfBoundsException("Cell " + cell + " is not on a " + height + "x" + width + " Board");
+        }
+        return (block[offset + (cell >>> 2)] >>> ((cell & 3) << 1)) & 3;
+    }
+
+    /**
+     * Return the character at a position of the current record's Board.
+     *
+     * @param x The x coordinate to check
+     * @param y The y coordinate to check
+     * @return 'x', 'o', or ' ' if the cell is empty
+     */
+    public char getCharacter(int x, int y) {
+        int piece = getPiece(x * width + y);
+        return piece == 1 ? 'x' : piece == 2 ? 'o' : ' ';
+    }
+
+    /**
+     * Copy the packed position of the current record, 2 bits a cell with cell
+     * 0 in the low bits of the first byte.
+     *
+     * @param destination The array to copy into
+     * @param start       Where in the array to copy to
+     */
+    public void copyPosition(byte[] destination, int start) {
+        checkRecord();
+        System.arraycopy(block, offset, destination, start, positionBytes);
+    }
+
+    /**
+     * Get the number of pieces in the current record's position.
+     *
+     * @return The number of moves made before the record's move
+     */
+    public int getMoveCount() {
+        checkRecord();
+        int count = 0;
+        for (int i = offset; i < offset + positionBytes; i++) {
+            // Count the 2 bit cells that are not 0
+            count += Integer.bitCount((block[i] | block[i] >>> 1) & 0x55);
+        }
+        return count;
+    }
+
+    /**
+     * Get the side to move in the current record's position.
+     *
+     * @return True for X, false for O
+     */
+    public boolean getCurrentTurn() {
+        checkRecord();
+        return (block[offset + positionBytes] & 1) != 0;
+    }
+
+    /**
+     * Get the final outcome of the current record's game.
+     *
+     * @return 'x' or 'o' for the winner, ' ' for a draw
+     */
+    public char getWinner() {
+        checkRecord();
+        int outcome = (block[offset + positionBytes] >>> 1) & 3;
+        return outcome == DatasetWriter.X_WON ? 'x' : outcome == DatasetWriter.O_WON ? 'o' : ' ';
+    }
+
+    /**
+     * Get the move played from the current record's position.
+     *
+     * @return The cell of the move (x * width + y)
+     */
+    public int getMove() {
+        checkRecord();
+        int i = offset + positionBytes + 1;
+        return (block[i] & 0xFF) << 24 | (block[i + 1] & 0xFF) << 16 | (block[i + 2] & 0xFF) << 8
+                | (block[i + 3] & 0xFF);
+    }
+
+    /**
+     * Get the number of records read so far, counting the whole of the current
+     * block.
+     *
+     * @return The number of records in the blocks read
+     */
+    public long getRecordsRead() {
+        return records;
+    }
+
+    /**
+     * Get the number of columns on the dataset's Boards.
+     *
+     * @return The width
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the number of rows on the dataset's Boards.
+     *
+     * @return The height
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of pieces in a row needed to win the dataset's games.
+     *
+     * @return The win length
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Get the number of packed bytes in a position.
+     *
+     * @return The size of a position
+     */
+    public int getPositionBytes() {
+        return positionBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+
+    /**
+     * Read a dataset file and report how many records it holds, their
+     * outcomes and the rate they were read at.
+     *
+     * @param args The dataset file
+     * @throws IOException If the file could not be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: DatasetReader <file>");
+            System.exit(1);
+        }
+        long[] outcomes = new long[3];
+        long start = System.nanoTime();
+        try (DatasetReader reader = new DatasetReader(Paths.get(args[0]))) {
+            while (reader.next()) {
+                char winner = reader.getWinner();
+                outcomes[winner == 'x' ? 0 : winner == 'o' ? 1 : 2]++;
+            }
+            long records = reader.getRecordsRead();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d records of %dx%d games (k=%d): X won %d, O won %d, drawn %d; "
+                    + "read in %.3f s, %.0f records/s%n", records, reader.getHeight(), reader.getWidth(),
+                    reader.getWinLength(), outcomes[0], outcomes[1], outcomes[2], seconds, records / seconds);
+        }
+    }
+}
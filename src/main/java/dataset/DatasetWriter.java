@@ -0,0 +1,399 @@
+package dataset;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+import metrics.Metrics;
+import model.Board;
+import model.GameEvent;
+
+/**
+ * This class streams the positions of finished games to a dataset file, for
+ * training position evaluators. Every position of a game becomes one record
+ * holding the position, the side to move, the final outcome of the game and
+ * the move that was played.
+ *
+ * Records are fixed width, so a record's fields are found by offset alone:
+ * the position packed at 2 bits a cell (0 for empty, 1 for X, 2 for O), a
+ * flag byte (bit 0 set when X is to move, bits 1 and 2 holding the outcome: 0
+ * for a draw, 1 for an X win and 2 for an O win) and the move as a big-endian
+ * int. After a header, the file is a series of blocks, each a record count and
+ * a compressed length followed by that many records compressed with Deflate.
+ *
+ * Threads producing games claim a run of record slots in the block being
+ * filled, which with taking a new block is all that is done under the lock,
+ * and encode their records into those slots outside it, so producers encode
+ * side by side and one that stalls holds up no other. The last producer to
+ * finish with a full block hands it to a background thread, which compresses
+ * and writes it through a FileChannel, so the producers never wait on
+ * compression or the disk. The records of a game stay in order, but may be
+ * split between blocks, and blocks may be written in any order. Memory is
+ * bounded by a fixed pool of blocks: if the disk falls behind for long enough
+ * that every block is full, producers wait for one to be written.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class DatasetWriter implements Closeable {
+
+    // The first int of a dataset file.
+    static final int MAGIC = 0x54545444;
+    static final int VERSION = 1;
+    // The size of the file header and of a block header, in bytes.
+    static final int HEADER_BYTES = 7 * 4;
+    static final int BLOCK_HEADER_BYTES = 2 * 4;
+    // The outcomes held in bits 1 and 2 of the flag byte.
+    static final int DRAW = 0, X_WON = 1, O_WON = 2;
+    // The uncompressed size of a block unless told otherwise.
+    private static final int DEFAULT_BLOCK_BYTES = 1 << 20;
+    // Handed to the writer thread to make it stop.
+    private static final Block END = new Block(0);
+
+    private final int width, height, winLength;
+    private final int positionBytes, recordBytes, blockRecords, blocks;
+    private final FileChannel channel;
+    private final BlockingQueue<Block> free;
+    private final BlockingQueue<Block> full;
+    private final Thread writer;
+    // The block slots are claimed from, guarded by this.
+    private Block current;
+    private boolean closed;
+    private long games, records, stallNanos;
+    private volatile IOException failure;
+
+    /**
+     * Create a dataset file for games on Boards of the given dimensions, with
+     * four blocks of about a megabyte.
+     *
+     * @param path      The file to write, replaced if it exists
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @throws IOException If the file could not be created
+     */
+    public DatasetWriter(Path path, int width, int height, int winLength) throws IOException {
+        this(path, width, height, winLength, Math.max(1, DEFAULT_BLOCK_BYTES / recordBytes(width * height)), 4);
+    }
+
+    /**
+     * Create a dataset file for games on Boards of the given dimensions.
+     *
+     * @param path         The file to write, replaced if it exists
+     * @param width        The number of columns on the Board
+     * @param height       The number of rows on the Board
+     * @param winLength    The number of pieces in a row needed to win
+     * @param blockRecords The number of records compressed together
+     * @param blocks       The number of blocks that can be filled or waiting
+     *                     to be written at once, at least 2
+     * @throws IOException If the file could not be created
+     */
+    public DatasetWriter(Path path, int width, int height, int winLength, int blockRecords, int blocks)
+            throws IOException {
+        if (blockRecords < 1 || blocks < 2) {
+            throw new IllegalArgumentException("A dataset needs at least two blocks of at least one record");
+        }
+        // Fail now rather than on the first game if the dimensions are invalid
+        new Board(width, height, winLength);
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        positionBytes = (2 * width * height + 7) / 8;
+        recordBytes = recordBytes(width * height);
+        this.blockRecords = blockRecords;
+        this.blocks = blocks;
+        free = new ArrayBlockingQueue<>(blocks);
+        full = new ArrayBlockingQueue<>(blocks + 1);
+        for (int i = 1; i < blocks; i++) {
+            free.add(new Block(blockRecords * recordBytes));
+        }
+        current = new Block(blockRecords * recordBytes);
+        current.open();
+
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height).putInt(winLength).putInt(recordBytes)
+                    .putInt(blockRecords).flip();
+            writeFully(header);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+        writer = new Thread(this::writeBlocks, "dataset-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Get the size of a record for a Board with the given number of cells.
+     */
+    static int recordBytes(int cells) {
+        return (2 * cells + 7) / 8 + 1 + 4;
+    }
+
+    /**
+     * Add a record for every position of a finished game. It is safe to call
+     * from any number of threads.
+     *
+     * @param board A Board whose game is over, played from an empty Board
+     * @throws UncheckedIOException If an earlier block could not be written
+     */
+    public void writeGame(Board board) {
+        if (board.getWidth() != width || board.getHeight() != height || board.getWinLength() != winLength) {
+            throw new IllegalArgumentException("The Board does not match the dimensions of the dataset");
+        }
+        if (board.getStatus() == GameEvent.Status.NO_WINNER) {
+            throw new IllegalArgumentException("The game is not over");
+        }
+        int moves = board.getHistorySize();
+        if (moves != board.getMoveCount()) {
+            throw new IllegalArgumentException("Only games played from an empty Board can be written");
+        }
+        char winner = board.getWinner();
+        int outcome = winner == 'x' ? X_WON : winner == 'o' ? O_WON : DRAW;
+        byte[] position = new byte[positionBytes];
+        int i = 0;
+        boolean first = true;
+        while (i < moves) {
+            Block block;
+            int slot, claimed;
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("The dataset has been closed");
+                }
+                checkFailure();
+                if (current.count == blockRecords) {
+                    nextBlock();
+                }
+                block = current;
+                slot = block.count;
+                claimed = Math.min(moves - i, blockRecords - slot);
+                block.count += claimed;
+                block.writers.incrementAndGet();
+                if (first) {
+                    games++;
+                    first = false;
+                }
+                records += claimed;
+            }
+            byte[] data = block.data;
+            int offset = slot * recordBytes;
+            for (int end = i + claimed; i < end; i++) {
+                boolean xToMove = (i & 1) == 0;
+                int move = board.getHistoryMove(i);
+                System.arraycopy(position, 0, data, offset, positionBytes);
+                offset += positionBytes;
+                data[offset++] = (byte) ((xToMove ? 1 : 0) | outcome << 1);
+                data[offset++] = (byte) (move >>> 24);
+                data[offset++] = (byte) (move >>> 16);
+                data[offset++] = (byte) (move >>> 8);
+                data[offset++] = (byte) move;
+                position[move >>> 2] |= (xToMove ? 1 : 2) << ((move & 3) << 1);
+            }
+            release(block);
+        }
+    }
+
+    /**
+     * Retire the full current block and take an empty one, waiting for one to
+     * be written if there is none. Producers still encoding into the full
+     * block hand it to the writer thread without the lock, so they are never
+     * held up by the wait.
+     */
+    private void nextBlock() {
+        release(current);
+        Block next = free.poll();
+        if (next == null) {
+            long start = System.nanoTime();
+            next = take();
+            stallNanos += System.nanoTime() - start;
+        }
+        next.open();
+        current = next;
+    }
+
+    /**
+     * Let go of a block, handing it to the writer thread if it was the last
+     * hold on it: a producer's claim, or the block being the current one.
+     */
+    private void release(Block block) {
+        if (block.writers.decrementAndGet() == 0) {
+            full.add(block);
+        }
+    }
+
+    /**
+     * Take a written block, waiting for the writer thread if need be.
+     */
+    private Block take() {
+        Block next = null;
+        boolean interrupted = false;
+        while (next == null) {
+            try {
+                next = free.take();
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return next;
+    }
+
+    private void checkFailure() {
+        IOException ex = failure;
+        if (ex != null) {
+            throw new UncheckedIOException("Could not write to the dataset", ex);
+        }
+    }
+
+    /**
+     * Compress and write blocks until told to stop. Once writing fails, blocks
+     * are only handed back, so that producers are not left waiting.
+     */
+    private void writeBlocks() {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        byte[] compressed = new byte[blockRecords * recordBytes / 2 + 64];
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+        try {
+            while (true) {
+                Block block = full.take();
+                if (block == END) {
+                    break;
+                }
+                if (failure == null && block.count > 0) {
+                    try {
+                        long start = System.nanoTime();
+                        deflater.setInput(block.data, 0, block.count * recordBytes);
+                        deflater.finish();
+                        int length = 0;
+                        while (!deflater.finished()) {
+                            if (length == compressed.length) {
+                                compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+                            }
+                            length += deflater.deflate(compressed, length, compressed.length - length);
+                        }
+                        deflater.reset();
+                        blockHeader.clear();
+                        blockHeader.putInt(block.count).putInt(length).flip();
+                        writeFully(blockHeader);
+                        writeFully(ByteBuffer.wrap(compressed, 0, length));
+                        Metrics metrics = Metrics.get();
+                        if (metrics != null) {
+                            metrics.persisted("dataset", BLOCK_HEADER_BYTES + length, System.nanoTime() - start);
+                        }
+                    } catch (IOException ex) {
+                        failure = ex;
+                    }
+                }
+                free.add(block);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Get the number of games written.
+     *
+     * @return The number of games passed to writeGame()
+     */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * Get the number of records written.
+     *
+     * @return The number of positions passed to writeGame()
+     */
+    public synchronized long getRecords() {
+        return records;
+    }
+
+    /**
+     * Get how long producers have waited for the writer thread, which is only
+     * the case when the disk cannot keep up.
+     *
+     * @return The time spent waiting for a free block, in nanoseconds
+     */
+    public synchronized long getStallNanos() {
+        return stallNanos;
+    }
+
+    /**
+     * Write the last partial block, wait for the writer thread to finish and
+     * close the file. Games still being written by other threads are finished
+     * first.
+     *
+     * @throws IOException If a block could not be written
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        release(current);
+        // Every block comes back once its producers are done and it is written
+        for (int i = 0; i < blocks; i++) {
+            take();
+        }
+        full.add(END);
+        try {
+            writer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the dataset", ex);
+        } finally {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * A buffer of uncompressed records.
+     */
+    private static final class Block {
+        private final byte[] data;
+        // The number of record slots claimed, guarded by the DatasetWriter.
+        private int count;
+        // The producers still encoding into the block, plus one while it is
+        // the current block.
+        private final AtomicInteger writers = new AtomicInteger();
+
+        private Block(int size) {
+            data = new byte[size];
+        }
+
+        /**
+         * Make the block the current one, with no records.
+         */
+        private void open() {
+            count = 0;
+            writers.set(1);
+        }
+    }
+}
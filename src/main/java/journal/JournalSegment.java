@@ -0,0 +1,190 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class represents one memory-mapped file of a MoveJournal, holding a
+ * fixed number of 16 byte records.
+ *
+ * Writers claim a record with a single atomic increment and write it with
+ * absolute puts into the mapping, so any number of threads append without
+ * locking. A record is 4 ints: the session id, the record type with three
+ * argument bytes, a value, and a check word computed from the other three. A
+ * record that was never written, or only partly written when the machine
+ * went down, fails the check, and replay skips it. Records are fixed width,
+ * so the records of other sessions written after a torn one are still found;
+ * the MoveJournal numbers each session's records so that the session that
+ * lost one can be told apart.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+final class JournalSegment {
+
+    static final int RECORD_SIZE = 16;
+
+    final int index;
+    final Path path;
+    private final int capacity;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    // The number of records handed out, which may overshoot the capacity.
+    private final AtomicInteger claimed = new AtomicInteger();
+    // The number of records fully written.
+    private final AtomicInteger written = new AtomicInteger();
+    // The number of records handed out before the segment was sealed, or -1.
+    private volatile int limit = -1;
+    private volatile boolean dirty;
+    // The number of records already written through to the disk.
+    private int forced;
+
+    private JournalSegment(int index, Path path, int capacity, FileChannel channel, MappedByteBuffer buffer) {
+        this.index = index;
+        this.path = path;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Create and map a new, zeroed segment file.
+     *
+     * @param path     The file to create
+     * @param index    The position of the segment in the journal
+     * @param capacity The number of records it holds
+     * @return The segment
+     * @throws IOException If the file could not be created or mapped
+     */
+    static JournalSegment create(Path path, int index, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) capacity * RECORD_SIZE);
+            return new JournalSegment(index, path, capacity, channel, buffer);
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Append a record, unless the segment is full or sealed.
+     *
+     * @return True if the record was appended
+     */
+    boolean append(int session, int type, int a, int b, int c, int value) {
+        int slot = claimed.getAndIncrement();
+        if (slot >= capacity) {
+            return false;
+        }
+        int header = type << 24 | (a & 0xFF) << 16 | (b & 0xFF) << 8 | (c & 0xFF);
+        int offset = slot * RECORD_SIZE;
+        buffer.putInt(offset, session);
+        buffer.putInt(offset + 4, header);
+        buffer.putInt(offset + 8, value);
+        // The check is written last, so a record is only valid once it is whole
+        buffer.putInt(offset + 12, check(session, header, value));
+        dirty = true;
+        written.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Stop handing out records, so writers move on to the next segment.
+     */
+    void seal() {
+        int handedOut = claimed.getAndAdd(capacity);
+        limit = Math.min(handedOut, capacity);
+    }
+
+    /**
+     * Check whether the segment is sealed and every record handed out has been
+     * written, so it can be read back.
+     *
+     * @return True if the segment will not change again
+     */
+    boolean isComplete() {
+        int sealedAt = limit;
+        return sealedAt >= 0 && written.get() >= sealedAt;
+    }
+
+    /**
+     * Write the records appended so far through to the disk, if there are any
+     * new ones.
+     *
+     * @return The number of bytes of new records
+     */
+    long force() {
+        if (!dirty) {
+            return 0L;
+        }
+        dirty = false;
+        int count = written.get();
+        buffer.force();
+        long bytes = (long) (count - forced) * RECORD_SIZE;
+        forced = count;
+        return bytes;
+    }
+
+    void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * This interface represents the consumer of records read back from a
+     * segment file.
+     */
+    interface RecordHandler {
+        void record(int session, int type, int a, int b, int c, int value);
+    }
+
+    /**
+     * Read back the valid records of a segment file, skipping the slots that
+     * were never written or were torn by a crash.
+     *
+     * @param path    The segment file
+     * @param handler The consumer of the records
+     * @return The number of valid records read
+     * @throws IOException If the file could not be read
+     */
+    static int replay(Path path, RecordHandler handler) throws IOException {
+        ByteBuffer records;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int count = 0;
+        for (int offset = 0; offset + RECORD_SIZE <= records.limit(); offset += RECORD_SIZE) {
+            int session = records.getInt(offset);
+            int header = records.getInt(offset + 4);
+            int value = records.getInt(offset + 8);
+            if (records.getInt(offset + 12) != check(session, header, value)) {
+                // Free space, or a record torn by a crash. Records are written
+                // in any order by many threads, so valid ones may still follow
+                continue;
+            }
+            handler.record(session, header >>> 24, (header >>> 16) & 0xFF, (header >>> 8) & 0xFF, header & 0xFF,
+                    value);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Compute the check word of a record. It is never 0, so zeroed space never
+     * passes for a record.
+     */
+    private static int check(int session, int header, int value) {
+        long z = ((long) session << 32 | (header & 0xFFFFFFFFL)) ^ (value * 0x9E3779B97F4A7C15L);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        int check = (int) (z ^ (z >>> 31));
+        return check == 0 ? 1 : check;
+    }
+}
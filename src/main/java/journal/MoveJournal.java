@@ -0,0 +1,559 @@
+package journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import metrics.Metrics;
+import model.Board;
+import model.BoardCodec;
+import model.MoveRecorder;
+
+/**
+ * This class represents an append-only journal of the games in progress, from
+ * which every game can be rebuilt after the JVM or the machine goes down.
+ *
+ * Each game is a session with an id. Its Board has a MoveRecorder that
+ * appends a 16 byte record to the journal for every move made, taken back or
+ * replayed, so nothing but the move itself is written on the thread making
+ * it. The journal is a series of memory-mapped JournalSegment files that any
+ * number of threads append to without locks, which survive a crash of the JVM
+ * as soon as they are written. A background thread group-commits them to the
+ * disk every few milliseconds, so that they also survive a crash of the
+ * machine; flush() commits straight away.
+ *
+ * Periodically the full segments are folded into a snapshot file holding
+ * every open session saved with the BoardCodec, and deleted. Snapshots are
+ * built by replaying the segments onto the previous snapshot rather than by
+ * reading the live Boards, so they never race with the threads playing. On
+ * opening, the journal rebuilds every session from the latest snapshot and the
+ * segments written after it.
+ *
+ * Every record of a session after the one that opens it carries the session's
+ * next sequence number in its three argument bytes. Pages of a mapped file can
+ * reach the disk in any order, so a crash can lose one record of a session
+ * and keep a later one. Replay stops applying a session's records at the first
+ * gap in its sequence, or at the first move its Board rejects, and keeps the
+ * session at the last position it reached in order; getDamagedSessions() lists
+ * the sessions that were stopped short.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MoveJournal implements Closeable {
+
+    /**
+     * The number of records in a segment unless told otherwise (16 MB).
+     */
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    // Record types.
+    static final int NEW = 1;
+    static final int MOVE = 2;
+    static final int UNDO = 3;
+    static final int RESET = 4;
+    static final int CLOSE = 5;
+
+    private static final String SNAPSHOT = "snapshot.dat";
+    private static final String SNAPSHOT_TEMP = "snapshot.tmp";
+    private static final int SNAPSHOT_MAGIC = 0x5454534E;
+    private static final int SNAPSHOT_VERSION = 2;
+    // Sequence numbers fill the three argument bytes of a record.
+    private static final int SEQUENCE_MASK = 0xFFFFFF;
+    // The largest Board dimension a record can hold.
+    private static final int MAX_SIDE = 255;
+
+    private final Path directory;
+    private final int segmentRecords;
+    private final int snapshotSegments;
+    private final ConcurrentMap<Integer, Board> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextSession = new AtomicInteger();
+    // The sessions whose replay stopped at a gap or a rejected record.
+    private final Set<Integer> damaged = new HashSet<>();
+    // Segments that are full but not yet folded into a snapshot, oldest first.
+    private final ConcurrentLinkedDeque<JournalSegment> sealed = new ConcurrentLinkedDeque<>();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final ScheduledExecutorService committer;
+    private volatile JournalSegment current;
+
+    /**
+     * Open the journal in a directory, rebuilding the sessions it holds.
+     * Commits every 2 milliseconds and snapshots every 4 full segments.
+     *
+     * @param directory The directory of the journal, created if needed
+     * @throws IOException If the journal could not be read or started
+     */
+    public MoveJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_RECORDS, 2, 4);
+    }
+
+    /**
+     * Open the journal in a directory, rebuilding the sessions it holds.
+     *
+     * @param directory        The directory of the journal, created if needed
+     * @param segmentRecords   The number of records in each segment file
+     * @param commitMillis     The time between group commits, or 0 to only
+     *                         commit on flush()
+     * @param snapshotSegments The number of full segments that triggers a
+     *                         snapshot, or 0 to only snapshot on snapshot()
+     * @throws IOException If the journal could not be read or started
+     */
+    public MoveJournal(Path directory, int segmentRecords, long commitMillis, int snapshotSegments)
+            throws IOException {
+        if (segmentRecords < 1) {
+            throw new IllegalArgumentException("A segment must hold at least one record");
+        }
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.snapshotSegments = snapshotSegments;
+        Files.createDirectories(directory);
+        int next = recover();
+        current = JournalSegment.create(segmentPath(next), next, segmentRecords);
+        committer = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (commitMillis > 0) {
+            committer.scheduleWithFixedDelay(this::commit, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Start a new journaled game.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @return The id of the new session
+     */
+    public int newSession(int width, int height, int winLength) {
+        if (width > MAX_SIDE || height > MAX_SIDE) {
+            throw new IllegalArgumentException("Journaled Boards are limited to " + MAX_SIDE + " cells a side");
+        }
+        Board board = new Board(width, height, winLength);
+        int id = nextSession.getAndIncrement();
+        append(id, NEW, width, height, winLength, 0);
+        board.setMoveRecorder(new SessionRecorder(id, 1));
+        sessions.put(id, board);
+        return id;
+    }
+
+    /**
+     * Get the Board of a session. Every change made to it is journaled.
+     *
+     * @param id The id of the session
+     * @return The Board, or null if there is no such session
+     */
+    public Board getSession(int id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Get every open session, including those rebuilt when the journal was
+     * opened.
+     *
+     * @return The Boards of the open sessions by id
+     */
+    public Map<Integer, Board> getSessions() {
+        return Collections.unmodifiableMap(sessions);
+    }
+
+    /**
+     * Get the sessions rebuilt when the journal was opened whose records
+     * were missing or invalid part way through, so that they were rebuilt
+     * only up to the last change before the damage.
+     *
+     * @return The ids of the damaged sessions
+     */
+    public Set<Integer> getDamagedSessions() {
+        return Collections.unmodifiableSet(damaged);
+    }
+
+    /**
+     * End a session. Its Board is no longer journaled.
+     *
+     * @param id The id of the session
+     */
+    public void closeSession(int id) {
+        Board board = sessions.remove(id);
+        if (board != null) {
+            board.setMoveRecorder(null);
+            append(id, CLOSE, 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Commit every record appended so far to the disk before returning.
+     */
+    public void flush() {
+        commit();
+    }
+
+    /**
+     * Fold every full segment, and the records written so far, into a new
+     * snapshot, and delete the segments.
+     *
+     * @throws IOException If the snapshot could not be written
+     */
+    public void snapshot() throws IOException {
+        JournalSegment segment = current;
+        rotate(segment);
+        synchronized (sealed) {
+            List<JournalSegment> folded = new ArrayList<>();
+            for (JournalSegment full : sealed) {
+                if (full.index > segment.index) {
+                    break;
+                }
+                folded.add(full);
+            }
+            if (folded.isEmpty()) {
+                return;
+            }
+            for (JournalSegment full : folded) {
+                // Wait for writers that claimed a record before the segment was sealed
+                while (!full.isComplete()) {
+                    Thread.yield();
+                }
+            }
+            Map<Integer, Replayed> boards = new HashMap<>();
+            int[] ids = { readSnapshot(boards)[1] };
+            for (JournalSegment full : folded) {
+                JournalSegment.replay(full.path, (session, type, a, b, c, value) -> {
+                    apply(boards, session, type, a, b, c, value);
+                    if (type == NEW) {
+                        ids[0] = Math.max(ids[0], session + 1);
+                    }
+                });
+            }
+            writeSnapshot(boards, folded.get(folded.size() - 1).index + 1, ids[0]);
+            for (JournalSegment full : folded) {
+                sealed.remove(full);
+                full.close();
+                Files.deleteIfExists(full.path);
+            }
+        }
+    }
+
+    /**
+     * Commit the outstanding records and stop journaling. The sessions' Boards
+     * are no longer journaled.
+     */
+    @Override
+    public void close() throws IOException {
+        committer.shutdown();
+        try {
+            committer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        for (Board board : sessions.values()) {
+            board.setMoveRecorder(null);
+        }
+        commit();
+        for (JournalSegment segment : sealed) {
+            segment.close();
+        }
+        current.close();
+    }
+
+    /**
+     * Append a record to the current segment, moving to a new segment when it
+     * is full.
+     */
+    private void append(int session, int type, int a, int b, int c, int value) {
+        while (true) {
+            JournalSegment segment = current;
+            if (segment.append(session, type, a, b, c, value)) {
+                return;
+            }
+            rotate(segment);
+        }
+    }
+
+    /**
+     * Seal a segment and start the next one, unless another thread already
+     * has.
+     */
+    private void rotate(JournalSegment segment) {
+        synchronized (this) {
+            if (current != segment) {
+                return;
+            }
+            segment.seal();
+            try {
+                current = JournalSegment.create(segmentPath(segment.index + 1), segment.index + 1,
+                        segmentRecords);
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Could not start a new journal segment", ex);
+            }
+            sealed.addLast(segment);
+        }
+        if (snapshotSegments > 0 && sealed.size() >= snapshotSegments && snapshotting.compareAndSet(false, true)) {
+            committer.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException ex) {
+                    System.err.println("Could not snapshot the journal: " + ex);
+                } finally {
+                    snapshotting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Write every segment with new records through to the disk.
+     */
+    private void commit() {
+        Metrics metrics = Metrics.get();
+        long start = metrics == null ? 0L : System.nanoTime();
+        long bytes = 0L;
+        for (JournalSegment segment : sealed) {
+            bytes += segment.force();
+        }
+        bytes += current.force();
+        if (metrics != null && bytes > 0) {
+            metrics.persisted("journal", bytes, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Rebuild the sessions from the latest snapshot and the segments after it,
+     * then fold those segments into a new snapshot so the next recovery starts
+     * from there.
+     *
+     * @return The index of the first new segment
+     */
+    private int recover() throws IOException {
+        Map<Integer, Replayed> boards = new HashMap<>();
+        int[] snapshot = readSnapshot(boards);
+        int first = snapshot[0];
+        int[] ids = { snapshot[1] };
+        List<Integer> indices = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "journal-*.log")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                indices.add(Integer.parseInt(name.substring("journal-".length(), name.length() - ".log".length())));
+            }
+        }
+        Collections.sort(indices);
+        int next = first;
+        for (int index : indices) {
+            if (index >= first) {
+                JournalSegment.replay(segmentPath(index), (session, type, a, b, c, value) -> {
+                    apply(boards, session, type, a, b, c, value);
+                    if (type == NEW) {
+                        ids[0] = Math.max(ids[0], session + 1);
+                    }
+                });
+                next = index + 1;
+            }
+        }
+        if (next > first) {
+            writeSnapshot(boards, next, ids[0]);
+        }
+        for (int index : indices) {
+            Files.deleteIfExists(segmentPath(index));
+        }
+        nextSession.set(ids[0]);
+        for (Map.Entry<Integer, Replayed> entry : boards.entrySet()) {
+            Replayed replayed = entry.getValue();
+            replayed.board.setMoveRecorder(new SessionRecorder(entry.getKey(), replayed.sequence));
+            sessions.put(entry.getKey(), replayed.board);
+            if (replayed.damaged) {
+                damaged.add(entry.getKey());
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Apply a journal record to a set of Boards. A session that has lost a
+     * record, or whose Board rejects one, is left as it was before and takes
+     * no more records except its closing.
+     */
+    private static void apply(Map<Integer, Replayed> boards, int session, int type, int a, int b, int c,
+            int value) {
+        if (type == NEW) {
+            boards.put(session, new Replayed(new Board(a, b, c), 1, false));
+            return;
+        }
+        Replayed replayed = boards.get(session);
+        if (replayed == null) {
+            return;
+        }
+        if (type == CLOSE) {
+            boards.remove(session);
+            return;
+        }
+        if (replayed.damaged) {
+            return;
+        }
+        if ((a << 16 | b << 8 | c) != replayed.sequence) {
+            replayed.damaged = true;
+            return;
+        }
+        Board board = replayed.board;
+        boolean applied;
+        switch (type) {
+        case MOVE:
+            applied = value >= 0 && value < board.getWidth() * board.getHeight()
+                    && board.makeMove(value / board.getWidth(), value % board.getWidth());
+            break;
+        case UNDO:
+            applied = board.unmakeMove();
+            break;
+        case RESET:
+            board.resetBoard();
+            applied = true;
+            break;
+        default:
+            applied = false;
+            break;
+        }
+        if (applied) {
+            replayed.sequence = (replayed.sequence + 1) & SEQUENCE_MASK;
+        } else {
+            replayed.damaged = true;
+        }
+    }
+
+    /**
+     * Read the Boards of the latest snapshot.
+     *
+     * @param boards The map to read the Boards into
+     * @return The index of the first segment not folded into the snapshot, and
+     *         the next free session id
+     */
+    private int[] readSnapshot(Map<Integer, Replayed> boards) throws IOException {
+        Path path = directory.resolve(SNAPSHOT);
+        if (!Files.exists(path)) {
+            return new int[] { 0, 0 };
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (buffer.remaining() < 20 || buffer.getInt() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION) {
+            throw new StreamCorruptedException(path + " is not a journal snapshot");
+        }
+        int nextSegment = buffer.getInt();
+        int nextId = buffer.getInt();
+        int count = buffer.getInt();
+        for (int i = 0; i < count; i++) {
+            int id = buffer.getInt();
+            int sequence = buffer.getInt();
+            boards.put(id, new Replayed(BoardCodec.decode(buffer), sequence, false));
+        }
+        return new int[] { nextSegment, nextId };
+    }
+
+    /**
+     * Write a snapshot and make it the latest, atomically.
+     *
+     * @param boards      The Boards of the open sessions
+     * @param nextSegment The index of the first segment not folded in
+     * @param nextId      The next free session id
+     */
+    private void writeSnapshot(Map<Integer, Replayed> boards, int nextSegment, int nextId) throws IOException {
+        int size = 20;
+        for (Replayed replayed : boards.values()) {
+            size += 8 + BoardCodec.encodedSize(replayed.board);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(nextSegment).putInt(nextId)
+                .putInt(boards.size());
+        for (Map.Entry<Integer, Replayed> entry : boards.entrySet()) {
+            buffer.putInt(entry.getKey()).putInt(entry.getValue().sequence);
+            BoardCodec.encode(entry.getValue().board, buffer);
+        }
+        buffer.flip();
+        Path temp = directory.resolve(SNAPSHOT_TEMP);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("journal-%08d.log", index));
+    }
+
+    /**
+     * This class represents a session being rebuilt from the journal: its
+     * Board, the sequence number its next record must carry, and whether
+     * replay has stopped short.
+     */
+    private static final class Replayed {
+        private final Board board;
+        private int sequence;
+        private boolean damaged;
+
+        private Replayed(Board board, int sequence, boolean damaged) {
+            this.board = board;
+            this.sequence = sequence;
+            this.damaged = damaged;
+        }
+    }
+
+    /**
+     * This class represents the MoveRecorder of one session's Board. The
+     * Board is only changed by one thread at a time, so the sequence needs no
+     * synchronization of its own.
+     */
+    private final class SessionRecorder implements MoveRecorder {
+        private final int id;
+        private int sequence;
+
+        private SessionRecorder(int id, int sequence) {
+            this.id = id;
+            this.sequence = sequence;
+        }
+
+        private void record(int type, int value) {
+            int number = sequence;
+            sequence = (sequence + 1) & SEQUENCE_MASK;
+            append(id, type, number >>> 16, number >>> 8, number, value);
+        }
+
+        @Override
+        public void moveMade(Board board, int cell) {
+            record(MOVE, cell);
+        }
+
+        @Override
+        public void moveUndone(Board board) {
+            record(UNDO, 0);
+        }
+
+        @Override
+        public void boardReset(Board board) {
+            record(RESET, 0);
+        }
+    }
+}
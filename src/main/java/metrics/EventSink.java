@@ -0,0 +1,53 @@
+package metrics;
+
+/**
+ * This interface represents a receiver of individual timed events, such as
+ * JDK Flight Recorder, in addition to the aggregate counts kept by Metrics.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public interface EventSink {
+
+    /**
+     * Called when a move is made or rejected.
+     *
+     * @param cell     The cell of the move (x * width + y), or -1 if it was off
+     *                 the Board
+     * @param accepted True if the move was made
+     */
+    void move(int cell, boolean accepted);
+
+    /**
+     * Called when a move has been checked for a win or a draw.
+     *
+     * @param nanos How long the check took
+     */
+    void stateCheck(long nanos);
+
+    /**
+     * Called when the listeners of a Board have been notified.
+     *
+     * @param listeners The number of listeners notified
+     * @param nanos     How long they took
+     */
+    void listeners(int listeners, long nanos);
+
+    /**
+     * Called when a game has been saved, loaded or journaled to disk.
+     *
+     * @param operation What was done, e.g. "save"
+     * @param bytes     The number of bytes written or read
+     * @param nanos     How long it took
+     */
+    void persistence(String operation, long bytes, long nanos);
+
+    /**
+     * Called when the computer has chosen a move.
+     *
+     * @param nodes The number of positions searched
+     * @param move  The chosen cell, or -1 if there was none
+     * @param nanos How long the search took
+     */
+    void search(long nodes, int move, long nanos);
+}
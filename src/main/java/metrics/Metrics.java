@@ -0,0 +1,335 @@
+package metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class represents the process-wide counters and latency histograms of
+ * the game's hot paths: moves made and rejected, game state checks, listener
+ * notification, persistence and computer searches.
+ *
+ * Metrics are off until enable() is called. Instrumented code reads get() once
+ * and does nothing more when it returns null, so the disabled cost is one
+ * field read and a branch. When enabled, counts are LongAdders and latencies
+ * go into LatencyHistograms, so recording never locks or allocates. Each event
+ * can additionally be passed to an EventSink; enableFlightRecorder() uses one
+ * that commits JDK Flight Recorder events (built by the jdk21 profile).
+ *
+ * A snapshot of every metric can be written in the Prometheus text format by
+ * format(), which MetricsExporter serves over HTTP or writes to a file.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class Metrics {
+
+    // Compiled from src/main/java21 by the jdk21 build profile only.
+    private static final String FLIGHT_RECORDER_SINK = "metrics.FlightRecorderSink";
+
+    private static volatile Metrics current;
+
+    private final long startNanos = System.nanoTime();
+    private final EventSink events;
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder rejectedMoves = new LongAdder();
+    private final LongAdder undoneMoves = new LongAdder();
+    private final LongAdder redoneMoves = new LongAdder();
+    private final LatencyHistogram stateChecks = new LatencyHistogram();
+    private final LatencyHistogram listeners = new LatencyHistogram();
+    private final LatencyHistogram persistence = new LatencyHistogram();
+    private final LongAdder persistedBytes = new LongAdder();
+    private final LatencyHistogram searches = new LatencyHistogram();
+    private final LongAdder searchNodes = new LongAdder();
+
+    /**
+     * Construct a new Metrics.
+     *
+     * @param events The sink for individual events, or null
+     */
+    public Metrics(EventSink events) {
+        this.events = events;
+    }
+
+    /**
+     * Get the installed Metrics.
+     *
+     * @return The Metrics to record to, or null if metrics are disabled
+     */
+    public static Metrics get() {
+        return current;
+    }
+
+    /**
+     * Start recording to a new Metrics.
+     *
+     * @return The Metrics now being recorded to
+     */
+    public static Metrics enable() {
+        return install(new Metrics(null));
+    }
+
+    /**
+     * Start recording to a new Metrics that also commits JDK Flight Recorder
+     * events.
+     *
+     * @return The Metrics now being recorded to
+     * @throws UnsupportedOperationException If Flight Recorder events are not
+     *                                       available
+     */
+    public static Metrics enableFlightRecorder() {
+        EventSink sink;
+        try {
+            sink = (EventSink) Class.forName(FLIGHT_RECORDER_SINK).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            throw new UnsupportedOperationException(
+                    "Flight Recorder events need a JDK 21 runtime and a build with the jdk21 profile");
+        }
+        return install(new Metrics(sink));
+    }
+
+    /**
+     * Start recording to a Metrics.
+     *
+     * @param metrics The Metrics to record to, or null to stop recording
+     * @return The Metrics
+     */
+    public static Metrics install(Metrics metrics) {
+        current = metrics;
+        return metrics;
+    }
+
+    /**
+     * Stop recording.
+     */
+    public static void disable() {
+        current = null;
+    }
+
+    /**
+     * Record a move.
+     *
+     * @param cell     The cell of the move, or -1 if it was off the Board
+     * @param accepted True if the move was made, false if it was rejected
+     */
+    public void moveMade(int cell, boolean accepted) {
+        (accepted ? moves : rejectedMoves).increment();
+        if (events != null) {
+            events.move(cell, accepted);
+        }
+    }
+
+    /**
+     * Record a move being taken back.
+     */
+    public void moveUndone() {
+        undoneMoves.increment();
+    }
+
+    /**
+     * Record a move being replayed after it was taken back.
+     */
+    public void moveRedone() {
+        redoneMoves.increment();
+    }
+
+    /**
+     * Record the check of whether a move won or drew the game.
+     *
+     * @param nanos How long the check took
+     */
+    public void stateChecked(long nanos) {
+        stateChecks.record(nanos);
+        if (events != null) {
+            events.stateCheck(nanos);
+        }
+    }
+
+    /**
+     * Record the notification of a Board's listeners.
+     *
+     * @param count The number of listeners notified
+     * @param nanos How long they took
+     */
+    public void listenersNotified(int count, long nanos) {
+        listeners.record(nanos);
+        if (events != null) {
+            events.listeners(count, nanos);
+        }
+    }
+
+    /**
+     * Record a game being saved, loaded or journaled.
+     *
+     * @param operation What was done, e.g. "save"
+     * @param bytes     The number of bytes written or read
+     * @param nanos     How long it took
+     */
+    public void persisted(String operation, long bytes, long nanos) {
+        persistence.record(nanos);
+        persistedBytes.add(bytes);
+        if (events != null) {
+            events.persistence(operation, bytes, nanos);
+        }
+    }
+
+    /**
+     * Record a search by the computer.
+     *
+     * @param nodes The number of positions searched
+     * @param move  The chosen cell, or -1 if there was none
+     * @param nanos How long the search took
+     */
+    public void searched(long nodes, int move, long nanos) {
+        searches.record(nanos);
+        searchNodes.add(nodes);
+        if (events != null) {
+            events.search(nodes, move, nanos);
+        }
+    }
+
+    /**
+     * Get the number of moves made.
+     *
+     * @return The number of moves made
+     */
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    /**
+     * Get the number of moves rejected.
+     *
+     * @return The number of moves rejected
+     */
+    public long getRejectedMoves() {
+        return rejectedMoves.sum();
+    }
+
+    /**
+     * Get the number of moves taken back.
+     *
+     * @return The number of moves taken back
+     */
+    public long getUndoneMoves() {
+        return undoneMoves.sum();
+    }
+
+    /**
+     * Get the number of moves replayed after being taken back.
+     *
+     * @return The number of moves redone
+     */
+    public long getRedoneMoves() {
+        return redoneMoves.sum();
+    }
+
+    /**
+     * Get the latencies of game state checks.
+     *
+     * @return The histogram
+     */
+    public LatencyHistogram getStateChecks() {
+        return stateChecks;
+    }
+
+    /**
+     * Get the latencies of listener notifications.
+     *
+     * @return The histogram
+     */
+    public LatencyHistogram getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Get the latencies of saves, loads and journal commits.
+     *
+     * @return The histogram
+     */
+    public LatencyHistogram getPersistence() {
+        return persistence;
+    }
+
+    /**
+     * Get the latencies of computer searches.
+     *
+     * @return The histogram
+     */
+    public LatencyHistogram getSearches() {
+        return searches;
+    }
+
+    /**
+     * Get the time since this Metrics was created.
+     *
+     * @return The uptime in seconds
+     */
+    public double getUptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * Write every metric in the Prometheus text exposition format. Latencies are
+     * summaries in seconds.
+     *
+     * @return The metrics
+     */
+    public String format() {
+        StringBuilder out = new StringBuilder(2048);
+        gauge(out, "tictactoe_uptime_seconds", "Seconds since metrics were enabled", getUptimeSeconds());
+        counter(out, "tictactoe_moves_total", "Moves made", getMoves());
+        counter(out, "tictactoe_rejected_moves_total", "Moves rejected", getRejectedMoves());
+        counter(out, "tictactoe_undone_moves_total", "Moves taken back", getUndoneMoves());
+        counter(out, "tictactoe_redone_moves_total", "Moves replayed after being taken back", getRedoneMoves());
+        summary(out, "tictactoe_state_check_seconds", "Time to check whether a move ended a game", stateChecks);
+        summary(out, "tictactoe_listener_seconds", "Time to notify the listeners of a Board", listeners);
+        summary(out, "tictactoe_persistence_seconds", "Time to save, load or journal a game", persistence);
+        counter(out, "tictactoe_persisted_bytes_total", "Bytes saved, loaded or journaled", persistedBytes.sum());
+        summary(out, "tictactoe_search_seconds", "Time for the computer to choose a move", searches);
+        counter(out, "tictactoe_search_nodes_total", "Positions searched by the computer", searchNodes.sum());
+        return out.toString();
+    }
+
+    private static void gauge(StringBuilder out, String name, String help, double value) {
+        header(out, name, help, "gauge");
+        out.append(name).append(' ').append(String.format(Locale.ROOT, "%.3f", value)).append('\n');
+    }
+
+    private static void counter(StringBuilder out, String name, String help, long value) {
+        header(out, name, help, "counter");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void summary(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        header(out, name, help, "summary");
+        for (double quantile : new double[] { 0.5, 0.9, 0.99, 0.999 }) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                    .append(seconds(histogram.getPercentile(quantile * 100))).append('\n');
+        }
+        out.append(name).append("_sum ").append(seconds(histogram.getSum())).append('\n');
+        out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Summarise the rates and latencies.
+     */
+    @Override
+    public String toString() {
+        double uptime = Math.max(getUptimeSeconds(), 1e-9);
+        return String.format(Locale.ROOT,
+                "%.0f moves/s, %.0f rejected/s, state check p99 %d ns, listeners p99 %d ns, persistence p99 %d us, "
+                        + "search p99 %d us",
+                getMoves() / uptime, getRejectedMoves() / uptime, stateChecks.getPercentile(99),
+                listeners.getPercentile(99), persistence.getPercentile(99) / 1000,
+                searches.getPercentile(99) / 1000);
+    }
+}
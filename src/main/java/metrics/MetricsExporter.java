@@ -0,0 +1,131 @@
+package metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * This class exports the installed Metrics in the Prometheus text format,
+ * either by rewriting a file periodically or by serving them over HTTP at
+ * /metrics. Nothing is exported while metrics are disabled.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MetricsExporter implements Closeable {
+
+    private final ScheduledExecutorService scheduler;
+    private final HttpServer server;
+
+    private MetricsExporter(ScheduledExecutorService scheduler, HttpServer server) {
+        this.scheduler = scheduler;
+        this.server = server;
+    }
+
+    /**
+     * Rewrite a file with the installed Metrics periodically, and once more
+     * when the exporter is closed.
+     *
+     * @param path         The file to write
+     * @param periodMillis The time between writes
+     * @return The exporter
+     */
+    public static MetricsExporter toFile(Path path, long periodMillis) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-exporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                write(path);
+            } catch (IOException ex) {
+                System.err.println("Could not export metrics: " + ex);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return new MetricsExporter(scheduler, null) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                write(path);
+            }
+        };
+    }
+
+    /**
+     * Serve the installed Metrics at /metrics.
+     *
+     * @param address The address to listen on, usually on the loopback
+     *                interface
+     * @return The exporter
+     * @throws IOException If the address could not be bound
+     */
+    public static MetricsExporter serve(InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = snapshot().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return new MetricsExporter(null, server);
+    }
+
+    /**
+     * Get the port the exporter serves on.
+     *
+     * @return The port, or -1 if it writes to a file
+     */
+    public int getPort() {
+        return server == null ? -1 : server.getAddress().getPort();
+    }
+
+    /**
+     * Write the installed Metrics to a file, replacing it in one step so a
+     * reader never sees a partial file.
+     *
+     * @param path The file to write
+     * @throws IOException If the file could not be written
+     */
+    public static void write(Path path) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, snapshot().getBytes(StandardCharsets.UTF_8));
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static String snapshot() {
+        Metrics metrics = Metrics.get();
+        return metrics == null ? "" : metrics.format();
+    }
+
+    /**
+     * Stop exporting.
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+}
@@ -1,182 +1,1097 @@
 package model;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import metrics.Metrics;
 import model.BoardListener;
 
 /**
  * This class represents the game Board for Tic Tac Toe. It is the main
  * component of the model in the MVC pattern.
- * 
- * This class uses a dynamically scalable implementation to determine if it is
- * in a winning state. All that needs to be done is to change the SIZE field to
- * the specified height and length.
- * 
+ *
+ * A Board has a height (the number of rows, indexed by x), a width (the number
+ * of columns, indexed by y) and a win length k: the first player to place k of
+ * their pieces in a row, column or diagonal wins. The classic game is a 3x3
+ * Board with k = 3, while gomoku style games use larger Boards such as 19x19
+ * with k = 5. A Board has at most MAX_CELLS cells.
+ *
+ * The Board is stored as a pair of bitboards, one per player, where cell (x, y)
+ * maps to bit x * width + y. Boards with more than 64 cells span multiple
+ * words. Win detection is incremental: for each of the four directions, the
+ * two ends of every run of pieces store the length of that run. Placing a
+ * piece only needs to read the runs ending next to it and write the new length
+ * to the new ends, so detecting a win costs O(1) per move regardless of the
+ * Board size or the win length.
+ *
+ * Every Board also keeps a Zobrist hash of its position for use as a key by
+ * search code. The hash of the position's image under every symmetry of the
+ * Board (rotations and reflections) is kept alongside it, one XOR each per
+ * move. The smallest of them is the canonical hash, which is shared by all
+ * equivalent positions, so tables keyed by it store each position only once.
+ *
+ * Moves can be taken back with unmakeMove() and replayed with redoMove(). Each
+ * move pushes a fixed-size record onto a primitive stack holding the cell, the
+ * previous last move and the run lengths it joined, so taking a move back
+ * restores all incremental state in O(1) without copying the Board.
+ *
+ * The state of the game is cached and updated with every move. getStatus() and
+ * getWinner() read it without allocating, and are what search and simulation
+ * code should use; boardState() wraps it in a new GameEvent for code that needs
+ * an event object.
+ *
+ * Listeners are notified whenever a move is made, taken back or replayed, but
+ * not when a move is rejected. By default they run on the thread that changed
+ * the Board. Once a listener executor is set, notifications are handed to it
+ * instead, and a listener that has not yet run since the last change is not
+ * scheduled again, so a burst of moves reaches each listener as a single
+ * notification and a slow listener never holds up the thread making moves.
+ * Each notification carries a BoardChange listing the cells changed since the
+ * listener last ran, so a view can redraw a move in constant time however
+ * large the Board is.
+ *
+ * Search code can ask a Board to keep a ThreatIndex of the empty cells near
+ * its pieces and of the lines each player is close to completing, so that it
+ * only considers the moves that matter on a large Board.
+ *
+ * A Board is not thread-safe: it must only be changed and read by one thread
+ * at a time. Other threads, such as spectators of a game, can follow it
+ * without locking once snapshots are enabled: after every change the Board
+ * publishes an immutable BoardSnapshot of its position through a volatile
+ * field, and getSnapshot() always returns a complete position, never one torn
+ * by a move in progress. Readers never write to the Board, so any number of
+ * them cost the thread making moves nothing beyond the copy of its bitboards.
+ *
+ * When metrics.Metrics are enabled, moves made, rejected, undone and redone,
+ * the check of whether each move ended the game, and listener notifications
+ * are recorded, except on copies of a Board.
+ *
  * @author John Breton
  * @version December 15th, 2019
  */
 public class Board implements Serializable {
     // Used for object serialization.
     private static final long serialVersionUID = 1327864657251043003L;
-    // The length and width of the Tic Tac Toe game.
+    // The serialized form is kept compatible with the original char grid layout
+    // so that previously saved games can still be loaded.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("grid", char[][].class),
+            new ObjectStreamField("turn", boolean.class),
+            new ObjectStreamField("moveCount", int.class),
+            new ObjectStreamField("lastX", int.class),
+            new ObjectStreamField("lastY", int.class),
+            new ObjectStreamField("winLength", int.class) };
+    // The default length and width of the Tic Tac Toe game.
     public static final int SIZE = 3;
-    // Stores the text representation of the game.
-    private final char[][] grid;
+    /**
+     * The most cells a Board can have, enough for a 256x256 grid.
+     */
+    public static final int MAX_CELLS = 1 << 16;
+    // The row and column steps of the four line directions: horizontal,
+    // vertical, diagonal and anti-diagonal.
+    static final int[] DX = { 0, 1, 1, 1 };
+    static final int[] DY = { 1, 0, 1, -1 };
+    // The number of ints in a move record: the cell, the previous last move,
+    // whether the previous move won, then the runs before and after the cell
+    // in each direction.
+    private static final int RECORD = 3 + 2 * 4;
+
+    private transient int width, height, winLength, cells;
+    // One bitboard per player.
+    private transient long[] xBits;
+    private transient long[] oBits;
+    // The length of the run through each run end, per direction (cells ints per direction).
+    private transient int[] runs;
     // Determines the current player's turn (True for X, false for O).
-    private boolean turn;
+    private transient boolean turn;
+    // Whether the last move completed a line of winLength pieces.
+    private transient boolean lastMoveWon;
+    // The state of the game, kept up to date by every move so that it can be
+    // read without allocating a GameEvent.
+    private transient GameEvent.Status status;
+    // The Zobrist keys and symmetries shared by Boards of these dimensions.
+    private transient BoardGeometry geometry;
+    // The Zobrist hash of the position's image under each symmetry.
+    private transient long[] hashes;
+    // The candidate moves and threats, or null if they are not tracked.
+    private transient ThreatIndex threats;
+    // The last position published for other threads, or null if snapshots
+    // are not enabled.
+    private transient volatile BoardSnapshot snapshot;
 
-    private transient List<BoardListener> boardListeners;
-    private int moveCount, lastX, lastY;
+    private transient List<Subscription> boardListeners;
+    // Runs listeners asynchronously, or null to run them on the calling thread.
+    private transient volatile Executor listenerExecutor;
+    // Told about every change before the listeners, or null.
+    private transient MoveRecorder recorder;
+    // Whether moves are counted by Metrics. Copies made for search are not, so
+    // search nodes are not counted as moves.
+    private transient boolean instrumented = true;
+    private transient int moveCount, lastX, lastY;
+    // The move records of every move that can be undone, followed by those that
+    // can be redone.
+    private transient int[] history;
+    private transient int undoable, redoable;
 
     /**
-     * Construct a new empty Board.
+     * Construct a new empty SIZE x SIZE Board, won by a full row, column or
+     * diagonal.
      */
     public Board() {
-        grid = new char[SIZE][SIZE];
+        this(SIZE, SIZE, SIZE);
+    }
+
+    /**
+     * Construct a new empty Board of the given dimensions.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     */
+    public Board(int width, int height, int winLength) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("A Board must have at least one row and column");
+        }
+        if ((long) width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("A Board can have at most " + MAX_CELLS + " cells");
+        }
+        if (winLength < 1 || winLength > Math.max(width, height)) {
+            throw new IllegalArgumentException("A win length of " + winLength + " does not fit on a " + height
+                    + "x" + width + " Board");
+        }
+        initialize(width, height, winLength);
+        boardListeners = new CopyOnWriteArrayList<>();
         resetBoard();
-        boardListeners = new ArrayList<>();
-        turn = true;
     }
 
     /**
-     * Clear the grid of any values. 
+     * Construct a copy of another Board's position. Listeners are not copied, so
+     * the copy can be played on freely by search code.
+     *
+     * @param other The Board to copy
+     */
+    public Board(Board other) {
+        width = other.width;
+        height = other.height;
+        winLength = other.winLength;
+        cells = other.cells;
+        xBits = other.xBits.clone();
+        oBits = other.oBits.clone();
+        runs = other.runs.clone();
+        geometry = other.geometry;
+        hashes = other.hashes.clone();
+        threats = other.threats == null ? null : new ThreatIndex(other.threats);
+        turn = other.turn;
+        lastMoveWon = other.lastMoveWon;
+        status = other.status;
+        moveCount = other.moveCount;
+        lastX = other.lastX;
+        lastY = other.lastY;
+        history = other.history.clone();
+        undoable = other.undoable;
+        redoable = other.redoable;
+        boardListeners = new CopyOnWriteArrayList<>();
+        instrumented = false;
+    }
+
+    /**
+     * Allocate the storage for a Board of the given dimensions.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     */
+    private void initialize(int width, int height, int winLength) {
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        cells = width * height;
+        int words = (cells + 63) >>> 6;
+        xBits = new long[words];
+        oBits = new long[words];
+        runs = new int[DX.length * cells];
+        geometry = BoardGeometry.of(width, height, winLength);
+        hashes = new long[geometry.symmetries];
+        history = new int[RECORD * Math.min(cells, 64)];
+    }
+
+    /**
+     * Add or remove a piece from the hash of every symmetric image.
+     *
+     * @param cell   The cell of the piece
+     * @param player 0 for X, 1 for O
+     */
+    private void toggleHashes(int cell, int player) {
+        long[] keys = geometry.zobrist;
+        int[] transforms = geometry.transforms;
+        for (int s = 0; s < hashes.length; s++) {
+            hashes[s] ^= keys[2 * transforms[s * cells + cell] + player];
+        }
+    }
+
+    private static void setBit(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    private static void clearBits(long[] bits) {
+        for (int w = 0; w < bits.length; w++) {
+            bits[w] = 0L;
+        }
+    }
+
+    private static boolean testBit(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    /**
+     * Clear the grid of any values.
      * Empty grid positions are represented with the ' ' character.
      */
     public void resetBoard() {
-        for (int x = 0; x < SIZE; x++) {
-            for (int y = 0; y < SIZE; y++) {
-                grid[x][y] = ' ';
-            }
+        clearBits(xBits);
+        clearBits(oBits);
+        // Run lengths are only ever read for occupied cells, but clearing them
+        // keeps a reset Board identical to a new one.
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = 0;
         }
         turn = true;
+        lastMoveWon = false;
+        for (int s = 0; s < hashes.length; s++) {
+            hashes[s] = 0L;
+        }
         moveCount = 0;
+        undoable = 0;
+        redoable = 0;
+        status = GameEvent.Status.NO_WINNER;
+        if (threats != null) {
+            threats.clear();
+        }
+        publish();
+        if (recorder != null) {
+            recorder.boardReset(this);
+        }
+        // Listeners are not notified of a reset, but must redraw everything at
+        // their next notification
+        for (Subscription subscription : boardListeners) {
+            subscription.markAll();
+        }
     }
 
     /**
      * Make a move on the board, if it's valid.
-     * 
+     *
      * @param x The x coordinate of the move
      * @param y The y coordinate of the move
+     * @return True if the move was made, false if it was rejected
      */
-    public void makeMove(int x, int y) {
-        if (grid[x][y] == ' ' && !(x >= SIZE || y >= SIZE)) {
-            grid[x][y] = turn ? 'x' : 'o';
-            turn = !turn;
-            // Used to simplify winning board calculations in boardState()
-            // Does make the class less cohesive at the cost of efficiency
-            lastX = x;
-            lastY = y;
-            moveCount++;
+    public boolean makeMove(int x, int y) {
+        boolean valid = false;
+        int cell = -1;
+        if (isOnBoard(x, y)) {
+            cell = x * width + y;
+            if (!testBit(xBits, cell) && !testBit(oBits, cell)) {
+                place(cell);
+                // A new move replaces any moves that could have been redone
+                redoable = 0;
+                valid = true;
+                if (recorder != null) {
+                    recorder.moveMade(this, cell);
+                }
+            }
+        }
+        Metrics metrics = instrumented ? Metrics.get() : null;
+        if (metrics != null) {
+            metrics.moveMade(cell, valid);
+        }
+        if (valid) {
+            notifyListeners(cell);
         }
-        notifyListeners();
+        return valid;
     }
 
     /**
-     * Return the current state of the Board. A Board can be in a winning state, a
-     * draw state, or a not won state.
-     * 
-     * @return A GameEvent representing the current state of the board.
+     * Take back the last move made on the Board. It can be replayed with
+     * redoMove() until a different move is made.
+     *
+     * @return True if a move was taken back, false if there was none
      */
-    public GameEvent boardState() {
-        boolean flag = true;
-        if (moveCount > 4) {
-            // Check the row of the last move
-            for (int y = 1; y < SIZE; y++) {
-                if (grid[lastX][0] != grid[lastX][y]) {
-                    flag = false;
-                    break;
-                }
-            }
-            if (flag) {
-                return new GameEvent(this, GameEvent.Status.WINNER, turn);
-            }
+    public boolean unmakeMove() {
+        if (undoable == 0) {
+            return false;
+        }
+        undoable--;
+        redoable++;
+        int record = undoable * RECORD;
+        int cell = history[record];
+        turn = !turn;
+        long[] bits = turn ? xBits : oBits;
+        bits[cell >>> 6] &= ~(1L << cell);
+        toggleHashes(cell, turn ? 0 : 1);
+        if (threats != null) {
+            threats.remove(cell, turn ? 0 : 1);
+        }
+        // Restore the ends of the runs the move joined
+        for (int d = 0; d < DX.length; d++) {
+            int before = history[record + 3 + 2 * d];
+            int after = history[record + 4 + 2 * d];
+            int step = DX[d] * width + DY[d];
+            int base = d * cells;
+            runs[base + cell - before * step] = before;
+            runs[base + cell + after * step] = after;
+        }
+        int previous = history[record + 1];
+        lastX = previous / width;
+        lastY = previous % width;
+        lastMoveWon = history[record + 2] != 0;
+        moveCount--;
+        updateStatus();
+        publish();
+        if (recorder != null) {
+            recorder.moveUndone(this);
+        }
+        Metrics metrics = instrumented ? Metrics.get() : null;
+        if (metrics != null) {
+            metrics.moveUndone();
+        }
+        notifyListeners(cell);
+        return true;
+    }
 
-            flag = true;
-            // Check the column of the last move
-            for (int x = 1; x < SIZE; x++) {
-                if (grid[0][lastY] != grid[x][lastY]) {
-                    flag = false;
-                    break;
-                }
+    /**
+     * Replay the last move taken back by unmakeMove().
+     *
+     * @return True if a move was replayed, false if there was none
+     */
+    public boolean redoMove() {
+        if (redoable == 0) {
+            return false;
+        }
+        redoable--;
+        int cell = history[undoable * RECORD];
+        place(cell);
+        if (recorder != null) {
+            recorder.moveMade(this, cell);
+        }
+        Metrics metrics = instrumented ? Metrics.get() : null;
+        if (metrics != null) {
+            metrics.moveRedone();
+        }
+        notifyListeners(cell);
+        return true;
+    }
+
+    /**
+     * Check whether there is a move that unmakeMove() can take back.
+     *
+     * @return True if a move can be undone
+     */
+    public boolean canUndo() {
+        return undoable > 0;
+    }
+
+    /**
+     * Get the number of moves that can be taken back. It is the number of
+     * moves played since the Board was reset, unless the Board was loaded from
+     * a saved position rather than played.
+     *
+     * @return The length of the move history
+     */
+    public int getHistorySize() {
+        return undoable;
+    }
+
+    /**
+     * Get a move from the history of moves that can be taken back.
+     *
+     * @param index The index of the move, 0 being the oldest
+     * @return The cell of the move (x * width + y)
+     */
+    public int getHistoryMove(int index) {
+        if (index < 0 || index >= undoable) {
+            throw new IndexOutOfBoundsException("Move " + index + " is not in the history of " + undoable);
+        }
+        return history[index * RECORD];
+    }
+
+    /**
+     * Check whether there is a move that redoMove() can replay.
+     *
+     * @return True if a move can be redone
+     */
+    public boolean canRedo() {
+        return redoable > 0;
+    }
+
+    /**
+     * Place the current player's piece on an empty cell, and push its move
+     * record.
+     *
+     * @param cell The cell to place the piece on
+     */
+    private void place(int cell) {
+        int record = undoable * RECORD;
+        if (record + RECORD > history.length) {
+            history = Arrays.copyOf(history, 2 * history.length);
+        }
+        history[record] = cell;
+        history[record + 1] = lastX * width + lastY;
+        history[record + 2] = lastMoveWon ? 1 : 0;
+        undoable++;
+
+        long[] bits = turn ? xBits : oBits;
+        setBit(bits, cell);
+        toggleHashes(cell, turn ? 0 : 1);
+        if (threats != null) {
+            threats.place(cell, turn ? 0 : 1);
+        }
+        // The state check proper: whether the move won, drew or neither
+        Metrics metrics = instrumented ? Metrics.get() : null;
+        long start = metrics == null ? 0L : System.nanoTime();
+        lastMoveWon = joinRuns(bits, cell / width, cell % width, record);
+        turn = !turn;
+        // Used to simplify winning board calculations in boardState()
+        // Does make the class less cohesive at the cost of efficiency
+        lastX = cell / width;
+        lastY = cell % width;
+        moveCount++;
+        updateStatus();
+        if (metrics != null) {
+            metrics.stateChecked(System.nanoTime() - start);
+        }
+        publish();
+    }
+
+    /**
+     * Bring the cached state of the game up to date after the pieces changed.
+     */
+    private void updateStatus() {
+        if (lastMoveWon) {
+            status = GameEvent.Status.WINNER;
+        } else if (moveCount == cells) {
+            // The game is a draw if all of the tiles are filled
+            status = GameEvent.Status.DRAW;
+        } else {
+            status = GameEvent.Status.NO_WINNER;
+        }
+    }
+
+    /**
+     * Merge a newly placed piece with the runs ending next to it in every
+     * direction, and store the new run lengths at the new run ends.
+     *
+     * @param bits   The bitboard of the player who placed the piece
+     * @param x      The x coordinate of the piece
+     * @param y      The y coordinate of the piece
+     * @param record The move record to save the joined runs in, or -1
+     * @return True if any of the new runs is long enough to win
+     */
+    private boolean joinRuns(long[] bits, int x, int y, int record) {
+        int cell = x * width + y;
+        boolean won = false;
+        for (int d = 0; d < DX.length; d++) {
+            int before = runEndingAt(bits, d, x - DX[d], y - DY[d]);
+            int after = runEndingAt(bits, d, x + DX[d], y + DY[d]);
+            int length = before + after + 1;
+            if (record >= 0) {
+                history[record + 3 + 2 * d] = before;
+                history[record + 4 + 2 * d] = after;
             }
-            if (flag) {
-                return new GameEvent(this, GameEvent.Status.WINNER, turn);
+            int step = DX[d] * width + DY[d];
+            int base = d * cells;
+            runs[base + cell] = length;
+            runs[base + cell - before * step] = length;
+            runs[base + cell + after * step] = length;
+            if (length >= winLength) {
+                won = true;
             }
+        }
+        return won;
+    }
 
-            // Check the top left to bottom right diagonal (if a move was played along it)
-            if (lastX == lastY) {
-                flag = true;
-                for (int i = 1; i < SIZE; i++) {
-                    if (grid[0][0] != grid[i][i]) {
-                        flag = false;
-                        break;
-                    }
-                }
-                if (flag) {
-                    return new GameEvent(this, GameEvent.Status.WINNER, turn);
-                }
+    /**
+     * Check whether placing a piece on an empty cell would give its player a
+     * line of the win length, from the runs either side of the cell. The
+     * Board is not changed.
+     *
+     * @param x     The x coordinate of the empty cell
+     * @param y     The y coordinate of the empty cell
+     * @param piece The piece to place, 'x' or 'o'
+     * @return True if the piece would win
+     */
+    public boolean completesLine(int x, int y, char piece) {
+        long[] bits = piece == 'x' ? xBits : oBits;
+        for (int d = 0; d < DX.length; d++) {
+            int before = runEndingAt(bits, d, x - DX[d], y - DY[d]);
+            int after = runEndingAt(bits, d, x + DX[d], y + DY[d]);
+            if (before + 1 + after >= winLength) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            // Check the top right to bottom left diagonal (if a move was played along it)
-            if (lastX == SIZE - 1 - lastY) {
-                flag = true;
-                for (int i = 1; i < SIZE; i++)
-                    if (grid[0][SIZE - 1] != grid[i][SIZE - 1 - i]) {
-                        flag = false;
-                        break;
-                    }
-                if (flag)
-                    return new GameEvent(this, GameEvent.Status.WINNER, turn);
-            }
+    /**
+     * Get the length of the run a neighbouring cell ends, if it belongs to the
+     * given player.
+     *
+     * @param bits The bitboard of the player
+     * @param d    The direction of the run
+     * @param x    The x coordinate of the neighbouring cell
+     * @param y    The y coordinate of the neighbouring cell
+     * @return The length of the run, or 0 if the cell is not the player's
+     */
+    private int runEndingAt(long[] bits, int d, int x, int y) {
+        if (!isOnBoard(x, y)) {
+            return 0;
         }
-        // The game is a draw if all of the tiles are filled
-        if (moveCount == SIZE * SIZE) {
-            return new GameEvent(this, GameEvent.Status.DRAW, turn);
+        int cell = x * width + y;
+        return testBit(bits, cell) ? runs[d * cells + cell] : 0;
+    }
+
+    /**
+     * Recompute the run lengths of every direction from the bitboards. Used
+     * when a Board is restored rather than played move by move.
+     */
+    private void rebuildRuns() {
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = 0;
+        }
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
+                int cell = x * width + y;
+                if (testBit(xBits, cell)) {
+                    joinRuns(xBits, x, y, -1);
+                } else if (testBit(oBits, cell)) {
+                    joinRuns(oBits, x, y, -1);
+                }
+            }
         }
+    }
 
-        return new GameEvent(this, GameEvent.Status.NO_WINNER, turn);
+    private boolean isOnBoard(int x, int y) {
+        return x >= 0 && y >= 0 && x < height && y < width;
+    }
+
+    /**
+     * Return the current state of the Board. A Board can be in a winning state, a
+     * draw state, or a not won state.
+     *
+     * @return A GameEvent representing the current state of the board.
+     */
+    public GameEvent boardState() {
+        return new GameEvent(this, status, turn);
+    }
+
+    /**
+     * Get the current state of the game without creating a GameEvent.
+     *
+     * @return WINNER if the last move won, DRAW if the Board is full, and
+     *         NO_WINNER otherwise
+     */
+    public GameEvent.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the player who won the game.
+     *
+     * @return 'x' or 'o' if the game has been won, ' ' otherwise
+     */
+    public char getWinner() {
+        if (status != GameEvent.Status.WINNER) {
+            return ' ';
+        }
+        // The winner made the last move, so it is now the other player's turn
+        return turn ? 'o' : 'x';
     }
 
     /**
      * Return the character at the specified position
-     * 
+     *
      * @param x The x coordinate to check
      * @param y The y coordinate to check
      * @return The character located at the passed x and y coordinates
      */
     public char getCharacter(int x, int y) {
-        return grid[x][y];
+        if (!isOnBoard(x, y)) {
+            throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is not on the Board");
+        }
+        int cell = x * width + y;
+        if (testBit(xBits, cell)) {
+            return 'x';
+        }
+        return testBit(oBits, cell) ? 'o' : ' ';
     }
-    
+
     /**
      * Get the current player's turn
-     * 
+     *
      * @return The current player's turn (true for X, false for O)
      */
     public boolean getCurrentTurn() {
         return turn;
     }
 
+    /**
+     * Get the number of pieces on the Board.
+     *
+     * @return The number of moves made since the Board was last reset
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the cell of the last move made.
+     *
+     * @return The cell (x * width + y), or -1 if the Board is empty
+     */
+    public int getLastMove() {
+        return moveCount == 0 ? -1 : lastX * width + lastY;
+    }
+
+    /**
+     * Get the Zobrist hash of the current position. Boards of the same size
+     * holding the same pieces have the same hash.
+     *
+     * @return The hash of the position
+     */
+    public long getHash() {
+        return hashes[0];
+    }
+
+    /**
+     * Get the number of symmetries of the Board: 8 for a square Board, 4
+     * otherwise. Symmetry 0 is the identity.
+     *
+     * @return The number of symmetries
+     */
+    public int getSymmetryCount() {
+        return hashes.length;
+    }
+
+    /**
+     * Get the Zobrist hash of the position's image under a symmetry.
+     *
+     * @param symmetry The symmetry, from 0 to getSymmetryCount() - 1
+     * @return The hash of the transformed position
+     */
+    public long getSymmetricHash(int symmetry) {
+        return hashes[symmetry];
+    }
+
+    /**
+     * Get the symmetry that maps the position to its canonical form, the image
+     * with the smallest hash. Equivalent positions share a canonical form.
+     *
+     * @return The canonical symmetry
+     */
+    public int getCanonicalSymmetry() {
+        int best = 0;
+        for (int s = 1; s < hashes.length; s++) {
+            if (hashes[s] < hashes[best]) {
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Get the hash of the position's canonical form. It is the same for every
+     * rotation and reflection of the position.
+     *
+     * @return The canonical hash
+     */
+    public long getCanonicalHash() {
+        return hashes[getCanonicalSymmetry()];
+    }
+
+    /**
+     * Map a cell of this Board to where it lies in the image under a symmetry.
+     * Used to translate a move into the canonical orientation.
+     *
+     * @param symmetry The symmetry
+     * @param cell     The cell (x * width + y)
+     * @return The cell in the transformed orientation
+     */
+    public int transformCell(int symmetry, int cell) {
+        return geometry.transforms[symmetry * cells + cell];
+    }
+
+    /**
+     * Map a cell of the image under a symmetry back to this Board. Used to
+     * translate a move stored in the canonical orientation into a real move.
+     *
+     * @param symmetry The symmetry
+     * @param cell     The cell in the transformed orientation
+     * @return The cell (x * width + y) on this Board
+     */
+    public int inverseTransformCell(int symmetry, int cell) {
+        return geometry.inverses[symmetry * cells + cell];
+    }
+
+    /**
+     * Start tracking the candidate moves and threats of the position in a
+     * ThreatIndex, kept up to date by every move made and taken back from now
+     * on. Tracking costs a little time per move, so it is off by default and
+     * is meant for the copies search code plays on. It is not copied by
+     * serialization.
+     *
+     * @param distance How far from a piece an empty cell can be and still be a
+     *                 candidate move, counted in king moves
+     * @return The index
+     */
+    public ThreatIndex enableThreatIndex(int distance) {
+        if (distance < 1) {
+            throw new IllegalArgumentException("The candidate distance must be at least 1");
+        }
+        threats = new ThreatIndex(width, height, winLength, distance);
+        for (int cell = 0; cell < cells; cell++) {
+            if (testBit(xBits, cell)) {
+                threats.place(cell, 0);
+            } else if (testBit(oBits, cell)) {
+                threats.place(cell, 1);
+            }
+        }
+        return threats;
+    }
+
+    /**
+     * Get the candidate moves and threats of the position.
+     *
+     * @return The index, or null if enableThreatIndex() has not been called
+     */
+    public ThreatIndex getThreatIndex() {
+        return threats;
+    }
+
+    /**
+     * Start publishing a BoardSnapshot after every change, for threads other
+     * than the one playing on the Board. Snapshots cost an allocation per
+     * move, so they are off by default. They are not copied by the copy
+     * constructor or by serialization.
+     *
+     * @return The snapshot of the current position
+     */
+    public BoardSnapshot enableSnapshots() {
+        if (snapshot == null) {
+            snapshot = takeSnapshot(0);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Get the last position published. It is safe to call from any thread.
+     *
+     * @return The snapshot, or null if enableSnapshots() has not been called
+     */
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Publish a snapshot of the position if snapshots are enabled.
+     */
+    private void publish() {
+        BoardSnapshot previous = snapshot;
+        if (previous != null) {
+            snapshot = takeSnapshot(previous.getVersion() + 1);
+        }
+    }
+
+    private BoardSnapshot takeSnapshot(long version) {
+        return new BoardSnapshot(width, height, winLength, xBits.clone(), oBits.clone(), turn, moveCount,
+                getLastMove(), status, hashes[0], version);
+    }
+
+    /**
+     * Get the number of columns on the Board.
+     *
+     * @return The range of valid y coordinates
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the number of rows on the Board.
+     *
+     * @return The range of valid x coordinates
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of pieces in a row needed to win.
+     *
+     * @return The win length of the Board
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
     /**
      * Add a listener to this Board.
      *
      * @param boardListener The listener to add
      */
-    public void addListener(BoardListener boardListener) {
-        if (boardListeners == null) {
-            boardListeners = new ArrayList<>();
+    public synchronized void addListener(BoardListener boardListener) {
+        for (Subscription subscription : boardListeners) {
+            if (subscription.listener.equals(boardListener)) {
+                return;
+            }
+        }
+        boardListeners.add(new Subscription(this, boardListener));
+    }
+
+    /**
+     * Remove a listener from this Board.
+     *
+     * @param boardListener The listener to remove
+     */
+    public synchronized void removeListener(BoardListener boardListener) {
+        boardListeners.removeIf(subscription -> subscription.listener.equals(boardListener));
+    }
+
+    /**
+     * Deliver change notifications asynchronously. Changes made while a
+     * listener's notification is still waiting to run are coalesced into it.
+     *
+     * @param executor The executor to run listeners on (e.g.
+     *                 SwingUtilities::invokeLater), or null to run them on the
+     *                 thread that changed the Board
+     */
+    public void setListenerExecutor(Executor executor) {
+        listenerExecutor = executor;
+    }
+
+    /**
+     * Set the MoveRecorder told about every change to this Board. It is not
+     * copied to copies of the Board, nor saved with it.
+     *
+     * @param recorder The MoveRecorder, or null to stop recording
+     */
+    public void setMoveRecorder(MoveRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Notify all listeners that a cell of the Board has changed.
+     *
+     * @param cell The cell that changed
+     */
+    private void notifyListeners(int cell) {
+        Executor executor = listenerExecutor;
+        // Asynchronous listeners are timed where they run
+        Metrics metrics = executor == null && !boardListeners.isEmpty() ? Metrics.get() : null;
+        long start = metrics == null ? 0L : System.nanoTime();
+        for (Subscription subscription : boardListeners) {
+            subscription.markDirty(cell);
+            if (executor == null) {
+                subscription.listener.handleBoardChange(subscription.drain());
+            } else if (subscription.pending.compareAndSet(false, true)) {
+                executor.execute(subscription);
+            }
         }
-        if (!boardListeners.contains(boardListener)) {
-            boardListeners.add(boardListener);
+        if (metrics != null) {
+            metrics.listenersNotified(boardListeners.size(), System.nanoTime() - start);
         }
     }
 
     /**
-     * Notify all listeners that the Board has changed.
+     * This class represents a registered listener, the cells changed since it
+     * was last notified, and whether a notification for it is waiting to run
+     * on the listener executor.
      */
-    private void notifyListeners() {
-        boardListeners.forEach(BoardListener::handleBoardChange);
+    private static final class Subscription implements Runnable {
+        // Beyond this many changed cells, a full update is cheaper to describe.
+        private static final int MAX_DIRTY = 64;
+
+        private final Board board;
+        private final BoardListener listener;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private int[] dirty = new int[4];
+        private int dirtyCount;
+        private boolean full;
+
+        private Subscription(Board board, BoardListener listener) {
+            this.board = board;
+            this.listener = listener;
+        }
+
+        private synchronized void markDirty(int cell) {
+            if (full) {
+                return;
+            }
+            if (dirtyCount == MAX_DIRTY) {
+                full = true;
+                return;
+            }
+            if (dirtyCount == dirty.length) {
+                dirty = Arrays.copyOf(dirty, 2 * dirty.length);
+            }
+            dirty[dirtyCount++] = cell;
+        }
+
+        private synchronized void markAll() {
+            full = true;
+        }
+
+        /**
+         * Take the cells changed since the last notification.
+         */
+        private synchronized BoardChange drain() {
+            BoardChange change = new BoardChange(board, full ? null : Arrays.copyOf(dirty, dirtyCount), dirtyCount);
+            dirtyCount = 0;
+            full = false;
+            return change;
+        }
+
+        @Override
+        public void run() {
+            // Cleared first, so a change made while the listener runs schedules it again
+            pending.set(false);
+            Metrics metrics = Metrics.get();
+            long start = metrics == null ? 0L : System.nanoTime();
+            listener.handleBoardChange(drain());
+            if (metrics != null) {
+                metrics.listenersNotified(1, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Write the Board using the original char grid representation.
+     *
+     * @param out The stream to write to
+     * @throws IOException If the Board could not be written
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        char[][] grid = new char[height][width];
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
+                grid[x][y] = getCharacter(x, y);
+            }
+        }
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("grid", grid);
+        fields.put("turn", turn);
+        fields.put("moveCount", moveCount);
+        fields.put("lastX", lastX);
+        fields.put("lastY", lastY);
+        fields.put("winLength", winLength);
+        out.writeFields();
+    }
+
+    /**
+     * Read a Board written in the original char grid representation and rebuild
+     * its bitboards and run lengths.
+     *
+     * @param in The stream to read from
+     * @throws IOException If the Board could not be read
+     * @throws ClassNotFoundException If a serialized class could not be found
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        char[][] grid = (char[][]) fields.get("grid", null);
+        if (grid == null || grid.length == 0 || grid[0] == null || grid[0].length == 0) {
+            throw new InvalidObjectException("Saved Board has no grid");
+        }
+        int rows = grid.length;
+        int columns = grid[0].length;
+        if ((long) rows * columns > MAX_CELLS) {
+            throw new InvalidObjectException("Saved Board has more than " + MAX_CELLS + " cells");
+        }
+        // Games saved before the win length was configurable were won by a full line
+        int length = fields.defaulted("winLength") ? Math.min(rows, columns) : fields.get("winLength", 0);
+        if (length < 1 || length > Math.max(rows, columns)) {
+            throw new InvalidObjectException("Saved win length " + length + " does not fit the grid");
+        }
+        initialize(columns, rows, length);
+        byte[] pieces = new byte[cells];
+        for (int x = 0; x < rows; x++) {
+            if (grid[x] == null || grid[x].length != columns) {
+                throw new InvalidObjectException("Saved grid is not rectangular");
+            }
+            for (int y = 0; y < columns; y++) {
+                pieces[x * width + y] = grid[x][y] == 'x' ? (byte) 1 : grid[x][y] == 'o' ? (byte) 2 : 0;
+            }
+        }
+        int lastCell = fields.get("lastX", 0) * width + fields.get("lastY", 0);
+        restorePieces(pieces, fields.get("turn", true), fields.get("moveCount", 0), lastCell);
+        boardListeners = new CopyOnWriteArrayList<>();
+        instrumented = true;
+    }
+
+    /**
+     * Construct a Board holding a position rather than a sequence of moves.
+     * The position has no moves to undo.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @param pieces    The piece on each cell (x * width + y): 0 for empty, 1
+     *                  for X and 2 for O
+     * @param turn      The current player's turn (true for X, false for O)
+     * @param lastCell  The cell of the last move made
+     * @return The Board
+     */
+    static Board restore(int width, int height, int winLength, byte[] pieces, boolean turn, int lastCell) {
+        Board board = new Board(width, height, winLength);
+        int count = 0;
+        for (byte piece : pieces) {
+            if (piece != 0) {
+                count++;
+            }
+        }
+        board.restorePieces(pieces, turn, count, lastCell);
+        return board;
+    }
+
+    /**
+     * Place the pieces of a position on an empty Board and rebuild its
+     * incremental state.
+     *
+     * @param pieces    The piece on each cell: 0 for empty, 1 for X and 2 for O
+     * @param turn      The current player's turn
+     * @param moveCount The number of pieces on the Board
+     * @param lastCell  The cell of the last move made
+     */
+    private void restorePieces(byte[] pieces, boolean turn, int moveCount, int lastCell) {
+        for (int cell = 0; cell < cells; cell++) {
+            if (pieces[cell] == 1) {
+                setBit(xBits, cell);
+                toggleHashes(cell, 0);
+            } else if (pieces[cell] == 2) {
+                setBit(oBits, cell);
+                toggleHashes(cell, 1);
+            }
+        }
+        rebuildRuns();
+        this.turn = turn;
+        this.moveCount = moveCount;
+        lastX = lastCell / width;
+        lastY = lastCell % width;
+        lastMoveWon = false;
+        if (moveCount > 0 && isOnBoard(lastX, lastY) && getCharacter(lastX, lastY) != ' ') {
+            int cell = lastX * width + lastY;
+            for (int d = 0; d < DX.length; d++) {
+                if (runs[d * cells + cell] >= winLength) {
+                    lastMoveWon = true;
+                }
+            }
+        }
+        updateStatus();
     }
 }
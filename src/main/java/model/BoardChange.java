@@ -0,0 +1,67 @@
+package model;
+
+import java.util.EventObject;
+
+/**
+ * This class represents the cells of a Board that changed since a listener
+ * was last notified, so that the listener can redraw only those cells.
+ *
+ * A change is either a list of cells (each x * width + y, possibly repeated)
+ * or a full update, meaning any cell may have changed. Full updates are sent
+ * after the Board is reset, and when a burst of changes coalesced into one
+ * notification touched too many cells to be worth listing.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class BoardChange extends EventObject {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] cells;
+    private final int cellCount;
+
+    /**
+     * Construct a new BoardChange.
+     *
+     * @param source    The Board that changed
+     * @param cells     The changed cells, or null for a full update
+     * @param cellCount The number of changed cells in the array
+     */
+    public BoardChange(Board source, int[] cells, int cellCount) {
+        super(source);
+        this.cells = cells;
+        this.cellCount = cells == null ? 0 : cellCount;
+    }
+
+    /**
+     * Check whether any cell may have changed.
+     *
+     * @return True if the whole Board should be redrawn
+     */
+    public boolean isFullUpdate() {
+        return cells == null;
+    }
+
+    /**
+     * Get the number of changed cells. Always 0 for a full update.
+     *
+     * @return The number of changed cells
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * Get a changed cell.
+     *
+     * @param index The index of the cell, from 0 to getCellCount() - 1
+     * @return The cell (x * width + y)
+     */
+    public int getCell(int index) {
+        if (index < 0 || index >= cellCount) {
+            throw new IndexOutOfBoundsException("Change " + index + " of " + cellCount);
+        }
+        return cells[index];
+    }
+}
@@ -0,0 +1,308 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import metrics.Metrics;
+
+/**
+ * This class reads and writes Boards in a compact, versioned binary format.
+ *
+ * A game takes a 4 byte header (the magic bytes "TT", the version and a flags
+ * byte), the width, height and win length as varints, then one of two bodies:
+ *
+ * MOVES  The number of moves, then each move's cell as a varint, oldest
+ *        first. Decoding replays them, so the moves can still be undone.
+ * CELLS  The cell of the last move plus one (0 if there is none) as a varint,
+ *        then 2 bits per cell (0 empty, 1 X, 2 O), four cells per byte. Used
+ *        for Boards whose move history is incomplete, such as games loaded
+ *        from the legacy format. The turn is kept in the flags.
+ *
+ * A finished 3x3 game takes at most 17 bytes. Boards are encoded to and
+ * decoded from ByteBuffers directly, so a stream of games can be written back
+ * to back into a single buffer or mapped file.
+ *
+ * Files written with Java object serialization by earlier versions are still
+ * read, through a stream that refuses every class but a Board and its grid.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class BoardCodec {
+
+    /**
+     * The current version of the format.
+     */
+    public static final int VERSION = 1;
+    private static final byte MAGIC_0 = 'T';
+    private static final byte MAGIC_1 = 'T';
+    // Flags: the body holds the move list rather than the cells.
+    private static final int FLAG_MOVES = 1;
+    // Flags: it is X's turn (CELLS bodies only).
+    private static final int FLAG_X_TURN = 2;
+    // The first two bytes of a Java object serialization stream.
+    private static final int SERIALIZATION_MAGIC = 0xACED;
+
+    private BoardCodec() {
+    }
+
+    /**
+     * Get the number of bytes encode() will write for a Board.
+     *
+     * @param board The Board
+     * @return The encoded size in bytes
+     */
+    public static int encodedSize(Board board) {
+        int size = 4 + varintSize(board.getWidth()) + varintSize(board.getHeight())
+                + varintSize(board.getWinLength());
+        if (hasFullHistory(board)) {
+            size += varintSize(board.getHistorySize());
+            for (int i = 0; i < board.getHistorySize(); i++) {
+                size += varintSize(board.getHistoryMove(i));
+            }
+        } else {
+            size += varintSize(board.getLastMove() + 1) + (board.getWidth() * board.getHeight() + 3) / 4;
+        }
+        return size;
+    }
+
+    /**
+     * Write a Board at the buffer's position.
+     *
+     * @param board  The Board to write
+     * @param buffer The buffer to write to, with at least encodedSize() bytes
+     *               remaining
+     * @throws java.nio.BufferOverflowException If the buffer is too small
+     */
+    public static void encode(Board board, ByteBuffer buffer) {
+        boolean moves = hasFullHistory(board);
+        int flags = moves ? FLAG_MOVES : board.getCurrentTurn() ? FLAG_X_TURN : 0;
+        buffer.put(MAGIC_0).put(MAGIC_1).put((byte) VERSION).put((byte) flags);
+        putVarint(buffer, board.getWidth());
+        putVarint(buffer, board.getHeight());
+        putVarint(buffer, board.getWinLength());
+        if (moves) {
+            putVarint(buffer, board.getHistorySize());
+            for (int i = 0; i < board.getHistorySize(); i++) {
+                putVarint(buffer, board.getHistoryMove(i));
+            }
+            return;
+        }
+        putVarint(buffer, board.getLastMove() + 1);
+        int width = board.getWidth();
+        int cells = width * board.getHeight();
+        int packed = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            char piece = board.getCharacter(cell / width, cell % width);
+            packed |= (piece == 'x' ? 1 : piece == 'o' ? 2 : 0) << (2 * (cell & 3));
+            if ((cell & 3) == 3 || cell == cells - 1) {
+                buffer.put((byte) packed);
+                packed = 0;
+            }
+        }
+    }
+
+    /**
+     * Read a Board from the buffer's position, leaving the position after it.
+     *
+     * @param buffer The buffer to read from
+     * @return The Board
+     * @throws IOException If the buffer does not hold a valid Board
+     */
+    public static Board decode(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.get() != MAGIC_0 || buffer.get() != MAGIC_1) {
+                throw new StreamCorruptedException("Not a saved Board");
+            }
+            int version = buffer.get() & 0xFF;
+            if (version != VERSION) {
+                throw new StreamCorruptedException("Unsupported save format version " + version);
+            }
+            int flags = buffer.get() & 0xFF;
+            int width = getVarint(buffer);
+            int height = getVarint(buffer);
+            int winLength = getVarint(buffer);
+            // Checked before the Board is built, so a few crafted bytes cannot
+            // make it allocate a huge Board
+            if ((long) width * height > Board.MAX_CELLS) {
+                throw new StreamCorruptedException("Saved Board has more than " + Board.MAX_CELLS + " cells");
+            }
+            Board board;
+            try {
+                board = new Board(width, height, winLength);
+            } catch (IllegalArgumentException ex) {
+                throw new StreamCorruptedException(ex.getMessage());
+            }
+            int cells = width * height;
+            if ((flags & FLAG_MOVES) != 0) {
+                int count = getVarint(buffer);
+                if (count > cells) {
+                    throw new StreamCorruptedException("Saved game has more moves than cells");
+                }
+                for (int i = 0; i < count; i++) {
+                    int cell = getVarint(buffer);
+                    if (cell >= cells || !board.makeMove(cell / width, cell % width)) {
+                        throw new StreamCorruptedException("Saved game has an illegal move " + cell);
+                    }
+                }
+                return board;
+            }
+            int lastCell = getVarint(buffer) - 1;
+            if (lastCell >= cells) {
+                throw new StreamCorruptedException("Saved last move is not on the Board");
+            }
+            if (buffer.remaining() < (cells + 3) / 4) {
+                throw new StreamCorruptedException("Saved Board is truncated");
+            }
+            byte[] pieces = new byte[cells];
+            int packed = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if ((cell & 3) == 0) {
+                    packed = buffer.get() & 0xFF;
+                }
+                pieces[cell] = (byte) ((packed >>> (2 * (cell & 3))) & 3);
+                if (pieces[cell] == 3) {
+                    throw new StreamCorruptedException("Saved cell " + cell + " holds no piece");
+                }
+            }
+            return Board.restore(width, height, winLength, pieces, (flags & FLAG_X_TURN) != 0,
+                    Math.max(lastCell, 0));
+        } catch (BufferUnderflowException ex) {
+            throw new StreamCorruptedException("Saved Board is truncated");
+        }
+    }
+
+    /**
+     * Write a Board to a file in this format.
+     *
+     * @param board The Board to write
+     * @param path  The file to write, which must not exist yet
+     * @throws IOException If the file exists or could not be written
+     */
+    public static void write(Board board, Path path) throws IOException {
+        Metrics metrics = Metrics.get();
+        long start = metrics == null ? 0L : System.nanoTime();
+        ByteBuffer buffer = ByteBuffer.allocate(encodedSize(board));
+        encode(board, buffer);
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        if (metrics != null) {
+            metrics.persisted("save", buffer.limit(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Read a Board from a file, in this format or in the legacy object
+     * serialization format.
+     *
+     * @param path The file to read
+     * @return The Board
+     * @throws IOException If the file could not be read or holds no Board
+     */
+    public static Board read(Path path) throws IOException {
+        Metrics metrics = Metrics.get();
+        long start = metrics == null ? 0L : System.nanoTime();
+        byte[] bytes = Files.readAllBytes(path);
+        Board board;
+        if (bytes.length >= 2 && ((bytes[0] & 0xFF) << 8 | (bytes[1] & 0xFF)) == SERIALIZATION_MAGIC) {
+            board = readLegacy(new ByteArrayInputStream(bytes));
+        } else {
+            board = decode(ByteBuffer.wrap(bytes));
+        }
+        if (metrics != null) {
+            metrics.persisted("load", bytes.length, System.nanoTime() - start);
+        }
+        return board;
+    }
+
+    /**
+     * Read a Board written with Java object serialization.
+     *
+     * @param in The stream to read from
+     * @return The Board
+     * @throws IOException If the stream holds anything but a Board
+     */
+    public static Board readLegacy(InputStream in) throws IOException {
+        try (ObjectInputStream objects = new BoardInputStream(in)) {
+            return (Board) objects.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new InvalidClassException("Saved file does not hold a Board: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * This class represents an object stream that only resolves the classes a
+     * serialized Board is made of, so that a crafted file cannot instantiate
+     * anything else.
+     */
+    private static final class BoardInputStream extends ObjectInputStream {
+
+        private BoardInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass descriptor) throws IOException, ClassNotFoundException {
+            String name = descriptor.getName();
+            if (!name.equals(Board.class.getName()) && !name.equals("[[C") && !name.equals("[C")) {
+                throw new InvalidClassException(name, "Not part of a saved Board");
+            }
+            return super.resolveClass(descriptor);
+        }
+    }
+
+    /**
+     * Check whether a Board's move history covers every piece on it, so it can
+     * be saved as a move list.
+     */
+    private static boolean hasFullHistory(Board board) {
+        return board.getHistorySize() == board.getMoveCount();
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) throws StreamCorruptedException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    break;
+                }
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Saved number is out of range");
+    }
+}
@@ -0,0 +1,177 @@
+package model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * This class holds the tables shared by every Board of the same dimensions and
+ * win length: the Zobrist keys of each cell, and the cell permutations of each
+ * symmetry of the Board. The keys are drawn from a sequence seeded by the
+ * dimensions and win length, so positions of different games do not share
+ * hashes.
+ *
+ * A square Board has 8 symmetries (the identity, three rotations and four
+ * reflections), while any other Board has 4 (the identity, the two mirror
+ * images and the half turn). Symmetry 0 is always the identity.
+ *
+ * The tables of the most recently used games are kept and shared, up to
+ * CACHED_CELLS cells in all. The least recently used tables are dropped to
+ * make room for new ones, so no sequence of Board sizes can make the cache
+ * grow without bound, and copies of a Board share its tables whether or not
+ * they are still cached.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+final class BoardGeometry {
+
+    // Seed of the Zobrist keys, fixed so hashes are stable across runs.
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+    // The most cells the cached tables can cover in all, enough for a few of
+    // the largest Boards.
+    static final int CACHED_CELLS = 4 * Board.MAX_CELLS;
+    // Tables already built, keyed by dimensions and win length, least recently
+    // used first. Guarded by its own lock.
+    private static final LinkedHashMap<Long, BoardGeometry> CACHE = new LinkedHashMap<>(16, 0.75f, true);
+    // The number of cells covered by the cached tables.
+    private static int cachedCells;
+
+    final int width, height, winLength, cells, symmetries;
+    // The Zobrist key of each cell for X (even index) and O (odd index).
+    final long[] zobrist;
+    // The image of each cell under each symmetry (cells ints per symmetry).
+    final int[] transforms;
+    // The inverse of each symmetry, laid out like transforms.
+    final int[] inverses;
+
+    /**
+     * Get the tables for a Board of the given dimensions and win length.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @return The tables for that game, shared while they are cached
+     */
+    static BoardGeometry of(int width, int height, int winLength) {
+        // Each value fits in 21 bits, as a Board has at most 2^16 cells
+        long key = (long) width << 42 | (long) height << 21 | winLength;
+        synchronized (CACHE) {
+            BoardGeometry geometry = CACHE.get(key);
+            if (geometry != null) {
+                return geometry;
+            }
+        }
+        // Build outside the lock, so other games are not held up
+        BoardGeometry geometry = new BoardGeometry(width, height, winLength);
+        synchronized (CACHE) {
+            BoardGeometry cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+            CACHE.put(key, geometry);
+            cachedCells += geometry.cells;
+            Iterator<BoardGeometry> eldest = CACHE.values().iterator();
+            while (cachedCells > CACHED_CELLS) {
+                cachedCells -= eldest.next().cells;
+                eldest.remove();
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * Get the number of cells covered by the cached tables.
+     *
+     * @return The size of the cache
+     */
+    static int cachedCells() {
+        synchronized (CACHE) {
+            return cachedCells;
+        }
+    }
+
+    private BoardGeometry(int width, int height, int winLength) {
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        cells = width * height;
+        symmetries = width == height ? 8 : 4;
+        zobrist = createZobristKeys(width, height, winLength);
+        transforms = new int[symmetries * cells];
+        inverses = new int[symmetries * cells];
+        for (int s = 0; s < symmetries; s++) {
+            for (int cell = 0; cell < cells; cell++) {
+                int image = transform(s, cell / width, cell % width);
+                transforms[s * cells + cell] = image;
+                inverses[s * cells + image] = cell;
+            }
+        }
+    }
+
+    /**
+     * Generate the Zobrist keys for a Board. The keys come from a SplitMix64
+     * sequence started from a mix of the seed, dimensions and win length, so
+     * every Board of the same game gets the same keys, and Boards of other
+     * games get unrelated ones.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @return Two keys per cell, X's key followed by O's key
+     */
+    private static long[] createZobristKeys(int width, int height, int winLength) {
+        long[] keys = new long[2 * width * height];
+        // Mixing the start apart keeps the sequences of different games from
+        // overlapping, as sequences started a few steps apart would
+        long state = mix(ZOBRIST_SEED ^ ((long) width << 42 | (long) height << 21 | winLength));
+        for (int i = 0; i < keys.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(state);
+        }
+        return keys;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Map a cell through a symmetry.
+     *
+     * @param s The symmetry
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     * @return The cell it maps to
+     */
+    private int transform(int s, int x, int y) {
+        int lastX = height - 1;
+        int lastY = width - 1;
+        switch (s) {
+        case 1:
+            // Mirror top to bottom
+            return (lastX - x) * width + y;
+        case 2:
+            // Mirror left to right
+            return x * width + lastY - y;
+        case 3:
+            // Half turn
+            return (lastX - x) * width + lastY - y;
+        case 4:
+            // Quarter turn clockwise (square Boards only from here on)
+            return y * width + lastX - x;
+        case 5:
+            // Quarter turn anticlockwise
+            return (lastY - y) * width + x;
+        case 6:
+            // Mirror along the main diagonal
+            return y * width + x;
+        case 7:
+            // Mirror along the anti-diagonal
+            return (lastY - y) * width + lastX - x;
+        default:
+            return x * width + y;
+        }
+    }
+}
@@ -10,4 +10,16 @@ package model;
 public interface BoardListener {
 	// Called when the Board changes. Updates GameView accordingly.
     void handleBoardChange();
-}
\ No newline at end of file
+
+    /**
+     * Called when the Board changes, with the cells that changed since this
+     * listener was last notified. Listeners that redraw cell by cell should
+     * override this; by default it ignores the change and calls
+     * handleBoardChange().
+     *
+     * @param change The cells that changed
+     */
+    default void handleBoardChange(BoardChange change) {
+        handleBoardChange();
+    }
+}
@@ -0,0 +1,158 @@
+package model;
+
+/**
+ * This class represents an immutable copy of a Board's position, published by
+ * a Board in snapshot mode after every change so that other threads can read
+ * it while the game goes on.
+ *
+ * A snapshot is never modified once it has been published, so any number of
+ * threads can read it without locking and always see a consistent position:
+ * its pieces, turn, move count and status all belong to the same moment of
+ * the game.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class BoardSnapshot {
+
+    private final int width, height, winLength;
+    private final long[] xBits;
+    private final long[] oBits;
+    private final boolean turn;
+    private final int moveCount, lastMove;
+    private final GameEvent.Status status;
+    private final long hash, version;
+
+    /**
+     * Construct a new BoardSnapshot. The bitboards are owned by the snapshot
+     * from now on and must not be changed.
+     */
+    BoardSnapshot(int width, int height, int winLength, long[] xBits, long[] oBits, boolean turn, int moveCount,
+            int lastMove, GameEvent.Status status, long hash, long version) {
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.xBits = xBits;
+        this.oBits = oBits;
+        this.turn = turn;
+        this.moveCount = moveCount;
+        this.lastMove = lastMove;
+        this.status = status;
+        this.hash = hash;
+        this.version = version;
+    }
+
+    /**
+     * Return the character at the specified position.
+     *
+     * @param x The x coordinate to check
+     * @param y The y coordinate to check
+     * @return 'x', 'o', or ' ' if the cell is empty
+     */
+    public char getCharacter(int x, int y) {
+        if (x < 0 || x >= height || y < 0 || y >= width) {
+            throw new ArrayIndexOutOfBoundsException("(" + x + ", " + y + ") is not on the Board");
+        }
+        int cell = x * width + y;
+        if ((xBits[cell >>> 6] & (1L << cell)) != 0) {
+            return 'x';
+        }
+        return (oBits[cell >>> 6] & (1L << cell)) != 0 ? 'o' : ' ';
+    }
+
+    /**
+     * Get the state of the game.
+     *
+     * @return WINNER if the last move won, DRAW if the Board is full, and
+     *         NO_WINNER otherwise
+     */
+    public GameEvent.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the player who won the game.
+     *
+     * @return 'x' or 'o' if the game has been won, ' ' otherwise
+     */
+    public char getWinner() {
+        if (status != GameEvent.Status.WINNER) {
+            return ' ';
+        }
+        return turn ? 'o' : 'x';
+    }
+
+    /**
+     * Get the current player's turn
+     *
+     * @return The current player's turn (true for X, false for O)
+     */
+    public boolean getCurrentTurn() {
+        return turn;
+    }
+
+    /**
+     * Get the number of pieces on the Board.
+     *
+     * @return The number of moves made since the Board was last reset
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the cell of the last move made.
+     *
+     * @return The cell (x * width + y), or -1 if the Board is empty
+     */
+    public int getLastMove() {
+        return lastMove;
+    }
+
+    /**
+     * Get the Zobrist hash of the position, as returned by Board.getHash().
+     *
+     * @return The hash of the position
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the number of the change this snapshot was published after. Every
+     * change to the Board publishes a snapshot with a higher version, so a
+     * reader can tell whether anything happened since it last looked.
+     *
+     * @return The version of the snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the number of columns on the Board.
+     *
+     * @return The range of valid y coordinates
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the number of rows on the Board.
+     *
+     * @return The range of valid x coordinates
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of pieces in a row needed to win.
+     *
+     * @return The win length of the Board
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+}
@@ -0,0 +1,192 @@
+package model;
+
+/**
+ * This class maps the cells of an unbounded Board to the pieces on them. The
+ * coordinates of a cell are packed into a long key, and the keys and pieces
+ * are held in two parallel arrays with open addressing and linear probing, so
+ * looking up, adding and removing a piece allocate nothing. The arrays double
+ * whenever they become half full.
+ *
+ * A piece of 0 marks an empty slot, so only non-zero pieces can be stored.
+ * Removal shifts the following entries of the probe sequence back instead of
+ * leaving tombstones, so a map that has pieces taken back never slows down.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+final class CellMap {
+
+    // The smallest number of slots.
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private byte[] pieces;
+    private int mask;
+    private int size;
+
+    /**
+     * Construct a new empty CellMap.
+     */
+    CellMap() {
+        keys = new long[MIN_CAPACITY];
+        pieces = new byte[MIN_CAPACITY];
+        mask = MIN_CAPACITY - 1;
+    }
+
+    /**
+     * Pack the coordinates of a cell into a key.
+     *
+     * @param x The x coordinate of the cell
+     * @param y The y coordinate of the cell
+     * @return The key
+     */
+    static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get the x coordinate packed into a key.
+     */
+    static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    /**
+     * Get the y coordinate packed into a key.
+     */
+    static int y(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Find the slot to start probing for a key at. The key is mixed with the
+     * SplitMix64 finalizer, as the coordinates of neighbouring cells differ in
+     * only a few bits.
+     */
+    private int slot(long key) {
+        long z = key;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (int) (z ^ (z >>> 31)) & mask;
+    }
+
+    /**
+     * Get the piece on a cell.
+     *
+     * @param key The key of the cell
+     * @return The piece, or 0 if the cell is empty
+     */
+    byte get(long key) {
+        for (int i = slot(key);; i = (i + 1) & mask) {
+            if (pieces[i] == 0 || keys[i] == key) {
+                return pieces[i];
+            }
+        }
+    }
+
+    /**
+     * Put a piece on a cell, replacing any piece already there.
+     *
+     * @param key   The key of the cell
+     * @param piece The piece, which must not be 0
+     */
+    void put(long key, byte piece) {
+        if (piece == 0) {
+            throw new IllegalArgumentException("An empty cell cannot be stored");
+        }
+        int i = slot(key);
+        for (; pieces[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                pieces[i] = piece;
+                return;
+            }
+        }
+        keys[i] = key;
+        pieces[i] = piece;
+        if (++size > (mask + 1) >>> 1) {
+            resize(2 * (mask + 1));
+        }
+    }
+
+    /**
+     * Take the piece off a cell.
+     *
+     * @param key The key of the cell
+     * @return True if there was a piece on the cell
+     */
+    boolean remove(long key) {
+        int i = slot(key);
+        for (; keys[i] != key || pieces[i] == 0; i = (i + 1) & mask) {
+            if (pieces[i] == 0) {
+                return false;
+            }
+        }
+        pieces[i] = 0;
+        size--;
+        // Move back any later entry of the probe sequence that can no longer
+        // be reached past the gap
+        for (int j = (i + 1) & mask; pieces[j] != 0; j = (j + 1) & mask) {
+            int home = slot(keys[j]);
+            boolean reachable = i <= j ? home > i && home <= j : home > i || home <= j;
+            if (!reachable) {
+                keys[i] = keys[j];
+                pieces[i] = pieces[j];
+                pieces[j] = 0;
+                i = j;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rehash every entry into new arrays.
+     *
+     * @param capacity The new number of slots, a power of two
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        byte[] oldPieces = pieces;
+        keys = new long[capacity];
+        pieces = new byte[capacity];
+        mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldPieces[i] != 0) {
+                int j = slot(oldKeys[i]);
+                while (pieces[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                pieces[j] = oldPieces[i];
+            }
+        }
+    }
+
+    /**
+     * Remove every piece. The arrays are kept, so the next game of a similar
+     * length does not need to grow them again.
+     */
+    void clear() {
+        for (int i = 0; i < pieces.length; i++) {
+            pieces[i] = 0;
+        }
+        size = 0;
+    }
+
+    /**
+     * Get the number of pieces held.
+     *
+     * @return The number of occupied cells
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of slots in the arrays.
+     *
+     * @return The capacity, at least twice the size
+     */
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,37 @@
+package model;
+
+/**
+ * This interface represents something that records every change made to a
+ * Board, such as a journal that can replay them after a crash.
+ *
+ * Unlike a BoardListener, a MoveRecorder is told exactly what changed, and is
+ * always called on the thread that changed the Board, straight after the
+ * change and before any listener.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public interface MoveRecorder {
+
+    /**
+     * Called when a move is made or replayed.
+     *
+     * @param board The Board the move was made on
+     * @param cell  The cell of the move (x * width + y)
+     */
+    void moveMade(Board board, int cell);
+
+    /**
+     * Called when the last move is taken back.
+     *
+     * @param board The Board the move was taken back on
+     */
+    void moveUndone(Board board);
+
+    /**
+     * Called when the Board is cleared for a new game.
+     *
+     * @param board The Board that was reset
+     */
+    void boardReset(Board board);
+}
@@ -0,0 +1,225 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * This class represents a game of k in a row on an unbounded plane, where any
+ * cell of any (x, y) coordinates can be played. It is the sparse counterpart
+ * of Board, which allocates every cell of a fixed grid up front.
+ *
+ * Only the occupied cells are stored, in a CellMap keyed by their packed
+ * coordinates, so memory grows with the number of moves played rather than
+ * with the area they span. Win detection only looks at the k - 1 cells on
+ * either side of the last move in each of the four directions. Moves are
+ * recorded on a primitive stack so they can be taken back, and neither making
+ * nor taking back a move allocates, except when the map or stack has to grow.
+ *
+ * There is no draw on an unbounded plane, and no move is accepted once the
+ * game has been won.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SparseBoard {
+
+    // The row and column steps of the four line directions, as on a Board.
+    private static final int[] DX = Board.DX;
+    private static final int[] DY = Board.DY;
+    // The pieces stored in the map.
+    private static final byte X = 1, O = 2;
+
+    private final int winLength;
+    private final CellMap pieces = new CellMap();
+    // The packed coordinates of every move, oldest first.
+    private long[] history = new long[16];
+    private int moveCount;
+    // Determines the current player's turn (True for X, false for O).
+    private boolean turn = true;
+    private GameEvent.Status status = GameEvent.Status.NO_WINNER;
+
+    /**
+     * Construct a new empty SparseBoard.
+     *
+     * @param winLength The number of pieces in a row needed to win
+     */
+    public SparseBoard(int winLength) {
+        if (winLength < 1) {
+            throw new IllegalArgumentException("The win length must be at least 1");
+        }
+        this.winLength = winLength;
+    }
+
+    /**
+     * Take every piece off the Board. Storage is kept for the next game.
+     */
+    public void resetBoard() {
+        pieces.clear();
+        moveCount = 0;
+        turn = true;
+        status = GameEvent.Status.NO_WINNER;
+    }
+
+    /**
+     * Make a move on the Board, if it's valid.
+     *
+     * @param x The x coordinate of the move
+     * @param y The y coordinate of the move
+     * @return True if the move was made, false if the cell is taken or the
+     *         game is over
+     */
+    public boolean makeMove(int x, int y) {
+        long key = CellMap.key(x, y);
+        if (status != GameEvent.Status.NO_WINNER || pieces.get(key) != 0) {
+            return false;
+        }
+        byte piece = turn ? X : O;
+        pieces.put(key, piece);
+        if (moveCount == history.length) {
+            history = Arrays.copyOf(history, 2 * history.length);
+        }
+        history[moveCount++] = key;
+        if (completesLine(x, y, piece)) {
+            status = GameEvent.Status.WINNER;
+        }
+        turn = !turn;
+        return true;
+    }
+
+    /**
+     * Take back the last move made on the Board.
+     *
+     * @return True if a move was taken back, false if there was none
+     */
+    public boolean unmakeMove() {
+        if (moveCount == 0) {
+            return false;
+        }
+        pieces.remove(history[--moveCount]);
+        turn = !turn;
+        // No move is made after a win, so the position before any move was open
+        status = GameEvent.Status.NO_WINNER;
+        return true;
+    }
+
+    /**
+     * Check whether a piece just placed completes a line, counting its
+     * neighbours out to winLength - 1 cells in each direction.
+     *
+     * @param x     The x coordinate of the piece
+     * @param y     The y coordinate of the piece
+     * @param piece The piece
+     * @return True if the piece is part of winLength or more in a row
+     */
+    private boolean completesLine(int x, int y, byte piece) {
+        for (int d = 0; d < DX.length; d++) {
+            int length = 1;
+            for (int i = 1; i < winLength && pieces.get(CellMap.key(x + i * DX[d], y + i * DY[d])) == piece; i++) {
+                length++;
+            }
+            for (int i = 1; i < winLength && pieces.get(CellMap.key(x - i * DX[d], y - i * DY[d])) == piece; i++) {
+                length++;
+            }
+            if (length >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the current state of the game.
+     *
+     * @return WINNER if the last move won, and NO_WINNER otherwise
+     */
+    public GameEvent.Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Get the player who won the game.
+     *
+     * @return 'x' or 'o' if the game has been won, ' ' otherwise
+     */
+    public char getWinner() {
+        if (status != GameEvent.Status.WINNER) {
+            return ' ';
+        }
+        return turn ? 'o' : 'x';
+    }
+
+    /**
+     * Return the character at the specified position.
+     *
+     * @param x The x coordinate to check
+     * @param y The y coordinate to check
+     * @return 'x', 'o', or ' ' if the cell is empty
+     */
+    public char getCharacter(int x, int y) {
+        byte piece = pieces.get(CellMap.key(x, y));
+        return piece == X ? 'x' : piece == O ? 'o' : ' ';
+    }
+
+    /**
+     * Get the current player's turn
+     *
+     * @return The current player's turn (true for X, false for O)
+     */
+    public boolean getCurrentTurn() {
+        return turn;
+    }
+
+    /**
+     * Get the number of pieces on the Board.
+     *
+     * @return The number of moves made since the Board was last reset
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the x coordinate of a move from the history.
+     *
+     * @param index The index of the move, 0 being the oldest
+     * @return The x coordinate of the move
+     */
+    public int getHistoryX(int index) {
+        return CellMap.x(historyKey(index));
+    }
+
+    /**
+     * Get the y coordinate of a move from the history.
+     *
+     * @param index The index of the move, 0 being the oldest
+     * @return The y coordinate of the move
+     */
+    public int getHistoryY(int index) {
+        return CellMap.y(historyKey(index));
+    }
+
+    private long historyKey(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + index + " is not in the history of " + moveCount);
+        }
+        return history[index];
+    }
+
+    /**
+     * Get the number of pieces in a row needed to win.
+     *
+     * @return The win length of the Board
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Get the number of cell slots allocated, which grows with the number of
+     * pieces on the Board.
+     *
+     * @return The capacity of the cell map
+     */
+    int getCapacity() {
+        return pieces.capacity();
+    }
+}
@@ -0,0 +1,432 @@
+package model;
+
+/**
+ * This class keeps track of where the interesting moves on a Board are, so
+ * that search code does not have to consider every empty cell of a large
+ * Board. It is kept up to date by the Board it belongs to as moves are made
+ * and taken back; see Board.enableThreatIndex().
+ *
+ * The candidates are the empty cells within a given distance (counted in
+ * king moves) of any piece. Each cell counts the pieces around it, so a move
+ * only touches its own neighbourhood, and the candidates are held in a dense
+ * array for constant time insertion and removal.
+ *
+ * Threats are counted over windows: every line of winLength cells on the
+ * Board. A window holding none of the opponent's pieces is a four for a player
+ * when it holds winLength - 1 of their pieces, so that its last empty cell
+ * wins, and a three when it holds winLength - 2, so that one move turns it
+ * into a four. The empty cells completing a player's fours are their winning
+ * cells. A player with two or more winning cells has a double threat, which
+ * cannot be blocked with a single move. A move updates the winLength windows
+ * through it in each of the four directions.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class ThreatIndex {
+
+    private final int width, height, winLength, cells, distance;
+    // The piece on each cell: 0 for empty, 1 for X and 2 for O.
+    private final byte[] pieces;
+    // The number of pieces within the distance of each cell, not counting the
+    // cell itself.
+    private final int[] near;
+    private final CellSet candidates;
+    // The X count (low 16 bits) and O count (high 16 bits) of the window
+    // starting at each cell, per direction (cells ints per direction).
+    private final int[] windows;
+    private final int[] fours = new int[2];
+    private final int[] threes = new int[2];
+    // The number of each player's fours completed by each cell (cells ints per
+    // player), and the cells where it is not 0.
+    private final int[] completions;
+    private final CellSet[] winningCells;
+
+    /**
+     * Construct the index of an empty Board.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @param distance  How far from a piece an empty cell can be and still be a
+     *                  candidate
+     */
+    ThreatIndex(int width, int height, int winLength, int distance) {
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.distance = distance;
+        cells = width * height;
+        pieces = new byte[cells];
+        near = new int[cells];
+        candidates = new CellSet(cells);
+        windows = new int[Board.DX.length * cells];
+        completions = new int[2 * cells];
+        winningCells = new CellSet[] { new CellSet(cells), new CellSet(cells) };
+        clear();
+    }
+
+    /**
+     * Construct a copy of another index, for a copy of its Board.
+     *
+     * @param other The index to copy
+     */
+    ThreatIndex(ThreatIndex other) {
+        width = other.width;
+        height = other.height;
+        winLength = other.winLength;
+        distance = other.distance;
+        cells = other.cells;
+        pieces = other.pieces.clone();
+        near = other.near.clone();
+        candidates = new CellSet(other.candidates);
+        windows = other.windows.clone();
+        System.arraycopy(other.fours, 0, fours, 0, 2);
+        System.arraycopy(other.threes, 0, threes, 0, 2);
+        completions = other.completions.clone();
+        winningCells = new CellSet[] { new CellSet(other.winningCells[0]), new CellSet(other.winningCells[1]) };
+    }
+
+    /**
+     * Empty the index, as for a Board that has just been reset.
+     */
+    void clear() {
+        for (int cell = 0; cell < cells; cell++) {
+            pieces[cell] = 0;
+            near[cell] = 0;
+            completions[cell] = 0;
+            completions[cells + cell] = 0;
+        }
+        candidates.clear();
+        winningCells[0].clear();
+        winningCells[1].clear();
+        for (int p = 0; p < 2; p++) {
+            fours[p] = 0;
+            threes[p] = 0;
+        }
+        // Empty windows only count as threats when winLength is below 3
+        for (int d = 0; d < Board.DX.length; d++) {
+            for (int start = 0; start < cells; start++) {
+                windows[d * cells + start] = 0;
+                if (isWindow(d, start / width, start % width)) {
+                    classify(d, start, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a piece placed on the Board.
+     *
+     * @param cell   The cell of the piece
+     * @param player 0 for X, 1 for O
+     */
+    void place(int cell, int player) {
+        // Windows are unclassified while the cell is still empty, so that the
+        // fours it completes find it as their empty cell
+        updateWindows(cell, 0);
+        pieces[cell] = (byte) (player + 1);
+        updateWindows(cell, player == 0 ? 1 : 1 << 16);
+        candidates.remove(cell);
+        int x = cell / width;
+        int y = cell % width;
+        for (int nx = Math.max(0, x - distance); nx <= Math.min(height - 1, x + distance); nx++) {
+            for (int ny = Math.max(0, y - distance); ny <= Math.min(width - 1, y + distance); ny++) {
+                int neighbour = nx * width + ny;
+                if (neighbour != cell && near[neighbour]++ == 0 && pieces[neighbour] == 0) {
+                    candidates.add(neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record a piece taken off the Board.
+     *
+     * @param cell   The cell of the piece
+     * @param player 0 for X, 1 for O
+     */
+    void remove(int cell, int player) {
+        updateWindows(cell, 0);
+        pieces[cell] = 0;
+        updateWindows(cell, player == 0 ? -1 : -(1 << 16));
+        int x = cell / width;
+        int y = cell % width;
+        for (int nx = Math.max(0, x - distance); nx <= Math.min(height - 1, x + distance); nx++) {
+            for (int ny = Math.max(0, y - distance); ny <= Math.min(width - 1, y + distance); ny++) {
+                int neighbour = nx * width + ny;
+                if (neighbour != cell && --near[neighbour] == 0) {
+                    candidates.remove(neighbour);
+                }
+            }
+        }
+        if (near[cell] > 0) {
+            candidates.add(cell);
+        }
+    }
+
+    /**
+     * Change the counts of every window through a cell. The threats of each
+     * window are withdrawn with its old counts and added back with the new.
+     *
+     * @param cell  The cell
+     * @param delta The change to the packed counts, or 0 to only withdraw the
+     *              threats of the windows
+     */
+    private void updateWindows(int cell, int delta) {
+        int x = cell / width;
+        int y = cell % width;
+        for (int d = 0; d < Board.DX.length; d++) {
+            for (int i = 0; i < winLength; i++) {
+                int sx = x - i * Board.DX[d];
+                int sy = y - i * Board.DY[d];
+                if (isWindow(d, sx, sy)) {
+                    int start = sx * width + sy;
+                    if (delta == 0) {
+                        classify(d, start, -1);
+                    } else {
+                        windows[d * cells + start] += delta;
+                        classify(d, start, 1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Add or withdraw the threats a window makes.
+     *
+     * @param d     The direction of the window
+     * @param start The first cell of the window
+     * @param sign  1 to add the threats, -1 to withdraw them
+     */
+    private void classify(int d, int start, int sign) {
+        int counts = windows[d * cells + start];
+        for (int p = 0; p < 2; p++) {
+            int mine = p == 0 ? counts & 0xFFFF : counts >>> 16;
+            int theirs = p == 0 ? counts >>> 16 : counts & 0xFFFF;
+            if (theirs != 0) {
+                continue;
+            }
+            if (mine == winLength - 1) {
+                fours[p] += sign;
+                int empty = emptyCell(d, start);
+                int index = p * cells + empty;
+                completions[index] += sign;
+                if (sign > 0 && completions[index] == 1) {
+                    winningCells[p].add(empty);
+                } else if (sign < 0 && completions[index] == 0) {
+                    winningCells[p].remove(empty);
+                }
+            } else if (mine == winLength - 2) {
+                threes[p] += sign;
+            }
+        }
+    }
+
+    /**
+     * Find the first empty cell of a window.
+     */
+    private int emptyCell(int d, int start) {
+        int step = Board.DX[d] * width + Board.DY[d];
+        int cell = start;
+        for (int i = 0; i < winLength; i++, cell += step) {
+            if (pieces[cell] == 0) {
+                return cell;
+            }
+        }
+        throw new IllegalStateException("A full window cannot be a four");
+    }
+
+    /**
+     * Check whether a window of winLength cells in a direction fits on the
+     * Board from a starting cell.
+     */
+    private boolean isWindow(int d, int x, int y) {
+        int ex = x + (winLength - 1) * Board.DX[d];
+        int ey = y + (winLength - 1) * Board.DY[d];
+        return x >= 0 && y >= 0 && x < height && y < width && ex >= 0 && ey >= 0 && ex < height && ey < width;
+    }
+
+    /**
+     * Get how far from a piece an empty cell can be and still be a candidate.
+     *
+     * @return The candidate distance, counted in king moves
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Get the number of candidate moves.
+     *
+     * @return The number of empty cells near a piece
+     */
+    public int getCandidateCount() {
+        return candidates.size;
+    }
+
+    /**
+     * Get a candidate move. The candidates are in no particular order.
+     *
+     * @param index The index of the candidate, from 0 to getCandidateCount() - 1
+     * @return The cell (x * width + y)
+     */
+    public int getCandidate(int index) {
+        return candidates.get(index);
+    }
+
+    /**
+     * Check whether a cell is a candidate move.
+     *
+     * @param cell The cell (x * width + y)
+     * @return True if the cell is empty and near a piece
+     */
+    public boolean isCandidate(int cell) {
+        return candidates.contains(cell);
+    }
+
+    /**
+     * Get the number of a player's fours: windows one piece short of a win.
+     *
+     * @param player The player (true for X, false for O)
+     * @return The number of fours
+     */
+    public int getFours(boolean player) {
+        return fours[player ? 0 : 1];
+    }
+
+    /**
+     * Get the number of a player's threes: windows two pieces short of a win.
+     *
+     * @param player The player (true for X, false for O)
+     * @return The number of threes
+     */
+    public int getThrees(boolean player) {
+        return threes[player ? 0 : 1];
+    }
+
+    /**
+     * Get the number of empty cells that would win the game for a player.
+     *
+     * @param player The player (true for X, false for O)
+     * @return The number of winning cells
+     */
+    public int getWinningCellCount(boolean player) {
+        return winningCells[player ? 0 : 1].size;
+    }
+
+    /**
+     * Get a cell that would win the game for a player.
+     *
+     * @param player The player (true for X, false for O)
+     * @param index  The index of the cell, from 0 to getWinningCellCount() - 1
+     * @return The cell (x * width + y)
+     */
+    public int getWinningCell(boolean player, int index) {
+        return winningCells[player ? 0 : 1].get(index);
+    }
+
+    /**
+     * Check whether a player threatens to win in more than one place, so that
+     * their opponent cannot block them all.
+     *
+     * @param player The player (true for X, false for O)
+     * @return True if the player has two or more winning cells
+     */
+    public boolean hasDoubleThreat(boolean player) {
+        return getWinningCellCount(player) >= 2;
+    }
+
+    /**
+     * Score a move for move ordering. Every window through the cell that only
+     * one player has pieces in adds a weight that grows fourfold with each of
+     * their pieces, doubled when the pieces are the mover's own, so moves that
+     * extend the mover's lines come first, followed by moves that block the
+     * opponent's.
+     *
+     * @param cell   The cell (x * width + y)
+     * @param player The player to move (true for X, false for O)
+     * @return The score of the move, higher being more promising
+     */
+    public int getScore(int cell, boolean player) {
+        int x = cell / width;
+        int y = cell % width;
+        int score = 0;
+        for (int d = 0; d < Board.DX.length; d++) {
+            for (int i = 0; i < winLength; i++) {
+                int sx = x - i * Board.DX[d];
+                int sy = y - i * Board.DY[d];
+                if (isWindow(d, sx, sy)) {
+                    int counts = windows[d * cells + sx * width + sy];
+                    int mine = player ? counts & 0xFFFF : counts >>> 16;
+                    int theirs = player ? counts >>> 16 : counts & 0xFFFF;
+                    if (theirs == 0) {
+                        score += 2 << Math.min(2 * mine, 20);
+                    } else if (mine == 0) {
+                        score += 1 << Math.min(2 * theirs, 20);
+                    }
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * A set of cells with constant time insertion, removal and membership,
+     * held in a dense array.
+     */
+    private static final class CellSet {
+        private final int[] cells;
+        // The position of each cell in cells plus one, or 0 if it is absent.
+        private final int[] positions;
+        private int size;
+
+        private CellSet(int capacity) {
+            cells = new int[capacity];
+            positions = new int[capacity];
+        }
+
+        private CellSet(CellSet other) {
+            cells = other.cells.clone();
+            positions = other.positions.clone();
+            size = other.size;
+        }
+
+        private void add(int cell) {
+            if (positions[cell] == 0) {
+                cells[size++] = cell;
+                positions[cell] = size;
+            }
+        }
+
+        private void remove(int cell) {
+            int position = positions[cell];
+            if (position != 0) {
+                // Move the last cell into the gap
+                int last = cells[--size];
+                cells[position - 1] = last;
+                positions[last] = position;
+                positions[cell] = 0;
+            }
+        }
+
+        private boolean contains(int cell) {
+            return positions[cell] != 0;
+        }
+
+        private int get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Cell " + index + " is not in a set of " + size);
+            }
+            return cells[index];
+        }
+
+        private void clear() {
+            for (int i = 0; i < size; i++) {
+                positions[cells[i]] = 0;
+            }
+            size = 0;
+        }
+    }
+}
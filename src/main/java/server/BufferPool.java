@@ -0,0 +1,64 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * This class represents a pool of equally sized direct ByteBuffers.
+ *
+ * Direct buffers are costly to allocate and are only reclaimed by the garbage
+ * collector, so connections borrow them from the pool and return them when
+ * they close. The pool is only used by the server's selector thread and is not
+ * thread-safe.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+final class BufferPool {
+
+    private final int bufferSize;
+    private final int maxIdle;
+    private final ArrayDeque<ByteBuffer> idle = new ArrayDeque<>();
+
+    /**
+     * Construct a new BufferPool.
+     *
+     * @param bufferSize The capacity of every buffer
+     * @param maxIdle    The most returned buffers to keep for reuse
+     */
+    BufferPool(int bufferSize, int maxIdle) {
+        this.bufferSize = bufferSize;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrow a cleared buffer, allocating one if none is idle.
+     *
+     * @return The buffer
+     */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = idle.pollFirst();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Return a borrowed buffer to the pool.
+     *
+     * @param buffer The buffer
+     */
+    void release(ByteBuffer buffer) {
+        if (idle.size() < maxIdle) {
+            buffer.clear();
+            idle.addFirst(buffer);
+        }
+    }
+
+    /**
+     * Get the number of buffers waiting to be reused.
+     *
+     * @return The idle buffer count
+     */
+    int idleCount() {
+        return idle.size();
+    }
+}
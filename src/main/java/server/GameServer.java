@@ -0,0 +1,392 @@
+package server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import model.Board;
+
+/**
+ * This class represents a server hosting many independent games of Tic Tac
+ * Toe over TCP.
+ *
+ * Every connection can run several games at once, each on its own Board, and
+ * sends requests in the binary Protocol. All connections are served by a
+ * single thread blocked on a Selector, so an idle connection costs only its
+ * Boards and a pair of direct buffers borrowed from a BufferPool. Requests are
+ * handled as soon as they are read, and responses are written straight back;
+ * a client that stops reading its responses stops having its requests read
+ * until it catches up. The size of each game and the cells of all the games
+ * of a connection are capped, as set out in the Protocol, so the memory a
+ * connection can hold is bounded.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class GameServer implements Runnable, Closeable {
+
+    /**
+     * The port the server listens on unless told otherwise.
+     */
+    public static final int DEFAULT_PORT = 3110;
+    // The most games a single connection may have open.
+    static final int MAX_GAMES = 1024;
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final BufferPool pool = new BufferPool(BUFFER_SIZE, 8192);
+    private volatile boolean running = true;
+    private volatile int connections;
+    private volatile int games;
+
+    /**
+     * Construct a new GameServer listening on an address. Call run() to start
+     * serving.
+     *
+     * @param address The address to listen on, with port 0 for any free port
+     * @throws IOException If the address could not be bound
+     */
+    public GameServer(InetSocketAddress address) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address, 1024);
+            serverChannel.configureBlocking(false);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException ex) {
+            serverChannel.close();
+            selector.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Get the port the server is listening on.
+     *
+     * @return The bound port
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Get the number of open connections.
+     *
+     * @return The connection count
+     */
+    public int getConnectionCount() {
+        return connections;
+    }
+
+    /**
+     * Get the number of games in progress across all connections.
+     *
+     * @return The game count
+     */
+    public int getGameCount() {
+        return games;
+    }
+
+    /**
+     * Serve connections until the server is closed.
+     */
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable() && connection.channel.read(connection.in) < 0) {
+                                disconnect(connection);
+                                continue;
+                            }
+                            service(connection);
+                        } catch (IOException ex) {
+                            disconnect(connection);
+                        }
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            System.err.println("The game server stopped: " + ex);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    disconnect((Connection) key.attachment());
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException ex) {
+                // Nothing more can be done while shutting down
+            }
+        }
+    }
+
+    /**
+     * Stop serving and close every connection.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Accept every pending connection. A connection that cannot be accepted,
+     * for instance because the process has run out of file descriptors, is
+     * left pending or dropped, and the connections already open are still
+     * served.
+     */
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException ex) {
+                System.err.println("Could not accept a connection: " + ex);
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException ex) {
+                System.err.println("Could not set up a connection: " + ex);
+                try {
+                    channel.close();
+                } catch (IOException closeEx) {
+                    // The connection is gone either way
+                }
+                continue;
+            }
+            Connection connection = new Connection(channel, pool.acquire(), pool.acquire());
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException ex) {
+                pool.release(connection.in);
+                pool.release(connection.out);
+                try {
+                    channel.close();
+                } catch (IOException closeEx) {
+                    // The connection is gone either way
+                }
+                continue;
+            }
+            connections++;
+        }
+    }
+
+    private void disconnect(Connection connection) {
+        if (connection.key == null) {
+            return;
+        }
+        connection.key.cancel();
+        connection.key = null;
+        try {
+            connection.channel.close();
+        } catch (IOException ex) {
+            // The connection is gone either way
+        }
+        pool.release(connection.in);
+        pool.release(connection.out);
+        games -= connection.gameCount;
+        connections--;
+    }
+
+    /**
+     * Handle every complete request a connection has sent, as long as there is
+     * room for the responses, then write the responses out.
+     *
+     * @param connection The connection to serve
+     * @throws IOException If the connection failed
+     */
+    private void service(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        ByteBuffer out = connection.out;
+        boolean flushed;
+        int handled;
+        do {
+            handled = 0;
+            in.flip();
+            while (!connection.closing && in.hasRemaining() && out.remaining() >= Protocol.MAX_FRAME) {
+                int length = Protocol.requestLength(in.get(in.position()));
+                if (length < 0) {
+                    out.put(Protocol.ERROR).put(Protocol.UNKNOWN_REQUEST);
+                    connection.closing = true;
+                    break;
+                }
+                if (in.remaining() < length) {
+                    break;
+                }
+                handle(connection, in, out);
+                handled++;
+            }
+            in.compact();
+
+            out.flip();
+            connection.channel.write(out);
+            out.compact();
+            flushed = out.position() == 0;
+            // Requests held back for lack of room can be handled now the responses are out
+        } while (flushed && handled > 0 && in.position() > 0 && !connection.closing);
+
+        if (connection.closing && flushed) {
+            disconnect(connection);
+            return;
+        }
+        // Stop reading while there is no room for more responses
+        boolean stalled = out.remaining() < Protocol.MAX_FRAME;
+        connection.key.interestOps((flushed ? 0 : SelectionKey.OP_WRITE) | (stalled ? 0 : SelectionKey.OP_READ));
+    }
+
+    /**
+     * Handle one complete request.
+     *
+     * @param connection The connection that sent it
+     * @param in         The request, positioned at its opcode
+     * @param out        The buffer to write the response to
+     */
+    private void handle(Connection connection, ByteBuffer in, ByteBuffer out) {
+        byte opcode = in.get();
+        switch (opcode) {
+        case Protocol.NEW_GAME: {
+            int width = in.get() & 0xFF;
+            int height = in.get() & 0xFF;
+            int winLength = in.get() & 0xFF;
+            if (width * height > Protocol.MAX_CELLS) {
+                out.put(Protocol.ERROR).put(Protocol.BAD_DIMENSIONS);
+                return;
+            }
+            Board board;
+            try {
+                board = new Board(width, height, winLength);
+            } catch (IllegalArgumentException ex) {
+                out.put(Protocol.ERROR).put(Protocol.BAD_DIMENSIONS);
+                return;
+            }
+            int id = connection.open(board);
+            if (id < 0) {
+                out.put(Protocol.ERROR).put(Protocol.TOO_MANY_GAMES);
+                return;
+            }
+            games++;
+            out.put(Protocol.GAME).putInt(id);
+            return;
+        }
+        case Protocol.MOVE: {
+            int id = in.getInt();
+            int x = in.get() & 0xFF;
+            int y = in.get() & 0xFF;
+            Board board = connection.game(id);
+            if (board == null) {
+                out.put(Protocol.ERROR).put(Protocol.UNKNOWN_GAME);
+                return;
+            }
+            boolean accepted = board.makeMove(x, y);
+            out.put(Protocol.STATE).putInt(id).put((byte) (accepted ? 1 : 0))
+                    .put(Protocol.encodeStatus(board.getStatus())).put((byte) (board.getCurrentTurn() ? 1 : 0));
+            return;
+        }
+        default: {
+            int id = in.getInt();
+            if (connection.game(id) == null) {
+                out.put(Protocol.ERROR).put(Protocol.UNKNOWN_GAME);
+                return;
+            }
+            connection.cells -= connection.games[id].getWidth() * connection.games[id].getHeight();
+            connection.games[id] = null;
+            connection.gameCount--;
+            games--;
+            out.put(Protocol.CLOSED).putInt(id);
+        }
+        }
+    }
+
+    /**
+     * This class represents a client connection and the games it has open.
+     * Game ids are indices into its games, reused once closed.
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        // Requests read but not yet handled, in write mode.
+        private final ByteBuffer in;
+        // Responses not yet written, in write mode.
+        private final ByteBuffer out;
+        private SelectionKey key;
+        private Board[] games = new Board[4];
+        private int gameCount;
+        // The number of cells of the open games.
+        private int cells;
+        private boolean closing;
+
+        private Connection(SocketChannel channel, ByteBuffer in, ByteBuffer out) {
+            this.channel = channel;
+            this.in = in;
+            this.out = out;
+        }
+
+        private Board game(int id) {
+            return id >= 0 && id < games.length ? games[id] : null;
+        }
+
+        /**
+         * Give a Board the lowest free game id.
+         *
+         * @return The id, or -1 if the connection has too many games or cells
+         */
+        private int open(Board board) {
+            int boardCells = board.getWidth() * board.getHeight();
+            if (gameCount == MAX_GAMES || cells + boardCells > Protocol.MAX_CONNECTION_CELLS) {
+                return -1;
+            }
+            int id = 0;
+            while (id < games.length && games[id] != null) {
+                id++;
+            }
+            if (id == games.length) {
+                games = Arrays.copyOf(games, Math.min(2 * games.length, MAX_GAMES));
+            }
+            games[id] = board;
+            gameCount++;
+            cells += boardCells;
+            return id;
+        }
+    }
+
+    /**
+     * Run a GameServer until the process is stopped.
+     *
+     * @param args Optionally the port to listen on
+     * @throws IOException If the port could not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        GameServer server = new GameServer(new InetSocketAddress(port));
+        System.out.println("Serving games on port " + server.getPort());
+        server.run();
+    }
+}
@@ -0,0 +1,269 @@
+package server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.SplittableRandom;
+
+import model.Board;
+import model.GameEvent;
+
+/**
+ * This class represents a load-generating client for the GameServer.
+ *
+ * It opens many connections and plays one game per connection at a time,
+ * with random moves and exactly one request in flight per connection, so the
+ * time from sending a request to reading its response is a round trip. Each
+ * client mirrors its game on a local Board to pick legal moves. Round trips
+ * are recorded in a histogram of one microsecond buckets, from which the
+ * percentiles are reported.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class LoadGenerator {
+
+    // Round trips longer than this are counted in the last bucket.
+    private static final int MAX_MICROS = 100000;
+
+    private final InetSocketAddress address;
+    private final int clients;
+    private final int width, height, winLength;
+    private final long[] histogram = new long[MAX_MICROS + 1];
+    private long requests;
+    private long moves;
+    private long games;
+    private long elapsedNanos;
+
+    /**
+     * Construct a new LoadGenerator.
+     *
+     * @param address   The address of the GameServer
+     * @param clients   The number of connections to open
+     * @param width     The number of columns on every Board
+     * @param height    The number of rows on every Board
+     * @param winLength The number of pieces in a row needed to win
+     */
+    public LoadGenerator(InetSocketAddress address, int clients, int width, int height, int winLength) {
+        if (clients < 1) {
+            throw new IllegalArgumentException("The load generator needs at least one client");
+        }
+        this.address = address;
+        this.clients = clients;
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+    }
+
+    /**
+     * Play games against the server for a while.
+     *
+     * @param millis How long to play for, not counting connecting
+     * @param seed   The seed of the random moves
+     * @throws IOException If a connection failed
+     */
+    public void run(long millis, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < clients; i++) {
+                // Connecting is done blocking, one client at a time, to avoid overflowing the server's backlog
+                SocketChannel channel = SocketChannel.open(address);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.configureBlocking(false);
+                Client client = new Client(channel, new Board(width, height, winLength), random.split());
+                channel.register(selector, SelectionKey.OP_READ, client);
+            }
+            long start = System.nanoTime();
+            long end = start + millis * 1000000L;
+            for (SelectionKey key : selector.keys()) {
+                send((Client) key.attachment());
+            }
+            while (System.nanoTime() < end) {
+                selector.select(Math.max(1, (end - System.nanoTime()) / 1000000L));
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    Client client = (Client) keys.next().attachment();
+                    keys.remove();
+                    receive(client);
+                }
+            }
+            elapsedNanos = System.nanoTime() - start;
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+        }
+    }
+
+    /**
+     * Read whatever a client's response has delivered, and once it is whole,
+     * record its round trip and send the next request.
+     */
+    private void receive(Client client) throws IOException {
+        ByteBuffer in = client.in;
+        if (client.channel.read(in) < 0) {
+            throw new IOException("The server closed a connection");
+        }
+        int length = in.position() > 0 ? Protocol.responseLength(in.get(0)) : 0;
+        if (length == 0 || in.position() < length) {
+            return;
+        }
+        long micros = (System.nanoTime() - client.sentAt) / 1000L;
+        histogram[(int) Math.min(micros, MAX_MICROS)]++;
+        requests++;
+        in.flip();
+        byte opcode = in.get();
+        switch (opcode) {
+        case Protocol.GAME:
+            client.game = in.getInt();
+            client.board.resetBoard();
+            break;
+        case Protocol.STATE:
+            in.getInt();
+            if (in.get() != 0) {
+                client.board.makeMove(client.pendingCell / width, client.pendingCell % width);
+                moves++;
+            }
+            break;
+        case Protocol.CLOSED:
+            client.game = -1;
+            games++;
+            break;
+        default:
+            throw new IOException("The server rejected a request with error " + in.get());
+        }
+        in.clear();
+        send(client);
+    }
+
+    /**
+     * Send a client's next request: a new game, a move, or the closing of a
+     * finished game.
+     */
+    private void send(Client client) throws IOException {
+        ByteBuffer out = client.out;
+        out.clear();
+        if (client.game < 0) {
+            Protocol.putNewGame(out, width, height, winLength);
+        } else if (client.board.getStatus() != GameEvent.Status.NO_WINNER) {
+            Protocol.putClose(out, client.game);
+        } else {
+            int empty = width * height - client.board.getMoveCount();
+            int skip = client.random.nextInt(empty);
+            int cell = 0;
+            while (client.board.getCharacter(cell / width, cell % width) != ' ' || skip-- > 0) {
+                cell++;
+            }
+            client.pendingCell = cell;
+            Protocol.putMove(out, client.game, cell / width, cell % width);
+        }
+        out.flip();
+        client.sentAt = System.nanoTime();
+        while (out.hasRemaining()) {
+            // Requests are a few bytes, so the socket buffer always has room
+            client.channel.write(out);
+        }
+    }
+
+    /**
+     * Get the number of requests answered during the last run.
+     *
+     * @return The request count
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Get the number of moves accepted during the last run.
+     *
+     * @return The move count
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Get the number of games finished during the last run.
+     *
+     * @return The game count
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Get a percentile of the round trip times.
+     *
+     * @param percentile The percentile, from 0 to 100
+     * @return The round trip time in microseconds
+     */
+    public int getPercentileMicros(double percentile) {
+        long rank = (long) Math.ceil(percentile / 100 * requests);
+        long seen = 0;
+        for (int micros = 0; micros < histogram.length; micros++) {
+            seen += histogram[micros];
+            if (seen >= rank && seen > 0) {
+                return micros;
+            }
+        }
+        return MAX_MICROS;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = elapsedNanos / 1e9;
+        return String.format(
+                "%d clients: %d requests (%.0f/s), %d moves, %d games (%.0f/s), round trip p50 %d us, "
+                        + "p99 %d us, p99.9 %d us",
+                clients, requests, requests / seconds, moves, games, games / seconds, getPercentileMicros(50),
+                getPercentileMicros(99), getPercentileMicros(99.9));
+    }
+
+    /**
+     * This class represents one connection and the game it is playing.
+     */
+    private static final class Client {
+        private final SocketChannel channel;
+        private final Board board;
+        private final SplittableRandom random;
+        private final ByteBuffer in = ByteBuffer.allocateDirect(Protocol.MAX_FRAME);
+        private final ByteBuffer out = ByteBuffer.allocateDirect(Protocol.MAX_FRAME);
+        private int game = -1;
+        private int pendingCell;
+        private long sentAt;
+
+        private Client(SocketChannel channel, Board board, SplittableRandom random) {
+            this.channel = channel;
+            this.board = board;
+            this.random = random;
+        }
+    }
+
+    /**
+     * Load a GameServer and report the throughput and round trip times.
+     *
+     * @param args The host and port of the server, the number of clients and
+     *             the number of seconds to run for, optionally followed by the
+     *             width, height and win length of the Boards
+     * @throws IOException If a connection failed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4 && args.length != 7) {
+            System.err.println("Usage: LoadGenerator <host> <port> <clients> <seconds> [width height winLength]");
+            System.exit(1);
+        }
+        InetSocketAddress address = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+        int clients = Integer.parseInt(args[2]);
+        LoadGenerator generator = args.length == 7
+                ? new LoadGenerator(address, clients, Integer.parseInt(args[4]), Integer.parseInt(args[5]),
+                        Integer.parseInt(args[6]))
+                : new LoadGenerator(address, clients, Board.SIZE, Board.SIZE, Board.SIZE);
+        generator.run(Long.parseLong(args[3]) * 1000L, System.nanoTime());
+        System.out.println(generator);
+    }
+}
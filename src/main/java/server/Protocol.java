@@ -0,0 +1,176 @@
+package server;
+
+import java.nio.ByteBuffer;
+
+import model.GameEvent;
+
+/**
+ * This class defines the binary protocol spoken between the GameServer and its
+ * clients.
+ *
+ * Every frame starts with a one byte opcode that fixes its length, so frames
+ * need no length prefix and can be pipelined back to back. Integers are big
+ * endian, and dimensions and coordinates are unsigned bytes.
+ *
+ * Requests:
+ * NEW_GAME  width, height, win length             (4 bytes)
+ * MOVE      game id (int), x, y                   (7 bytes)
+ * CLOSE     game id (int)                         (5 bytes)
+ *
+ * Responses:
+ * GAME      game id (int)                         (5 bytes)
+ * STATE     game id (int), accepted, status, turn (8 bytes)
+ * CLOSED    game id (int)                         (5 bytes)
+ * ERROR     error code                            (2 bytes)
+ *
+ * Game ids are only meaningful on the connection that created the game, and
+ * the games of a connection end when it closes. Servers only accept games of
+ * up to MAX_CELLS cells, and up to MAX_CONNECTION_CELLS cells across all the
+ * games a connection has open, so that no client can claim more than a small
+ * share of the heap.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class Protocol {
+
+    public static final byte NEW_GAME = 0x01;
+    public static final byte MOVE = 0x02;
+    public static final byte CLOSE = 0x03;
+
+    public static final byte GAME = (byte) 0x81;
+    public static final byte STATE = (byte) 0x82;
+    public static final byte CLOSED = (byte) 0x83;
+    public static final byte ERROR = (byte) 0xFF;
+
+    /**
+     * Error code of a request with an unknown opcode. The server closes the
+     * connection after sending it, since the rest of the stream cannot be
+     * framed.
+     */
+    public static final byte UNKNOWN_REQUEST = 1;
+    /**
+     * Error code of a NEW_GAME request with dimensions that are not a Board,
+     * or with more than MAX_CELLS cells.
+     */
+    public static final byte BAD_DIMENSIONS = 2;
+    /**
+     * Error code of a request naming a game that does not exist.
+     */
+    public static final byte UNKNOWN_GAME = 3;
+    /**
+     * Error code of a NEW_GAME request on a connection with too many games, or
+     * whose games would have more than MAX_CONNECTION_CELLS cells between them.
+     */
+    public static final byte TOO_MANY_GAMES = 4;
+
+    /**
+     * The most cells a game may have.
+     */
+    public static final int MAX_CELLS = 32 * 32;
+    /**
+     * The most cells the open games of one connection may have in total.
+     */
+    public static final int MAX_CONNECTION_CELLS = 64 * MAX_CELLS;
+
+    // Status codes carried by STATE frames.
+    public static final byte NO_WINNER = 0;
+    public static final byte WINNER = 1;
+    public static final byte DRAW = 2;
+
+    // The longest frame in either direction.
+    static final int MAX_FRAME = 8;
+
+    private Protocol() {
+    }
+
+    /**
+     * Get the length of a request frame.
+     *
+     * @param opcode The opcode of the frame
+     * @return The length including the opcode, or -1 if it is not a request
+     */
+    public static int requestLength(byte opcode) {
+        switch (opcode) {
+        case NEW_GAME:
+            return 4;
+        case MOVE:
+            return 7;
+        case CLOSE:
+            return 5;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Get the length of a response frame.
+     *
+     * @param opcode The opcode of the frame
+     * @return The length including the opcode, or -1 if it is not a response
+     */
+    public static int responseLength(byte opcode) {
+        switch (opcode) {
+        case GAME:
+        case CLOSED:
+            return 5;
+        case STATE:
+            return 8;
+        case ERROR:
+            return 2;
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * Get the status code of a game state.
+     *
+     * @param status The state of a Board
+     * @return NO_WINNER, WINNER or DRAW
+     */
+    public static byte encodeStatus(GameEvent.Status status) {
+        switch (status) {
+        case WINNER:
+            return WINNER;
+        case DRAW:
+            return DRAW;
+        default:
+            return NO_WINNER;
+        }
+    }
+
+    /**
+     * Write a NEW_GAME request.
+     *
+     * @param buffer    The buffer to write to
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     */
+    public static void putNewGame(ByteBuffer buffer, int width, int height, int winLength) {
+        buffer.put(NEW_GAME).put((byte) width).put((byte) height).put((byte) winLength);
+    }
+
+    /**
+     * Write a MOVE request.
+     *
+     * @param buffer The buffer to write to
+     * @param game   The id of the game
+     * @param x      The x coordinate of the move
+     * @param y      The y coordinate of the move
+     */
+    public static void putMove(ByteBuffer buffer, int game, int x, int y) {
+        buffer.put(MOVE).putInt(game).put((byte) x).put((byte) y);
+    }
+
+    /**
+     * Write a CLOSE request.
+     *
+     * @param buffer The buffer to write to
+     * @param game   The id of the game
+     */
+    public static void putClose(ByteBuffer buffer, int game) {
+        buffer.put(CLOSE).putInt(game);
+    }
+}
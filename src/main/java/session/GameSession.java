@@ -0,0 +1,203 @@
+package session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Arrays;
+
+import ai.ComputerPlayer;
+import controller.GameController;
+import model.Board;
+import server.Protocol;
+
+/**
+ * This class represents one client connection, served in plain blocking style
+ * on a thread of its own.
+ *
+ * It speaks the same Protocol as the GameServer, but every game is played
+ * through its own GameController, so the computer can be seated as O and
+ * reply to every move before the state is sent back. Games are capped in size
+ * as set out in the Protocol, and the computer searches for at most
+ * SEARCH_MILLIS per move, so no request ties up a session for long.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+class GameSession implements Runnable {
+
+    // The most games a single connection may have open.
+    private static final int MAX_GAMES = 1024;
+    // The time the computer may search for each reply.
+    static final long SEARCH_MILLIS = 100;
+
+    private final Socket socket;
+    private final boolean computerO;
+    private Board[] boards = new Board[4];
+    private GameController[] controllers = new GameController[4];
+    // The number of cells of the open games.
+    private int cells;
+    // The computer of every game in the session, made for the first one.
+    private ComputerPlayer computer;
+
+    /**
+     * Construct a new GameSession.
+     *
+     * @param socket    The connected client
+     * @param computerO True if the computer should play O in every game
+     */
+    GameSession(Socket socket, boolean computerO) {
+        this.socket = socket;
+        this.computerO = computerO;
+    }
+
+    @Override
+    public void run() {
+        try (Socket client = socket) {
+            client.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(client.getOutputStream()));
+            while (true) {
+                int opcode = in.read();
+                if (opcode < 0) {
+                    return;
+                }
+                if (!handle((byte) opcode, in, out)) {
+                    out.flush();
+                    return;
+                }
+                // Only flush once every pipelined request that has arrived is answered
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (EOFException ex) {
+            // The client left in the middle of a request
+        } catch (IOException ex) {
+            // The client is gone either way
+        }
+    }
+
+    /**
+     * Handle one request.
+     *
+     * @param opcode The opcode of the request, already read
+     * @param in     The rest of the request
+     * @param out    The stream to write the response to
+     * @return False if the connection should be closed
+     * @throws IOException If the client could not be read or written
+     */
+    private boolean handle(byte opcode, DataInputStream in, DataOutputStream out) throws IOException {
+        switch (opcode) {
+        case Protocol.NEW_GAME: {
+            int width = in.readUnsignedByte();
+            int height = in.readUnsignedByte();
+            int winLength = in.readUnsignedByte();
+            if (width * height > Protocol.MAX_CELLS) {
+                out.writeByte(Protocol.ERROR);
+                out.writeByte(Protocol.BAD_DIMENSIONS);
+                return true;
+            }
+            Board board;
+            try {
+                board = new Board(width, height, winLength);
+            } catch (IllegalArgumentException ex) {
+                out.writeByte(Protocol.ERROR);
+                out.writeByte(Protocol.BAD_DIMENSIONS);
+                return true;
+            }
+            int id = open(board);
+            if (id < 0) {
+                out.writeByte(Protocol.ERROR);
+                out.writeByte(Protocol.TOO_MANY_GAMES);
+                return true;
+            }
+            out.writeByte(Protocol.GAME);
+            out.writeInt(id);
+            return true;
+        }
+        case Protocol.MOVE: {
+            int id = in.readInt();
+            int x = in.readUnsignedByte();
+            int y = in.readUnsignedByte();
+            if (game(id) == null) {
+                out.writeByte(Protocol.ERROR);
+                out.writeByte(Protocol.UNKNOWN_GAME);
+                return true;
+            }
+            Board board = boards[id];
+            int before = board.getMoveCount();
+            controllers[id].registerClick(x, y);
+            out.writeByte(Protocol.STATE);
+            out.writeInt(id);
+            out.writeByte(board.getMoveCount() > before ? 1 : 0);
+            out.writeByte(Protocol.encodeStatus(board.getStatus()));
+            out.writeByte(board.getCurrentTurn() ? 1 : 0);
+            return true;
+        }
+        case Protocol.CLOSE: {
+            int id = in.readInt();
+            if (game(id) == null) {
+                out.writeByte(Protocol.ERROR);
+                out.writeByte(Protocol.UNKNOWN_GAME);
+                return true;
+            }
+            cells -= boards[id].getWidth() * boards[id].getHeight();
+            boards[id] = null;
+            controllers[id] = null;
+            out.writeByte(Protocol.CLOSED);
+            out.writeInt(id);
+            return true;
+        }
+        default:
+            out.writeByte(Protocol.ERROR);
+            out.writeByte(Protocol.UNKNOWN_REQUEST);
+            return false;
+        }
+    }
+
+    private Board game(int id) {
+        return id >= 0 && id < boards.length ? boards[id] : null;
+    }
+
+    /**
+     * Give a Board the lowest free game id, and a GameController to play it.
+     *
+     * @return The id, or -1 if the connection has too many games or cells
+     */
+    private int open(Board board) {
+        int boardCells = board.getWidth() * board.getHeight();
+        if (cells + boardCells > Protocol.MAX_CONNECTION_CELLS) {
+            return -1;
+        }
+        int id = 0;
+        while (id < boards.length && boards[id] != null) {
+            id++;
+        }
+        if (id == MAX_GAMES) {
+            return -1;
+        }
+        if (id == boards.length) {
+            boards = Arrays.copyOf(boards, Math.min(2 * boards.length, MAX_GAMES));
+            controllers = Arrays.copyOf(controllers, boards.length);
+        }
+        GameController controller = new GameController(board);
+        if (computerO) {
+            // A small table and a time limit keep the computer affordable in
+            // every session, whatever the size of the Board, and its games
+            // take turns with the one computer, so they share its table
+            if (computer == null) {
+                computer = new ComputerPlayer(9, SEARCH_MILLIS, 12);
+            }
+            controller.setComputerPlayer(computer);
+            controller.seatComputer(false, true);
+        }
+        boards[id] = board;
+        controllers[id] = controller;
+        cells += boardCells;
+        return id;
+    }
+}
@@ -0,0 +1,117 @@
+package session;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import model.Board;
+import server.LoadGenerator;
+import server.Protocol;
+
+/**
+ * This class compares running sessions on a fixed pool of platform threads,
+ * one per session, against running them on virtual threads.
+ *
+ * For each executor it opens a number of idle clients, each holding one game,
+ * and reports the heap and platform threads each idle session costs. Heap
+ * figures include the client side sockets, which are the same for both
+ * executors, while the stacks of platform threads live outside the heap and
+ * are reflected in the thread count. It then runs a LoadGenerator with a
+ * number of active clients alongside the idle ones and reports the
+ * throughput and round trip times.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SessionBenchmark {
+
+    private SessionBenchmark() {
+    }
+
+    /**
+     * Measure one executor.
+     *
+     * @param name     The name of the executor to report
+     * @param sessions The executor, with room for every client
+     * @param idle     The number of idle clients
+     * @param active   The number of active clients
+     * @param seconds  How long to run the active clients for
+     * @throws IOException If a connection failed
+     */
+    private static void measure(String name, ExecutorService sessions, int idle, int active, int seconds)
+            throws IOException {
+        List<Socket> clients = new ArrayList<>();
+        try (SessionServer server = new SessionServer(new InetSocketAddress("localhost", 0), sessions, false)) {
+            Thread acceptor = new Thread(server, "session-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            long heapBefore = usedHeap();
+            int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+            for (int i = 0; i < idle; i++) {
+                Socket socket = new Socket("localhost", server.getPort());
+                clients.add(socket);
+                // Wait for the session to answer, so it is running and holds a game
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeByte(Protocol.NEW_GAME);
+                out.writeByte(Board.SIZE);
+                out.writeByte(Board.SIZE);
+                out.writeByte(Board.SIZE);
+                out.flush();
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                in.readByte();
+                in.readInt();
+            }
+            long heapAfter = usedHeap();
+            int threadsAfter = ManagementFactory.getThreadMXBean().getThreadCount();
+            System.out.printf("%s: %d idle sessions, %.0f heap bytes and %.2f platform threads per session%n", name,
+                    idle, (heapAfter - heapBefore) / (double) Math.max(idle, 1),
+                    (threadsAfter - threadsBefore) / (double) Math.max(idle, 1));
+
+            LoadGenerator generator = new LoadGenerator(new InetSocketAddress("localhost", server.getPort()),
+                    active, Board.SIZE, Board.SIZE, Board.SIZE);
+            generator.run(seconds * 1000L, 3110);
+            System.out.println(name + ": " + generator);
+        } finally {
+            for (Socket socket : clients) {
+                socket.close();
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Compare the executors.
+     *
+     * @param args The number of idle clients, the number of active clients and
+     *             the number of seconds to run the active clients for
+     * @throws IOException If a connection failed
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: SessionBenchmark <idle clients> <active clients> <seconds>");
+            System.exit(1);
+        }
+        int idle = Integer.parseInt(args[0]);
+        int active = Integer.parseInt(args[1]);
+        int seconds = Integer.parseInt(args[2]);
+        measure("Fixed thread pool", SessionExecutors.newFixedThreadExecutor(idle + active), idle, active, seconds);
+        if (SessionExecutors.virtualThreadsAvailable()) {
+            measure("Virtual threads", SessionExecutors.newVirtualThreadExecutor(), idle, active, seconds);
+        } else {
+            System.out.println("Virtual threads are not available: run on JDK 21 with a build using -Pjdk21");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package session;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * This class creates the executors that game sessions run on.
+ *
+ * Every session runs as one task for as long as its client is connected, and
+ * spends most of that time blocked on the client. On a JDK with virtual
+ * threads, built with the jdk21 profile, each session gets a virtual thread of
+ * its own, so idle sessions cost a little heap rather than a platform thread.
+ * Otherwise sessions fall back to platform threads.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class SessionExecutors {
+
+    // Compiled from src/main/java21 by the jdk21 build profile only.
+    private static final String VIRTUAL_EXECUTORS = "session.VirtualThreadExecutors";
+
+    private SessionExecutors() {
+    }
+
+    /**
+     * Check whether sessions can run on virtual threads.
+     *
+     * @return True if this JDK and build support virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return virtualFactory() != null;
+    }
+
+    /**
+     * Create an executor that runs each session on its own virtual thread.
+     *
+     * @return The executor
+     * @throws UnsupportedOperationException If virtual threads are not available
+     */
+    public static ExecutorService newVirtualThreadExecutor() {
+        Supplier<ExecutorService> factory = virtualFactory();
+        if (factory == null) {
+            throw new UnsupportedOperationException(
+                    "Virtual threads need a JDK 21 runtime and a build with the jdk21 profile");
+        }
+        return factory.get();
+    }
+
+    /**
+     * Create an executor that runs sessions on a fixed number of platform
+     * threads. Sessions beyond that number wait for a running one to end.
+     *
+     * @param threads The number of threads
+     * @return The executor
+     */
+    public static ExecutorService newFixedThreadExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "session-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create the best executor available: virtual threads if possible, and a
+     * platform thread per session otherwise.
+     *
+     * @return The executor
+     */
+    public static ExecutorService newSessionExecutor() {
+        if (virtualThreadsAvailable()) {
+            return newVirtualThreadExecutor();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "session-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<ExecutorService> virtualFactory() {
+        try {
+            return (Supplier<ExecutorService>) Class.forName(VIRTUAL_EXECUTORS).getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package session;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import server.GameServer;
+
+/**
+ * This class represents a server that gives every client connection a
+ * GameSession of its own, written in plain blocking style, and runs it on an
+ * executor from SessionExecutors.
+ *
+ * With virtual threads every session has its own cheap thread, so idle or
+ * slow clients do not tie up a platform thread each. It is the blocking
+ * counterpart of the Selector based GameServer and speaks the same Protocol.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SessionServer implements Runnable, Closeable {
+
+    /**
+     * How long to wait before accepting again after a failure, so that a
+     * lasting one such as running out of file descriptors does not spin.
+     */
+    static final long ACCEPT_BACKOFF_MILLIS = 50;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService sessions;
+    private final boolean computerO;
+
+    /**
+     * Construct a new SessionServer listening on an address. Call run() to
+     * start accepting clients.
+     *
+     * @param address   The address to listen on, with port 0 for any free port
+     * @param sessions  The executor to run sessions on
+     * @param computerO True if the computer should play O in every game
+     * @throws IOException If the address could not be bound
+     */
+    public SessionServer(InetSocketAddress address, ExecutorService sessions, boolean computerO)
+            throws IOException {
+        this(bind(new ServerSocket(), address), sessions, computerO);
+    }
+
+    /**
+     * Construct a new SessionServer accepting clients on a bound socket.
+     */
+    SessionServer(ServerSocket serverSocket, ExecutorService sessions, boolean computerO) {
+        this.serverSocket = serverSocket;
+        this.sessions = sessions;
+        this.computerO = computerO;
+    }
+
+    private static ServerSocket bind(ServerSocket serverSocket, InetSocketAddress address) throws IOException {
+        try {
+            serverSocket.bind(address, 1024);
+        } catch (IOException ex) {
+            serverSocket.close();
+            throw ex;
+        }
+        return serverSocket;
+    }
+
+    /**
+     * Get the port the server is listening on.
+     *
+     * @return The bound port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accept clients until the server is closed. A client that cannot be
+     * accepted, for instance because the process has run out of file
+     * descriptors, is dropped, and the server keeps accepting after a short
+     * pause.
+     */
+    @Override
+    public void run() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException ex) {
+                if (serverSocket.isClosed()) {
+                    // Closing the server socket ends the accept loop
+                    break;
+                }
+                System.err.println("Could not accept a connection: " + ex);
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                continue;
+            }
+            try {
+                sessions.execute(new GameSession(socket, computerO));
+            } catch (RejectedExecutionException ex) {
+                try {
+                    socket.close();
+                } catch (IOException closeEx) {
+                    // The client is turned away either way
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop accepting clients and end every session.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessions.shutdownNow();
+    }
+
+    /**
+     * Run a SessionServer until the process is stopped.
+     *
+     * @param args Optionally the port to listen on, followed by --computer to
+     *             let the computer play O in every game
+     * @throws IOException If the port could not be bound
+     */
+    public static void main(String[] args) throws IOException {
+        int port = GameServer.DEFAULT_PORT;
+        boolean computer = false;
+        for (String arg : args) {
+            if (arg.equals("--computer")) {
+                computer = true;
+            } else {
+                port = Integer.parseInt(arg);
+            }
+        }
+        SessionServer server = new SessionServer(new InetSocketAddress(port), SessionExecutors.newSessionExecutor(),
+                computer);
+        System.out.println("Serving sessions on port " + server.getPort() + " with "
+                + (SessionExecutors.virtualThreadsAvailable() ? "virtual" : "platform") + " threads");
+        server.run();
+    }
+}
@@ -0,0 +1,55 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import model.Board;
+
+/**
+ * This class represents a Strategy that looks one move ahead: it takes a win
+ * when one is available, otherwise blocks the opponent's immediate win, and
+ * otherwise plays a random empty cell.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class GreedyStrategy implements Strategy {
+
+    @Override
+    public int chooseMove(Board board, SplittableRandom random) {
+        int empty = board.getWidth() * board.getHeight() - board.getMoveCount();
+        if (empty <= 0) {
+            return -1;
+        }
+        char own = board.getCurrentTurn() ? 'x' : 'o';
+        char other = board.getCurrentTurn() ? 'o' : 'x';
+        int win = findCompletingCell(board, own);
+        if (win >= 0) {
+            return win;
+        }
+        int block = findCompletingCell(board, other);
+        if (block >= 0) {
+            return block;
+        }
+        return RandomStrategy.nthEmptyCell(board, random.nextInt(empty));
+    }
+
+    /**
+     * Find an empty cell that would complete a line of a player's pieces.
+     *
+     * @param board The Board to search
+     * @param piece The piece of the player ('x' or 'o')
+     * @return The cell (x * width + y), or -1 if there is none
+     */
+    private static int findCompletingCell(Board board, char piece) {
+        int width = board.getWidth();
+        int cells = width * board.getHeight();
+        for (int cell = 0; cell < cells; cell++) {
+            int x = cell / width;
+            int y = cell % width;
+            if (board.getCharacter(x, y) == ' ' && board.completesLine(x, y, piece)) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,36 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import ai.MonteCarloPlayer;
+import model.Board;
+
+/**
+ * This class represents a Strategy that plays the move chosen by a single
+ * threaded Monte Carlo tree search with a fixed number of playouts. The
+ * playouts are seeded from the simulation's random generator, so games are
+ * repeatable.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MonteCarloStrategy implements Strategy {
+
+    private final MonteCarloPlayer player;
+
+    /**
+     * Construct a new MonteCarloStrategy.
+     *
+     * @param playouts The number of playouts per move
+     */
+    public MonteCarloStrategy(long playouts) {
+        // The simulator already runs a game per thread
+        player = new MonteCarloPlayer(1, 0, playouts);
+    }
+
+    @Override
+    public int chooseMove(Board board, SplittableRandom random) {
+        player.setSeed(random.nextLong());
+        return player.chooseMove(board);
+    }
+}
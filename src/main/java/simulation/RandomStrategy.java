@@ -0,0 +1,41 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import model.Board;
+
+/**
+ * This class represents a Strategy that plays a uniformly random empty cell.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class RandomStrategy implements Strategy {
+
+    @Override
+    public int chooseMove(Board board, SplittableRandom random) {
+        int empty = board.getWidth() * board.getHeight() - board.getMoveCount();
+        if (empty <= 0) {
+            return -1;
+        }
+        return nthEmptyCell(board, random.nextInt(empty));
+    }
+
+    /**
+     * Find an empty cell by its position among the empty cells.
+     *
+     * @param board The Board to search
+     * @param n     The number of empty cells to skip
+     * @return The cell (x * width + y), or -1 if there are not enough empty cells
+     */
+    static int nthEmptyCell(Board board, int n) {
+        int width = board.getWidth();
+        int cells = width * board.getHeight();
+        for (int cell = 0; cell < cells; cell++) {
+            if (board.getCharacter(cell / width, cell % width) == ' ' && n-- == 0) {
+                return cell;
+            }
+        }
+        return -1;
+    }
+}
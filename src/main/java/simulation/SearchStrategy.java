@@ -0,0 +1,35 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import ai.ComputerPlayer;
+import model.Board;
+
+/**
+ * This class represents a Strategy that plays the move chosen by a depth
+ * limited ComputerPlayer search. Every instance owns its own ComputerPlayer
+ * and transposition table.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SearchStrategy implements Strategy {
+
+    private final ComputerPlayer player;
+
+    /**
+     * Construct a new SearchStrategy.
+     *
+     * @param maxDepth      The maximum number of moves to look ahead
+     * @param tableSizeLog2 The base 2 logarithm of the transposition table size
+     */
+    public SearchStrategy(int maxDepth, int tableSizeLog2) {
+        // Simulations are bounded by depth rather than time, so they are repeatable
+        player = new ComputerPlayer(maxDepth, 0, tableSizeLog2);
+    }
+
+    @Override
+    public int chooseMove(Board board, SplittableRandom random) {
+        return player.chooseMove(board);
+    }
+}
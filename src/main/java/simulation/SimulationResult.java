@@ -0,0 +1,120 @@
+package simulation;
+
+/**
+ * This class represents the aggregate outcome of a batch of simulated games:
+ * how often each side won, how many games were drawn, and how fast they were
+ * played.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SimulationResult {
+
+    private final long xWins;
+    private final long oWins;
+    private final long draws;
+    private final long moves;
+    private final long elapsedNanos;
+    private final int threads;
+
+    /**
+     * Construct a new SimulationResult.
+     *
+     * @param xWins        The number of games won by X
+     * @param oWins        The number of games won by O
+     * @param draws        The number of drawn games
+     * @param moves        The number of moves played in all games
+     * @param elapsedNanos The time taken to play the games
+     * @param threads      The number of threads that played
+     */
+    public SimulationResult(long xWins, long oWins, long draws, long moves, long elapsedNanos, int threads) {
+        this.xWins = xWins;
+        this.oWins = oWins;
+        this.draws = draws;
+        this.moves = moves;
+        this.elapsedNanos = elapsedNanos;
+        this.threads = threads;
+    }
+
+    /**
+     * Get the number of games won by X.
+     *
+     * @return X's wins
+     */
+    public long getXWins() {
+        return xWins;
+    }
+
+    /**
+     * Get the number of games won by O.
+     *
+     * @return O's wins
+     */
+    public long getOWins() {
+        return oWins;
+    }
+
+    /**
+     * Get the number of drawn games.
+     *
+     * @return The draws
+     */
+    public long getDraws() {
+        return draws;
+    }
+
+    /**
+     * Get the number of games played.
+     *
+     * @return The sum of wins and draws
+     */
+    public long getGames() {
+        return xWins + oWins + draws;
+    }
+
+    /**
+     * Get the number of moves played in all games.
+     *
+     * @return The move count
+     */
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * Get the time taken to play the games.
+     *
+     * @return The elapsed time in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Get the number of threads that played.
+     *
+     * @return The thread count
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Get the simulation throughput.
+     *
+     * @return The number of games played per second
+     */
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getGames() * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        long games = Math.max(getGames(), 1);
+        return String.format(
+                "%d games with %d thread(s): X won %.2f%%, O won %.2f%%, drawn %.2f%%, %.1f moves/game, "
+                        + "%.3f s, %.0f games/s",
+                getGames(), threads, 100.0 * xWins / games, 100.0 * oWins / games, 100.0 * draws / games,
+                (double) moves / games, elapsedNanos / 1e9, getGamesPerSecond());
+    }
+}
@@ -0,0 +1,235 @@
+package simulation;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import dataset.DatasetWriter;
+import model.Board;
+import model.GameEvent;
+
+/**
+ * This class represents a headless driver that plays batches of games between
+ * two Strategies across every available processor.
+ *
+ * Each worker thread owns its Board, its random number generator (split from
+ * a single seeded generator, so a batch is repeatable for a given seed and
+ * thread count) and its own instances of both Strategies. Workers share
+ * nothing while playing and only combine their counts once they are done.
+ *
+ * The positions of every game played can be streamed to a DatasetWriter for
+ * training position evaluators.
+ *
+ * Nothing here touches the view, so the Simulator runs on machines without a
+ * display.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class Simulator {
+
+    private final int width, height, winLength;
+    private final int threads;
+    private volatile DatasetWriter dataset;
+
+    /**
+     * Construct a new Simulator for the classic 3x3 game that uses every
+     * available processor.
+     */
+    public Simulator() {
+        this(Board.SIZE, Board.SIZE, Board.SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Construct a new Simulator.
+     *
+     * @param width     The number of columns on the Board
+     * @param height    The number of rows on the Board
+     * @param winLength The number of pieces in a row needed to win
+     * @param threads   The number of threads to play with
+     */
+    public Simulator(int width, int height, int winLength, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The simulator needs at least one thread");
+        }
+        // Fail now rather than on every worker if the dimensions are invalid
+        new Board(width, height, winLength);
+        this.width = width;
+        this.height = height;
+        this.winLength = winLength;
+        this.threads = threads;
+    }
+
+    /**
+     * Write the positions of every game played from now on to a dataset.
+     *
+     * @param dataset The dataset for Boards of the Simulator's dimensions, or
+     *                null to stop writing
+     */
+    public void setDataset(DatasetWriter dataset) {
+        this.dataset = dataset;
+    }
+
+    /**
+     * Play a batch of games.
+     *
+     * @param x     Creates the Strategy playing X, once per thread
+     * @param o     Creates the Strategy playing O, once per thread
+     * @param games The number of games to play
+     * @param seed  The seed of the random number generators
+     * @return The aggregate outcome of the games
+     */
+    public SimulationResult run(Supplier<? extends Strategy> x, Supplier<? extends Strategy> o, long games,
+            long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "simulator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                long share = games / threads + (i < games % threads ? 1 : 0);
+                SplittableRandom random = root.split();
+                workers.add(pool.submit(() -> play(x.get(), o.get(), share, random)));
+            }
+            long[] totals = new long[4];
+            for (Future<long[]> worker : workers) {
+                long[] counts = worker.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                }
+            }
+            return new SimulationResult(totals[0], totals[1], totals[2], totals[3], System.nanoTime() - start,
+                    threads);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The simulation was interrupted", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("A simulated game failed", ex.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Play one worker's share of the games on its own Board.
+     *
+     * @param x      The Strategy playing X
+     * @param o      The Strategy playing O
+     * @param games  The number of games to play
+     * @param random The worker's random number generator
+     * @return X's wins, O's wins, draws and moves played
+     */
+    private long[] play(Strategy x, Strategy o, long games, SplittableRandom random) {
+        Board board = new Board(width, height, winLength);
+        DatasetWriter dataset = this.dataset;
+        long[] counts = new long[4];
+        for (long game = 0; game < games; game++) {
+            board.resetBoard();
+            while (board.getStatus() == GameEvent.Status.NO_WINNER) {
+                int cell = (board.getCurrentTurn() ? x : o).chooseMove(board, random);
+                if (cell < 0 || !board.makeMove(cell / width, cell % width)) {
+                    throw new IllegalStateException("Strategy chose an illegal move: " + cell);
+                }
+            }
+            char winner = board.getWinner();
+            if (winner == ' ') {
+                counts[2]++;
+            } else {
+                counts[winner == 'x' ? 0 : 1]++;
+            }
+            counts[3] += board.getMoveCount();
+            if (dataset != null) {
+                dataset.writeGame(board);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Create the Strategy factory for a name given on the command line.
+     *
+     * @param name random, greedy, search[:depth] or mcts[:playouts]
+     * @return A factory creating a new Strategy per call
+     */
+    static Supplier<Strategy> strategy(String name) {
+        String lower = name.toLowerCase();
+        if (lower.equals("random")) {
+            return RandomStrategy::new;
+        }
+        if (lower.equals("greedy")) {
+            return GreedyStrategy::new;
+        }
+        if (lower.startsWith("search")) {
+            int depth = lower.startsWith("search:") ? Integer.parseInt(lower.substring("search:".length())) : 4;
+            return () -> new SearchStrategy(depth, 16);
+        }
+        if (lower.startsWith("mcts")) {
+            long playouts = lower.startsWith("mcts:") ? Long.parseLong(lower.substring("mcts:".length())) : 1000;
+            return () -> new MonteCarloStrategy(playouts);
+        }
+        throw new IllegalArgumentException("Unknown strategy: " + name);
+    }
+
+    /**
+     * Play a batch of games and report the outcome and throughput.
+     *
+     * @param args The Strategies playing X and O (random, greedy,
+     *             search[:depth] or mcts[:playouts]) and the number of games,
+     *             optionally followed by the width, height and win length of
+     *             the Board, the number of threads and the seed. With
+     *             --dataset=file, the positions of every game are written to
+     *             the file.
+     * @throws IOException If the dataset could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        String datasetPath = null;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--dataset=")) {
+                datasetPath = arg.substring("--dataset=".length());
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+        if (args.length != 3 && args.length != 6 && args.length != 7 && args.length != 8) {
+            System.err.println(
+                    "Usage: Simulator <x strategy> <o strategy> <games> [width height winLength] [threads] [seed] "
+                            + "[--dataset=file]");
+            System.exit(1);
+        }
+        Supplier<Strategy> x = strategy(args[0]);
+        Supplier<Strategy> o = strategy(args[1]);
+        long games = Long.parseLong(args[2]);
+        Simulator simulator = args.length >= 6
+                ? new Simulator(Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]),
+                        args.length >= 7 ? Integer.parseInt(args[6]) : Runtime.getRuntime().availableProcessors())
+                : new Simulator();
+        long seed = args.length == 8 ? Long.parseLong(args[7]) : System.nanoTime();
+        if (datasetPath == null) {
+            System.out.println(simulator.run(x, o, games, seed));
+            return;
+        }
+        DatasetWriter written;
+        try (DatasetWriter dataset = new DatasetWriter(Paths.get(datasetPath), simulator.width, simulator.height,
+                simulator.winLength)) {
+            simulator.setDataset(dataset);
+            System.out.println(simulator.run(x, o, games, seed));
+            written = dataset;
+        }
+        // Reported once closing has written the last block
+        System.out.printf("%d records written to %s, producers waited %.3f s for the writer%n",
+                written.getRecords(), datasetPath, written.getStallNanos() / 1e9);
+    }
+}
@@ -0,0 +1,29 @@
+package simulation;
+
+import java.util.SplittableRandom;
+
+import model.Board;
+
+/**
+ * This interface represents a way of choosing moves in a simulated game.
+ *
+ * A Strategy may keep state between moves (such as a search table), so the
+ * Simulator gives every worker thread its own instance, and never calls one
+ * from more than one thread.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+@FunctionalInterface
+public interface Strategy {
+
+    /**
+     * Choose a move for the player whose turn it is.
+     *
+     * @param board  The Board to choose a move on. It must be left as it was
+     *               found.
+     * @param random The random number generator of the calling thread
+     * @return The chosen cell (x * width + y), or -1 if there is no move
+     */
+    int chooseMove(Board board, SplittableRandom random);
+}
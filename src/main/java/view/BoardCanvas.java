@@ -0,0 +1,316 @@
+package view;
+
+import model.Board;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+
+import javax.swing.JComponent;
+import javax.swing.JScrollPane;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+
+import controller.GameController;
+
+/**
+ * This class represents a Board drawn on a single component, for grids too
+ * large to build out of one JButton per cell.
+ *
+ * Every cell is a square of cellSize pixels, so the cell under the mouse is
+ * found by dividing its coordinates, and only the cells inside the clip
+ * rectangle are painted. The X and O glyphs are rendered once per cell size
+ * into images that are copied into each occupied cell. The canvas is meant to
+ * sit in a JScrollPane: the mouse wheel scrolls, and zooms around the pointer
+ * while the control key is held.
+ *
+ * Clicks on empty cells are passed to GameController.registerClick(), exactly
+ * as the buttons of GameView do.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class BoardCanvas extends JComponent implements Scrollable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The smallest and largest side length of a cell, in pixels.
+     */
+    public static final int MIN_CELL_SIZE = 4;
+    public static final int MAX_CELL_SIZE = 128;
+
+    private static final Color GRID_COLOR = Color.LIGHT_GRAY;
+    private static final Color PIECE_COLOR = Color.DARK_GRAY;
+
+    private Board board;
+    private GameController gameController;
+    private int cellSize;
+    // The glyphs rendered at the current cell size, rebuilt when zooming.
+    private BufferedImage xGlyph, oGlyph;
+
+    /**
+     * Construct a new BoardCanvas.
+     *
+     * @param board          The Board to draw
+     * @param gameController The controller clicks are passed to
+     * @param cellSize       The initial side length of a cell, in pixels
+     */
+    public BoardCanvas(Board board, GameController gameController, int cellSize) {
+        this.board = board;
+        this.gameController = gameController;
+        setCellSize(cellSize);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (SwingUtilities.isLeftMouseButton(e)) {
+                    click(e.getX(), e.getY());
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                if ((e.getModifiersEx() & InputEvent.CTRL_DOWN_MASK) != 0) {
+                    zoom(e.getWheelRotation() < 0 ? cellSize * 5 / 4 + 1 : cellSize * 4 / 5, e.getPoint());
+                } else {
+                    // Listening for the wheel stops it reaching the scroll pane
+                    JScrollPane pane = (JScrollPane) SwingUtilities.getAncestorOfClass(JScrollPane.class,
+                            BoardCanvas.this);
+                    if (pane != null) {
+                        pane.dispatchEvent(SwingUtilities.convertMouseEvent(BoardCanvas.this, e, pane));
+                    }
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseWheelListener(mouse);
+    }
+
+    /**
+     * Draw a different Board, such as one that was just loaded.
+     *
+     * @param board The Board to draw
+     */
+    public void setBoard(Board board) {
+        this.board = board;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Set the controller clicks are passed to.
+     *
+     * @param gameController The controller
+     */
+    public void setGameController(GameController gameController) {
+        this.gameController = gameController;
+    }
+
+    /**
+     * Get the side length of a cell.
+     *
+     * @return The side length of a cell, in pixels
+     */
+    public int getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Set the side length of a cell and render the glyphs at that size.
+     *
+     * @param size The side length of a cell, clamped to MIN_CELL_SIZE and
+     *             MAX_CELL_SIZE
+     */
+    public void setCellSize(int size) {
+        size = Math.max(MIN_CELL_SIZE, Math.min(MAX_CELL_SIZE, size));
+        if (size == cellSize) {
+            return;
+        }
+        cellSize = size;
+        xGlyph = renderGlyph("X", size);
+        oGlyph = renderGlyph("O", size);
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Change the cell size, keeping the point under the pointer in place.
+     *
+     * @param size   The new side length of a cell
+     * @param anchor The point to keep in place, in this component's coordinates
+     */
+    public void zoom(int size, Point anchor) {
+        int old = cellSize;
+        setCellSize(size);
+        if (cellSize == old) {
+            return;
+        }
+        JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this);
+        if (viewport == null) {
+            return;
+        }
+        Point view = viewport.getViewPosition();
+        Dimension extent = viewport.getExtentSize();
+        Dimension preferred = getPreferredSize();
+        viewport.setViewSize(preferred);
+        int x = (int) ((long) anchor.x * cellSize / old) - (anchor.x - view.x);
+        int y = (int) ((long) anchor.y * cellSize / old) - (anchor.y - view.y);
+        x = Math.max(0, Math.min(x, preferred.width - extent.width));
+        y = Math.max(0, Math.min(y, preferred.height - extent.height));
+        viewport.setViewPosition(new Point(x, y));
+    }
+
+    /**
+     * Find the cell at a point.
+     *
+     * @param px The x coordinate of the point, in pixels
+     * @param py The y coordinate of the point, in pixels
+     * @return The cell (x * width + y), or -1 if the point is off the Board
+     */
+    public int cellAt(int px, int py) {
+        if (px < 0 || py < 0) {
+            return -1;
+        }
+        int row = py / cellSize;
+        int column = px / cellSize;
+        if (row >= board.getHeight() || column >= board.getWidth()) {
+            return -1;
+        }
+        return row * board.getWidth() + column;
+    }
+
+    /**
+     * Pass a click on an empty cell to the controller.
+     */
+    private void click(int px, int py) {
+        int cell = cellAt(px, py);
+        if (cell < 0 || !isEnabled()) {
+            return;
+        }
+        int x = cell / board.getWidth();
+        int y = cell % board.getWidth();
+        if (board.getCharacter(x, y) == ' ') {
+            gameController.registerClick(x, y);
+        }
+    }
+
+    /**
+     * Repaint one cell of the Board.
+     *
+     * @param x The row of the cell
+     * @param y The column of the cell
+     */
+    public void repaintCell(int x, int y) {
+        repaint(y * cellSize, x * cellSize, cellSize, cellSize);
+    }
+
+    /**
+     * Render a glyph centred in a transparent square.
+     */
+    private static BufferedImage renderGlyph(String text, int size) {
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setFont(new Font("Times New Roman", Font.PLAIN, Math.max(1, size * 4 / 5)));
+            g.setColor(PIECE_COLOR);
+            FontMetrics metrics = g.getFontMetrics();
+            g.drawString(text, (size - metrics.stringWidth(text)) / 2,
+                    (size - metrics.getHeight()) / 2 + metrics.getAscent());
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(board.getWidth() * cellSize, board.getHeight() * cellSize);
+    }
+
+    /**
+     * Paint the cells inside the clip rectangle.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int firstColumn = Math.max(0, clip.x / cellSize);
+        int lastColumn = Math.min(width - 1, (clip.x + clip.width - 1) / cellSize);
+        int firstRow = Math.max(0, clip.y / cellSize);
+        int lastRow = Math.min(height - 1, (clip.y + clip.height - 1) / cellSize);
+        if (firstColumn > lastColumn || firstRow > lastRow) {
+            return;
+        }
+
+        g.setColor(GRID_COLOR);
+        int top = firstRow * cellSize;
+        int bottom = (lastRow + 1) * cellSize;
+        int left = firstColumn * cellSize;
+        int right = (lastColumn + 1) * cellSize;
+        for (int column = firstColumn; column <= lastColumn + 1; column++) {
+            g.drawLine(column * cellSize, top, column * cellSize, bottom);
+        }
+        for (int row = firstRow; row <= lastRow + 1; row++) {
+            g.drawLine(left, row * cellSize, right, row * cellSize);
+        }
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                char character = board.getCharacter(row, column);
+                if (character != ' ') {
+                    g.drawImage(character == 'x' ? xGlyph : oGlyph, column * cellSize, row * cellSize, null);
+                }
+            }
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return cellSize;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int extent = orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+        // Whole cells, leaving one cell of the previous page in view
+        return Math.max(cellSize, (extent / cellSize - 1) * cellSize);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return false;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -1,8 +1,9 @@
 package view;
 
 import model.Board;
+import model.BoardChange;
+import model.BoardCodec;
 import model.BoardListener;
-import model.GameEvent;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
@@ -15,12 +16,10 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
@@ -28,10 +27,13 @@ import javax.swing.JFrame;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
+import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 
+import ai.OpeningBook;
+import ai.Tablebase;
 import controller.GameController;
 
 /**
@@ -39,13 +41,20 @@ import controller.GameController;
  * component of the view in the MVC pattern.
  * 
  * GameView updates whenever the board has undergone a change. This means that
- * it is registered as a BoardListener.
+ * it is registered as a BoardListener, notified on the event dispatch thread.
+ * The computer searches for its moves on a background thread of its own, and
+ * its moves are made on the event dispatch thread, so the window stays
+ * responsive while it thinks.
  * 
  * Constants are used to attempt to dynamically scale text based on the size of
  * a Board. Please note, due to fonts being defined on an OS basis, results past
  * 7x7 are not guaranteed to display correctly (although the game will function
  * correctly).
  * 
+ * Boards with more than CANVAS_THRESHOLD cells per side (or any Board, with
+ * --canvas) are drawn on a single scrollable, zoomable BoardCanvas instead of
+ * one JButton per cell, which would take thousands of components.
+ * 
  * @author John Breton
  * @version December 15th, 2019
  */
@@ -56,25 +65,44 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
      * which is greater), which will be used in calculations to determine
      * appropriate scaling of GameView elements.
      */
-    public static final double SIDE_LENGTH = Toolkit.getDefaultToolkit().getScreenSize().getWidth() > Toolkit
-            .getDefaultToolkit().getScreenSize().getHeight()
-                    ? (0.6 * Toolkit.getDefaultToolkit().getScreenSize().getHeight())
-                    : (0.6 * Toolkit.getDefaultToolkit().getScreenSize().getWidth());
+    public static final double SIDE_LENGTH = sideLength();
 
-    // Display size of the Xs and Os.
-    public static final int X_O_SIZE = (int) ((SIDE_LENGTH * 0.8) / (Board.SIZE));
     // Display size for all other text in the game.
     public static final int TEXT_SIZE = (int) (SIDE_LENGTH / 45);
 
+    // Boards with more cells per side than this are drawn on a BoardCanvas.
+    public static final int CANVAS_THRESHOLD = 20;
+
+    // The smallest cell a BoardCanvas starts with, so large Boards scroll
+    // rather than shrinking to unreadable cells.
+    private static final int MIN_CANVAS_CELL = 16;
+
     private Board board;
+    // Runs the computer's searches, one at a time, off the event dispatch thread.
+    private final ExecutorService searches = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "computer-player");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Display size of the Xs and Os, scaled to the number of cells per side.
+    private int xoSize;
     private final JButton btnReset;
     private final JButton btnSave;
+    private final JButton btnUndo;
+    private final JButton btnRedo;
+    // One button per cell, or null when the Board is drawn on the canvas.
     private JButton[][] buttons;
+    private BoardCanvas canvas;
+    // Whether to use the canvas regardless of the Board size.
+    private final boolean forceCanvas;
     private JPanel turnPanel;
     private final JPanel gridPanel;
     private JTextArea turnDisplay;
     private GameController gameController;
-    private final JFileChooser fc;
+    // Created the first time a game is saved or loaded, as it is slow to build.
+    private JFileChooser fc;
+    // Whether every button was disabled because the game was won.
+    private boolean gameOver;
 
     /**
      * Construct a new GameView.
@@ -82,19 +110,69 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
      * @param board The Board this GameView will be listening to
      */
     public GameView(Board board) {
-        fc = new JFileChooser();
+        this(board, false, false, null);
+    }
+
+    /**
+     * Construct a new GameView with the computer seated as one or both players.
+     * 
+     * @param board     The Board this GameView will be listening to
+     * @param computerX True if the computer should play X
+     * @param computerO True if the computer should play O
+     * @param tablebase The Tablebase the computer answers positions from, or
+     *                  null to always search
+     */
+    public GameView(Board board, boolean computerX, boolean computerO, Tablebase tablebase) {
+        this(board, computerX, computerO, tablebase, false);
+    }
+
+    /**
+     * Construct a new GameView with the computer seated as one or both players.
+     * 
+     * @param board       The Board this GameView will be listening to
+     * @param computerX   True if the computer should play X
+     * @param computerO   True if the computer should play O
+     * @param tablebase   The Tablebase the computer answers positions from, or
+     *                    null to always search
+     * @param forceCanvas True to draw the Board on a BoardCanvas whatever its
+     *                    size
+     */
+    public GameView(Board board, boolean computerX, boolean computerO, Tablebase tablebase, boolean forceCanvas) {
+        this(board, computerX, computerO, tablebase, null, forceCanvas);
+    }
+
+    /**
+     * Construct a new GameView with the computer seated as one or both players.
+     * 
+     * @param board       The Board this GameView will be listening to
+     * @param computerX   True if the computer should play X
+     * @param computerO   True if the computer should play O
+     * @param tablebase   The Tablebase the computer answers positions from, or
+     *                    null to always search
+     * @param book        The OpeningBook the computer answers positions from,
+     *                    or null to always search
+     * @param forceCanvas True to draw the Board on a BoardCanvas whatever its
+     *                    size
+     */
+    public GameView(Board board, boolean computerX, boolean computerO, Tablebase tablebase, OpeningBook book,
+            boolean forceCanvas) {
+        this.forceCanvas = forceCanvas;
         this.board = board;
+        // Repaint on the event dispatch thread, once per burst of moves
+        this.board.setListenerExecutor(SwingUtilities::invokeLater);
         this.board.addListener(this);
         this.gameController = new GameController(board);
-        gridPanel = new JPanel(new GridLayout(Board.SIZE, Board.SIZE));
+        gridPanel = new JPanel();
 
         JMenuBar menuBar;
         JButton btnLoad;
 
         this.setJMenuBar(menuBar = new JMenuBar());
-        menuBar.setLayout(new GridLayout(1, 3));
+        menuBar.setLayout(new GridLayout(1, 5));
 
         menuBar.add(btnReset = createMenuBarButton("Reset"));
+        menuBar.add(btnUndo = createMenuBarButton("Undo"));
+        menuBar.add(btnRedo = createMenuBarButton("Redo"));
         menuBar.add(btnSave = createMenuBarButton("Save"));
         menuBar.add(btnLoad = createMenuBarButton("Load"));
 
@@ -103,8 +181,36 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
         initializeFrame(this);
 
         btnReset.addActionListener(this);
+        btnUndo.addActionListener(this);
+        btnRedo.addActionListener(this);
         btnSave.addActionListener(this);
         btnLoad.addActionListener(this);
+        gameController.setSearchExecutors(searches, SwingUtilities::invokeLater);
+        gameController.setTablebase(tablebase);
+        gameController.setOpeningBook(book);
+        gameController.seatComputer(computerX, computerO);
+    }
+
+    /**
+     * Measure the screen once for SIDE_LENGTH.
+     *
+     * @return 60% of the smaller of the screen's width and height
+     */
+    private static double sideLength() {
+        Dimension screen = Toolkit.getDefaultToolkit().getScreenSize();
+        return 0.6 * Math.min(screen.getWidth(), screen.getHeight());
+    }
+
+    /**
+     * Get the file chooser, creating it the first time it is needed.
+     *
+     * @return The file chooser used to save and load games
+     */
+    private JFileChooser getFileChooser() {
+        if (fc == null) {
+            fc = new JFileChooser();
+        }
+        return fc;
     }
 
     /**
@@ -164,16 +270,34 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
     }
 
     /**
-     * Initializes the JButtons apart of the 2D-array.
+     * Initializes the JButtons apart of the 2D-array, sized to the current Board,
+     * or the BoardCanvas if the Board is too large for buttons.
      */
     private void initializeButtons() {
-        buttons = new JButton[Board.SIZE][Board.SIZE];
+        int height = board.getHeight();
+        int width = board.getWidth();
+        xoSize = (int) ((SIDE_LENGTH * 0.8) / Math.max(height, width));
+        gridPanel.removeAll();
+        if (forceCanvas || Math.max(height, width) > CANVAS_THRESHOLD) {
+            buttons = null;
+            if (canvas == null) {
+                canvas = new BoardCanvas(board, gameController, Math.max(MIN_CANVAS_CELL, xoSize));
+            } else {
+                canvas.setBoard(board);
+                canvas.setCellSize(Math.max(MIN_CANVAS_CELL, xoSize));
+            }
+            gridPanel.setLayout(new BorderLayout());
+            gridPanel.add(new JScrollPane(canvas), BorderLayout.CENTER);
+            return;
+        }
+        buttons = new JButton[height][width];
+        gridPanel.setLayout(new GridLayout(height, width));
 
-        for (int x = 0; x < Board.SIZE; x++) {
-            for (int y = 0; y < Board.SIZE; y++) {
+        for (int x = 0; x < height; x++) {
+            for (int y = 0; y < width; y++) {
                 buttons[x][y] = new JButton();
                 buttons[x][y].setBackground(Color.WHITE);
-                buttons[x][y].setFont(new Font("Times New Roman", Font.PLAIN, X_O_SIZE));
+                buttons[x][y].setFont(new Font("Times New Roman", Font.PLAIN, xoSize));
                 buttons[x][y].setFocusPainted(false);
                 buttons[x][y].setName(x + "," + y);
                 gridPanel.add(buttons[x][y]);
@@ -190,22 +314,47 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
     }
 
     /**
-     * Update the graphical representation of the Board.
+     * Update the graphical representation of the whole Board. Only needed when
+     * every cell may have changed; single moves go through updateCell().
      */
     private void updateView() {
-        for (int x = 0; x < Board.SIZE; x++) {
-            for (int y = 0; y < Board.SIZE; y++) {
-                if (board.getCharacter(x, y) == 'x') {
-                    buttons[x][y].setText("X");
-                    buttons[x][y].setEnabled(false);
-                } else if (board.getCharacter(x, y) == 'o') {
-                    buttons[x][y].setText("O");
-                    buttons[x][y].setEnabled(false);
-                } else {
-                    buttons[x][y].setText("");
-                }
+        if (buttons == null) {
+            canvas.setEnabled(true);
+            canvas.repaint();
+            gameOver = false;
+            return;
+        }
+        for (int x = 0; x < board.getHeight(); x++) {
+            for (int y = 0; y < board.getWidth(); y++) {
+                updateCell(x, y);
             }
         }
+        gameOver = false;
+    }
+
+    /**
+     * Update the graphical representation of one cell of the Board.
+     *
+     * @param x The row of the cell
+     * @param y The column of the cell
+     */
+    private void updateCell(int x, int y) {
+        if (buttons == null) {
+            canvas.repaintCell(x, y);
+            return;
+        }
+        char character = board.getCharacter(x, y);
+        JButton button = buttons[x][y];
+        if (character == 'x') {
+            button.setText("X");
+            button.setEnabled(false);
+        } else if (character == 'o') {
+            button.setText("O");
+            button.setEnabled(false);
+        } else {
+            button.setText("");
+            button.setEnabled(true);
+        }
     }
 
     /**
@@ -214,8 +363,13 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
      * @param state True to enable all of the buttons, false to disable them.
      */
     private void enableButtons(boolean state) {
-        for (int x = 0; x < Board.SIZE; x++) {
-            for (int y = 0; y < Board.SIZE; y++) {
+        if (buttons == null) {
+            // The canvas ignores clicks on occupied cells by itself
+            canvas.setEnabled(state);
+            return;
+        }
+        for (int x = 0; x < board.getHeight(); x++) {
+            for (int y = 0; y < board.getWidth(); y++) {
                 buttons[x][y].setEnabled(state);
             }
         }
@@ -234,10 +388,10 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
      * Resets the game.
      */
     private void resetGame() {
-        board.resetBoard();
         btnSave.setEnabled(true);
-        enableButtons(true);
         updateTurnText(true);
+        // The computer may reply straight away if it plays X
+        gameController.resetGame();
         updateView();
     }
 
@@ -246,18 +400,8 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
      */
     private boolean save(String path) {
         try {
-            // Ensure that a file of that name does not already exist.
-            if (new File(path).isFile()) {
-                return false;
-            }
-            
-            FileOutputStream file = new FileOutputStream(path); 
-            ObjectOutputStream out = new ObjectOutputStream(file); 
-              
-            out.writeObject(board); 
-              
-            out.close(); 
-            file.close();
+            // Fails if a file of that name already exists.
+            BoardCodec.write(board, Paths.get(path));
             return true;
         } catch (IOException ex) {
             return false;
@@ -265,38 +409,44 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
     }
 
     /**
-     * Load a previously saved game.
+     * Load a previously saved game, in either the current or the legacy format.
      */
     private boolean load(String path) {
-        try
-        {    
-            FileInputStream file = new FileInputStream(path); 
-            ObjectInputStream in = new ObjectInputStream(file); 
-               
-            board = (Board)in.readObject(); 
-              
-            in.close(); 
-            file.close(); 
-            
-            updateView();
-            enableButtons(true);
-            for (int x = 0; x < Board.SIZE; x++) {
-                for (int y = 0; y < Board.SIZE; y++) {
-                    if (board.getCharacter(x, y) != ' ') {
-                        buttons[x][y].setEnabled(false);
-                    }
-                }
+        try {
+            Board loaded = BoardCodec.read(Paths.get(path));
+            board.removeListener(this);
+
+            boolean resized = loaded.getHeight() != board.getHeight() || loaded.getWidth() != board.getWidth();
+            board = loaded;
+            if (canvas != null && !resized) {
+                canvas.setBoard(board);
             }
+            if (resized) {
+                initializeButtons();
+                gridPanel.revalidate();
+                gridPanel.repaint();
+            }
+            // A single pass sets the text and enabled state of every button
+            updateView();
             
             btnSave.setEnabled(true);
+            this.board.setListenerExecutor(SwingUtilities::invokeLater);
             this.board.addListener(this);
+            GameController previous = gameController;
             this.gameController = new GameController(board);
+            if (canvas != null) {
+                canvas.setGameController(gameController);
+            }
             updateTurnText(board.getCurrentTurn());
+            gameController.setSearchExecutors(searches, SwingUtilities::invokeLater);
+            gameController.setTablebase(previous.getTablebase());
+            gameController.setOpeningBook(previous.getOpeningBook());
+            gameController.seatComputer(previous.isComputerX(), previous.isComputerO());
             
             return true;
         } 
           
-        catch(IOException | ClassNotFoundException ex)  {
+        catch (IOException ex) {
             return false;
         }
     }
@@ -307,11 +457,43 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
     @Override
     public void handleBoardChange() {
         updateView();
-        GameEvent gameState = board.boardState();
-        switch (gameState.getStatus()) {
+        updateStatus();
+    }
+
+    /**
+     * Handle a change to the Board by redrawing only the cells that changed.
+     */
+    @Override
+    public void handleBoardChange(BoardChange change) {
+        if (change.getSource() != board) {
+            // Queued by a Board that has since been replaced by load()
+            return;
+        }
+        if (change.isFullUpdate() || gameOver) {
+            // Taking back a winning move must re-enable every empty cell
+            updateView();
+        } else {
+            int width = board.getWidth();
+            for (int i = 0; i < change.getCellCount(); i++) {
+                int cell = change.getCell(i);
+                updateCell(cell / width, cell % width);
+            }
+        }
+        updateStatus();
+    }
+
+    /**
+     * Update the turn display and the enabled buttons to match the state of the
+     * game.
+     */
+    private void updateStatus() {
+        switch (board.getStatus()) {
         case WINNER:
-            turnDisplay.setText((gameState.getTurn() ? 'O' : 'X') + " wins.");
-            enableButtons(false);
+            turnDisplay.setText(Character.toUpperCase(board.getWinner()) + " wins.");
+            if (!gameOver) {
+                enableButtons(false);
+                gameOver = true;
+            }
             btnSave.setEnabled(false);
             break;
         case DRAW:
@@ -319,7 +501,8 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
             btnSave.setEnabled(false);
             break;
         default:
-            updateTurnText(gameState.getTurn());
+            btnSave.setEnabled(true);
+            updateTurnText(board.getCurrentTurn());
         }
     }
 
@@ -331,13 +514,19 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
     public void actionPerformed(ActionEvent e) {
         if (e.getSource() == btnReset)
             resetGame();
+        else if (e.getSource() == btnUndo)
+            gameController.undo();
+        else if (e.getSource() == btnRedo)
+            gameController.redo();
         else if (e.getSource() == btnSave) {
+            JFileChooser fc = getFileChooser();
             int returnVal = fc.showSaveDialog(this);
             while(returnVal == JFileChooser.APPROVE_OPTION && !save(fc.getSelectedFile().getAbsolutePath())) {
                 JOptionPane.showMessageDialog(this, "A file with that name already exists, please try again.", "Error saving file", JOptionPane.INFORMATION_MESSAGE);
                 returnVal = fc.showSaveDialog(this);
             }
         } else {
+            JFileChooser fc = getFileChooser();
             int returnVal = fc.showOpenDialog(this);
             while(returnVal == JFileChooser.APPROVE_OPTION && !load(fc.getSelectedFile().getAbsolutePath())) {
                 JOptionPane.showMessageDialog(this, "The file was moved while loading occurred, please try again.", "Error loading file", JOptionPane.INFORMATION_MESSAGE);
@@ -354,11 +543,12 @@ public class GameView extends JFrame implements ActionListener, BoardListener, R
     }
 
     /**
-     * Starts a game of Tic Tac Toe
+     * Starts a game of Tic Tac Toe. Kept for existing launch configurations;
+     * see Launcher for the arguments.
      *
      * @param args The command-line arguments
      */
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(new GameView(new Board()));
+        Launcher.main(args);
     }
 }
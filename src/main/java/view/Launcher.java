@@ -0,0 +1,171 @@
+package view;
+
+import java.awt.AWTEvent;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+
+import javax.swing.SwingUtilities;
+
+import ai.OpeningBook;
+import ai.Tablebase;
+import model.Board;
+
+/**
+ * This class starts a game of Tic Tac Toe, showing the Board as early as
+ * possible.
+ *
+ * Only the classes needed for the first frame are loaded before it is shown:
+ * GameView measures the screen once, and creates its file chooser the first
+ * time a game is saved or loaded. The class loading that remains is what an
+ * AppCDS archive speeds up (see the appcds profile of the build).
+ *
+ * With --startup-report, the time from the start of main (and of the JVM) to
+ * the first paint of the frame is printed. With --exit-after-first-frame, the
+ * application exits as soon as the frame has been painted, which is how the
+ * build trains the AppCDS archive.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class Launcher {
+
+    private static final String USAGE = "Usage: Launcher [width height winLength] [--computer=x|o|both] "
+            + "[--tablebase=file] [--book=file] [--canvas] [--startup-report] [--exit-after-first-frame]";
+
+    /**
+     * Starts a game of Tic Tac Toe
+     *
+     * @param args The command-line arguments. Optionally the width, height and
+     *             win length of the Board (e.g. "15 15 5" for gomoku), and
+     *             --computer=x, --computer=o or --computer=both to play against
+     *             the computer, --tablebase=file to let it answer from a
+     *             tablebase written by the TablebaseGenerator, --book=file to
+     *             let it answer the opening from a book written by the
+     *             OpeningBookBuilder, --canvas to draw
+     *             even a small Board on a BoardCanvas, --startup-report to print
+     *             the time to the first frame and --exit-after-first-frame to
+     *             exit once it has been painted. Any other argument prints the
+     *             usage and exits with status 1.
+     */
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        String computer = "";
+        Tablebase tablebase = null;
+        OpeningBook book = null;
+        int[] dimensions = new int[3];
+        int count = 0;
+        boolean canvas = false;
+        boolean report = false;
+        boolean exit = false;
+        for (String arg : args) {
+            if (arg.equals("--canvas")) {
+                canvas = true;
+            } else if (arg.equals("--startup-report")) {
+                report = true;
+            } else if (arg.equals("--exit-after-first-frame")) {
+                exit = true;
+            } else if (arg.startsWith("--computer=")) {
+                computer = arg.substring("--computer=".length()).toLowerCase();
+                if (!computer.equals("x") && !computer.equals("o") && !computer.equals("both")) {
+                    usage("The computer can play x, o or both, not " + computer);
+                }
+            } else if (arg.startsWith("--tablebase=")) {
+                try {
+                    tablebase = Tablebase.open(Paths.get(arg.substring("--tablebase=".length())));
+                } catch (IOException ex) {
+                    System.err.println("Could not open the tablebase, the computer will search instead: " + ex);
+                }
+            } else if (arg.startsWith("--book=")) {
+                try {
+                    book = OpeningBook.open(Paths.get(arg.substring("--book=".length())));
+                } catch (IOException ex) {
+                    System.err.println("Could not open the opening book, the computer will search instead: " + ex);
+                }
+            } else if (count < dimensions.length && !arg.startsWith("-")) {
+                try {
+                    dimensions[count++] = Integer.parseInt(arg);
+                } catch (NumberFormatException ex) {
+                    usage("Not a number: " + arg);
+                }
+            } else {
+                usage("Unexpected argument: " + arg);
+            }
+        }
+        if (count != 0 && count != dimensions.length) {
+            usage("Give all of the width, height and win length, or none of them");
+        }
+        Board board = new Board();
+        if (count == dimensions.length) {
+            try {
+                board = new Board(dimensions[0], dimensions[1], dimensions[2]);
+            } catch (IllegalArgumentException ex) {
+                usage(ex.getMessage());
+            }
+        }
+        if (report || exit) {
+            watchFirstFrame(start, report, exit);
+        }
+        boolean both = computer.equals("both");
+        SwingUtilities.invokeLater(new GameView(board, both || computer.equals("x"), both || computer.equals("o"),
+                tablebase, book, canvas));
+    }
+
+    /**
+     * Print what was wrong with the arguments and how to use them, and exit.
+     *
+     * @param problem What was wrong
+     */
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(1);
+    }
+
+    /**
+     * Report and/or exit once the first window has been painted.
+     *
+     * @param start  The System.nanoTime() at which main started
+     * @param report True to print the time to the first frame
+     * @param exit   True to exit after the first frame
+     */
+    private static void watchFirstFrame(long start, boolean report, boolean exit) {
+        Toolkit toolkit = Toolkit.getDefaultToolkit();
+        AWTEventListener listener = new AWTEventListener() {
+            private boolean seen;
+
+            @Override
+            public void eventDispatched(AWTEvent event) {
+                if (seen || !(event.getSource() instanceof Window)) {
+                    return;
+                }
+                seen = true;
+                toolkit.removeAWTEventListener(this);
+                // The window paints its contents after this event, so finish
+                // behind that work in the queue
+                SwingUtilities.invokeLater(() -> {
+                    if (report) {
+                        long now = System.nanoTime();
+                        long sinceJvm = System.currentTimeMillis()
+                                - ManagementFactory.getRuntimeMXBean().getStartTime();
+                        System.err.printf("First frame after %.1f ms (%d ms since the JVM started)%n",
+                                (now - start) / 1e6, sinceJvm);
+                    }
+                    if (exit) {
+                        System.exit(0);
+                    }
+                });
+            }
+        };
+        toolkit.addAWTEventListener(listener, AWTEvent.PAINT_EVENT_MASK);
+    }
+
+    /**
+     * Not instantiable: all of the work happens in main().
+     */
+    private Launcher() {
+    }
+}
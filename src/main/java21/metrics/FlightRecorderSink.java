@@ -0,0 +1,148 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * This class commits a JDK Flight Recorder event for everything Metrics
+ * records. It is only compiled by the jdk21 build profile, and is found by
+ * Metrics.enableFlightRecorder() at run time.
+ *
+ * The events are recorded after the fact, so each carries how long the
+ * operation took as a field rather than as the event's own duration. Every
+ * event checks isEnabled() first, so event types switched off in the
+ * recording settings cost no allocation. Move events are disabled by default,
+ * as there can be millions of them a second.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class FlightRecorderSink implements EventSink {
+
+    @Name("tictactoe.Move")
+    @Label("Move")
+    @Category("Tic Tac Toe")
+    @Description("A move made or rejected")
+    @StackTrace(false)
+    @Enabled(false)
+    static final class MoveEvent extends Event {
+        @Label("Cell")
+        int cell;
+        @Label("Accepted")
+        boolean accepted;
+    }
+
+    @Name("tictactoe.StateCheck")
+    @Label("State Check")
+    @Category("Tic Tac Toe")
+    @StackTrace(false)
+    static final class StateCheckEvent extends Event {
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    @Name("tictactoe.Listeners")
+    @Label("Listener Notification")
+    @Category("Tic Tac Toe")
+    @StackTrace(false)
+    static final class ListenersEvent extends Event {
+        @Label("Listeners")
+        int listeners;
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    @Name("tictactoe.Persistence")
+    @Label("Persistence")
+    @Category("Tic Tac Toe")
+    static final class PersistenceEvent extends Event {
+        @Label("Operation")
+        String operation;
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    @Name("tictactoe.Search")
+    @Label("Search")
+    @Category("Tic Tac Toe")
+    static final class SearchEvent extends Event {
+        @Label("Nodes")
+        long nodes;
+        @Label("Move")
+        int move;
+        @Label("Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+
+    // Event objects are only created for enabled event types.
+    private static final MoveEvent MOVE = new MoveEvent();
+    private static final StateCheckEvent STATE_CHECK = new StateCheckEvent();
+    private static final ListenersEvent LISTENERS = new ListenersEvent();
+    private static final PersistenceEvent PERSISTENCE = new PersistenceEvent();
+    private static final SearchEvent SEARCH = new SearchEvent();
+
+    @Override
+    public void move(int cell, boolean accepted) {
+        if (MOVE.isEnabled()) {
+            MoveEvent event = new MoveEvent();
+            event.cell = cell;
+            event.accepted = accepted;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void stateCheck(long nanos) {
+        if (STATE_CHECK.isEnabled()) {
+            StateCheckEvent event = new StateCheckEvent();
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void listeners(int listeners, long nanos) {
+        if (LISTENERS.isEnabled()) {
+            ListenersEvent event = new ListenersEvent();
+            event.listeners = listeners;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void persistence(String operation, long bytes, long nanos) {
+        if (PERSISTENCE.isEnabled()) {
+            PersistenceEvent event = new PersistenceEvent();
+            event.operation = operation;
+            event.bytes = bytes;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void search(long nodes, int move, long nanos) {
+        if (SEARCH.isEnabled()) {
+            SearchEvent event = new SearchEvent();
+            event.nodes = nodes;
+            event.move = move;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package session;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * This class creates executors that run every task on a new virtual thread.
+ * It is only compiled by the jdk21 build profile, and is found by
+ * SessionExecutors at run time.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class VirtualThreadExecutors implements Supplier<ExecutorService> {
+
+    @Override
+    public ExecutorService get() {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("session-", 0).factory());
+    }
+}
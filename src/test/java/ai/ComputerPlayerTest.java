@@ -0,0 +1,141 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Board;
+import model.GameEvent;
+
+/**
+ * Tests for the ComputerPlayer and TranspositionTable classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class ComputerPlayerTest {
+
+    private ComputerPlayer computer;
+    private Board board;
+
+    @Before
+    public void setUp() {
+        computer = new ComputerPlayer(255, 0, 16);
+        board = new Board();
+    }
+
+    @Test
+    public void testTakesWin() {
+        // x has two in the top row, o has two in the middle row, x to move
+        board.makeMove(0, 0);
+        board.makeMove(1, 0);
+        board.makeMove(0, 1);
+        board.makeMove(1, 1);
+        assertEquals(computer.chooseMove(board), 2);
+        assertTrue(computer.getLastScore() > 0);
+    }
+
+    @Test
+    public void testBlocksLoss() {
+        // x threatens the top row, o to move
+        board.makeMove(0, 0);
+        board.makeMove(2, 2);
+        board.makeMove(0, 1);
+        assertEquals(computer.chooseMove(board), 2);
+    }
+
+    @Test
+    public void testSelfPlayIsDraw() {
+        int move;
+        while ((move = computer.chooseMove(board)) >= 0) {
+            board.makeMove(move / 3, move % 3);
+        }
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.DRAW);
+        // Perfect play from the start is a draw
+        computer.chooseMove(new Board());
+        assertEquals(computer.getLastScore(), 0);
+    }
+
+    @Test
+    public void testChooseMoveDoesNotModifyBoard() {
+        board.makeMove(1, 1);
+        long hash = board.getHash();
+        computer.chooseMove(board);
+        assertEquals(board.getHash(), hash);
+        assertEquals(board.getMoveCount(), 1);
+    }
+
+    @Test
+    public void testCandidatesCutNodesOnLargeBoards() {
+        int[] cells = { 112, 113, 97, 127, 98, 128 };
+        long[] nodes = new long[2];
+        for (int distance = 0; distance <= 2; distance += 2) {
+            Board large = new Board(15, 15, 5);
+            for (int cell : cells) {
+                large.makeMove(cell / 15, cell % 15);
+            }
+            ComputerPlayer player = new ComputerPlayer(4, 0, 16);
+            player.setCandidateDistance(distance);
+            player.chooseMove(large);
+            nodes[distance / 2] = player.getNodes();
+        }
+        assertTrue(nodes[1] * 10 < nodes[0]);
+    }
+
+    @Test
+    public void testFindsForcedWinOnLargeBoard() {
+        // x has an open three on row 7 and o's pieces are scattered, x to move
+        Board large = new Board(15, 15, 5);
+        for (int cell : new int[] { 7 * 15 + 5, 0, 7 * 15 + 6, 14, 7 * 15 + 7, 210 }) {
+            large.makeMove(cell / 15, cell % 15);
+        }
+        ComputerPlayer player = new ComputerPlayer(5, 0, 16);
+        int move = player.chooseMove(large);
+        assertTrue(player.getLastScore() > ComputerPlayer.WIN - ComputerPlayer.MAX_PLY);
+        assertTrue(move == 7 * 15 + 4 || move == 7 * 15 + 8);
+        // And o blocks a four on a large Board
+        large.makeMove(move / 15, move % 15);
+        int block = player.chooseMove(large);
+        assertTrue(block == 7 * 15 + 3 || block == 7 * 15 + 4 || block == 7 * 15 + 8 || block == 7 * 15 + 9);
+    }
+
+    @Test
+    public void testTranspositionTable() {
+        TranspositionTable table = new TranspositionTable(4);
+        assertEquals(table.probe(42L), 0L);
+        table.store(42L, -17, 5, 3, TranspositionTable.LOWER);
+        long entry = table.probe(42L);
+        assertEquals(TranspositionTable.score(entry), -17);
+        assertEquals(TranspositionTable.move(entry), 5);
+        assertEquals(TranspositionTable.depth(entry), 3);
+        assertEquals(TranspositionTable.bound(entry), TranspositionTable.LOWER);
+        // A shallower result for another position in the same slot does not replace it
+        table.store(42L + 16, 1, -1, 1, TranspositionTable.EXACT);
+        assertNotEquals(table.probe(42L), 0L);
+        // Unless the held entry is from an earlier search
+        table.newSearch();
+        table.store(42L + 16, 1, -1, 1, TranspositionTable.EXACT);
+        assertEquals(table.probe(42L), 0L);
+        assertEquals(TranspositionTable.move(table.probe(42L + 16)), -1);
+    }
+
+    @Test
+    public void testTranspositionTableHoldsEveryCell() {
+        TranspositionTable table = new TranspositionTable(4);
+        // The last cells of the largest Board, with the deepest and newest entries
+        for (int i = 0; i < 40; i++) {
+            table.newSearch();
+        }
+        for (int move : new int[] { 65534, Board.MAX_CELLS - 1 }) {
+            table.store(7L, -ComputerPlayer.WIN, move, 255, TranspositionTable.UPPER);
+            long entry = table.probe(7L);
+            assertEquals(TranspositionTable.move(entry), move);
+            assertEquals(TranspositionTable.score(entry), -ComputerPlayer.WIN);
+            assertEquals(TranspositionTable.depth(entry), 255);
+            assertEquals(TranspositionTable.bound(entry), TranspositionTable.UPPER);
+        }
+    }
+}
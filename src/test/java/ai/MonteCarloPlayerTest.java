@@ -0,0 +1,78 @@
+package ai;
+
+import static model.TestBoards.play;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import model.Board;
+
+/**
+ * Tests for the MonteCarloPlayer class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MonteCarloPlayerTest {
+
+    @Test
+    public void testOpensInTheCentre() {
+        MonteCarloResult result = new MonteCarloPlayer(1, 0, 100).search(new Board(15, 15, 5));
+        assertEquals(result.getBestMove(), 7 * 15 + 7);
+    }
+
+    @Test
+    public void testTakesImmediateWin() {
+        // x has four in a row on row 7, o has four in a row on row 8; x to move
+        Board board = play(new Board(15, 15, 5), 110, 125, 111, 126, 112, 127, 113, 128);
+        MonteCarloResult result = new MonteCarloPlayer(2, 0, 1000).search(board);
+        assertTrue(result.getBestMove() == 109 || result.getBestMove() == 114);
+        assertEquals(result.getWinRate(), 1.0, 0);
+    }
+
+    @Test
+    public void testBlocksImmediateLoss() {
+        // o has four in a column and x has nothing comparable; x to move
+        Board board = play(new Board(15, 15, 5), 0, 22, 14, 37, 28, 52, 210, 67);
+        int move = new MonteCarloPlayer(2, 0, 1000).chooseMove(board);
+        assertTrue(move == 7 || move == 82);
+    }
+
+    @Test
+    public void testPlayoutBudget() {
+        Board board = play(new Board(9, 9, 5), 40, 41);
+        MonteCarloResult result = new MonteCarloPlayer(3, 0, 5000).search(board);
+        assertEquals(result.getPlayouts(), 5000);
+        assertEquals(result.getThreads(), 3);
+        assertTrue(result.getNodes() > 1);
+        assertTrue(result.getPlayoutsPerSecond() > 0);
+        assertEquals(board.getMoveCount(), 2);
+    }
+
+    @Test
+    public void testSeededSearchIsRepeatable() {
+        Board board = play(new Board(9, 9, 5), 40, 41, 31);
+        MonteCarloPlayer player = new MonteCarloPlayer(1, 0, 3000);
+        player.setSeed(42);
+        int first = player.chooseMove(board);
+        player.setSeed(42);
+        assertEquals(player.chooseMove(board), first);
+    }
+
+    @Test
+    public void testFindsTicTacToeReply() {
+        // After x takes the centre, o must take a corner: every edge loses
+        Board board = play(new Board(), 4);
+        MonteCarloPlayer player = new MonteCarloPlayer(1, 0, 20000);
+        player.setSeed(7);
+        int move = player.chooseMove(board);
+        assertTrue(move == 0 || move == 2 || move == 6 || move == 8);
+    }
+
+    @Test
+    public void testGameOver() {
+        Board board = play(new Board(), 0, 3, 1, 4, 2);
+        assertEquals(new MonteCarloPlayer(1, 0, 10).chooseMove(board), -1);
+    }
+}
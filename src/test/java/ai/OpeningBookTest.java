@@ -0,0 +1,126 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import dataset.DatasetReader;
+import dataset.DatasetWriter;
+import model.Board;
+import simulation.GreedyStrategy;
+import simulation.RandomStrategy;
+import simulation.Simulator;
+
+/**
+ * Tests for the OpeningBook and OpeningBookBuilder classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class OpeningBookTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static OpeningBook book;
+    private static int searched;
+
+    @BeforeClass
+    public static void build() throws IOException {
+        OpeningBookBuilder builder = new OpeningBookBuilder(3, 3, 3);
+        searched = builder.addSearches(new ComputerPlayer(255, 0, 16), 3);
+        Path path = folder.newFile("tictactoe.book").toPath();
+        builder.write(path);
+        book = OpeningBook.open(path);
+    }
+
+    @Test
+    public void testHoldsEveryOpeningPosition() {
+        // The empty Board, 3 distinct first moves and 12 distinct replies
+        assertEquals(searched, 16);
+        assertEquals(book.size(), 16);
+        int index = book.probe(new Board());
+        assertTrue(index >= 0);
+        assertEquals(book.score(index), 0);
+        // Three moves in, the position is not in the book
+        Board board = new Board();
+        board.makeMove(0, 0);
+        board.makeMove(1, 1);
+        board.makeMove(2, 2);
+        assertEquals(book.probe(board), -1);
+        assertEquals(book.probe(new Board(4, 4, 3)), -1);
+    }
+
+    @Test
+    public void testSymmetricPositionsShareAnEntry() {
+        // The only reply to a corner that does not lose is the centre
+        for (int corner : new int[] { 0, 2, 6, 8 }) {
+            Board board = new Board();
+            board.makeMove(corner / 3, corner % 3);
+            int index = book.probe(board);
+            assertTrue(index >= 0);
+            assertEquals(book.bestMove(board, index), 4);
+        }
+        // And an edge reply to the centre loses, so x must win from there
+        Board board = new Board();
+        board.makeMove(1, 1);
+        board.makeMove(0, 1);
+        int index = book.probe(board);
+        assertTrue(book.score(index) > ComputerPlayer.WIN - ComputerPlayer.MAX_PLY);
+    }
+
+    @Test
+    public void testComputerPlayerConsultsBook() {
+        ComputerPlayer computer = new ComputerPlayer(255, 0, 16);
+        computer.setOpeningBook(book);
+        Board board = new Board();
+        board.makeMove(2, 0);
+        assertEquals(computer.chooseMove(board), 4);
+        assertEquals(computer.getNodes(), 0);
+        // Past the book it searches
+        board.makeMove(1, 1);
+        board.makeMove(0, 2);
+        assertEquals(computer.chooseMove(board), 1);
+        assertTrue(computer.getNodes() > 0);
+
+        MonteCarloPlayer monteCarlo = new MonteCarloPlayer(1, 0, 100);
+        monteCarlo.setOpeningBook(book);
+        MonteCarloResult result = monteCarlo.search(new Board());
+        assertEquals(result.getPlayouts(), 0);
+        assertEquals(result.getWinRate(), 0.5, 0);
+    }
+
+    @Test
+    public void testBuildFromGames() throws IOException {
+        Path games = folder.newFile("games.ttd").toPath();
+        Simulator simulator = new Simulator(3, 3, 3, 1);
+        try (DatasetWriter writer = new DatasetWriter(games, 3, 3, 3)) {
+            simulator.setDataset(writer);
+            simulator.run(GreedyStrategy::new, RandomStrategy::new, 20000, 9);
+        }
+        OpeningBookBuilder builder = new OpeningBookBuilder(3, 3, 3);
+        int added;
+        try (DatasetReader reader = new DatasetReader(games)) {
+            added = builder.addGames(reader, 2, 10);
+        }
+        assertTrue(added > 1);
+        Path path = folder.newFile("games.book").toPath();
+        builder.write(path);
+        assertEquals(Files.size(path), OpeningBook.HEADER_SIZE + OpeningBook.ENTRY_SIZE * added);
+        OpeningBook gamesBook = OpeningBook.open(path);
+        Board board = new Board();
+        int index = gamesBook.probe(board);
+        assertTrue(index >= 0);
+        // Greedy x against random o wins most games from the start
+        assertTrue(gamesBook.score(index) > 0 && gamesBook.score(index) <= 1000);
+        assertTrue(gamesBook.bestMove(board, index) >= 0);
+    }
+}
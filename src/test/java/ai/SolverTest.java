@@ -0,0 +1,57 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.Board;
+
+/**
+ * Tests for the Solver class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SolverTest {
+
+    @Test
+    public void testEmptyBoardIsDraw() {
+        SolverResult result = new Solver(4, 16, 3).solve(new Board());
+        assertEquals(result.getValue(), 0);
+        assertEquals(result.getDistance(), -1);
+        assertTrue(result.getBestMove() >= 0);
+        assertTrue(result.getNodes() > 0);
+    }
+
+    @Test
+    public void testFindsForcedWin() {
+        // x holds the centre and a corner, o played an edge: x wins by force
+        Board board = new Board();
+        board.makeMove(1, 1);
+        board.makeMove(0, 1);
+        board.makeMove(0, 0);
+        board.makeMove(2, 2);
+        SolverResult result = new Solver(2, 16, 3).solve(board);
+        assertEquals(result.getValue(), 1);
+        // Taking the threat at (1, 0) or (2, 0) wins in three moves
+        assertEquals(result.getDistance(), 3);
+    }
+
+    @Test
+    public void testParallelMatchesSerial() {
+        Random random = new Random(3110);
+        for (int trial = 0; trial < 20; trial++) {
+            Board board = new Board(4, 4, 3);
+            int moves = random.nextInt(6);
+            for (int i = 0; i < moves; i++) {
+                board.makeMove(random.nextInt(4), random.nextInt(4));
+            }
+            SolverResult serial = new Solver(1, 18, 100).solve(board);
+            SolverResult parallel = new Solver(4, 18, 3).solve(board);
+            assertEquals(serial.getScore(), parallel.getScore());
+        }
+    }
+}
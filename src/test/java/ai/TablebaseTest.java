@@ -0,0 +1,108 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.Board;
+import model.GameEvent;
+
+/**
+ * Tests for the Tablebase and TablebaseGenerator classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class TablebaseTest {
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static Tablebase tablebase;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        Path path = folder.newFile("tictactoe.tb").toPath();
+        new TablebaseGenerator().generate(path);
+        tablebase = Tablebase.open(path);
+    }
+
+    @Test
+    public void testEmptyBoard() {
+        int entry = tablebase.probe(new Board());
+        assertEquals(Tablebase.value(entry), 0);
+        // A drawn game always fills the Board
+        assertEquals(Tablebase.distance(entry), 9);
+        assertTrue(Tablebase.bestMove(entry) >= 0);
+    }
+
+    @Test
+    public void testMatchesSolver() {
+        Random random = new Random(3110);
+        Solver solver = new Solver(1, 16);
+        for (int trial = 0; trial < 200; trial++) {
+            Board board = new Board();
+            int moves = random.nextInt(9);
+            for (int i = 0; i < moves && board.boardState().getStatus() == GameEvent.Status.NO_WINNER; i++) {
+                board.makeMove(random.nextInt(3), random.nextInt(3));
+            }
+            int entry = tablebase.probe(board);
+            assertTrue(entry >= 0);
+            if (board.boardState().getStatus() != GameEvent.Status.NO_WINNER) {
+                assertEquals(Tablebase.bestMove(entry), -1);
+                continue;
+            }
+            SolverResult result = solver.solve(board);
+            assertEquals(Tablebase.value(entry), result.getValue());
+            if (result.getValue() != 0) {
+                assertEquals(Tablebase.distance(entry), result.getDistance());
+            }
+            // Playing the stored move keeps the value
+            int move = Tablebase.bestMove(entry);
+            board.makeMove(move / 3, move % 3);
+            assertEquals(-result.getValue(), board.boardState().getStatus() == GameEvent.Status.WINNER ? -1
+                    : Tablebase.value(tablebase.probe(board)));
+        }
+    }
+
+    @Test
+    public void testUnreachableAndUncovered() {
+        Board board = new Board();
+        // Play on after x has won, which cannot happen in a real game
+        board.makeMove(0, 0);
+        board.makeMove(1, 0);
+        board.makeMove(0, 1);
+        board.makeMove(1, 1);
+        board.makeMove(0, 2);
+        board.makeMove(2, 2);
+        assertEquals(tablebase.probe(board), -1);
+        assertEquals(tablebase.probe(new Board(4, 4, 3)), -1);
+    }
+
+    @Test
+    public void testComputerPlayerUsesTablebase() {
+        ComputerPlayer computer = new ComputerPlayer(255, 0, 10);
+        computer.setTablebase(tablebase);
+        Board board = new Board();
+        board.makeMove(0, 0);
+        int move = computer.chooseMove(board);
+        assertEquals(move, Tablebase.bestMove(tablebase.probe(board)));
+        assertEquals(computer.getNodes(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path path = folder.newFile("other.bin").toPath();
+        Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 });
+        Tablebase.open(path);
+    }
+}
@@ -0,0 +1,94 @@
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ai.ComputerPlayer;
+import model.Board;
+import model.GameEvent;
+
+/**
+ * Tests for the GameController class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class GameControllerTest {
+
+    private Board board;
+    private GameController controller;
+    private ExecutorService searches;
+    // Stands in for the event dispatch thread: moves queue here until run.
+    private BlockingQueue<Runnable> events;
+
+    @Before
+    public void setUp() {
+        board = new Board();
+        controller = new GameController(board);
+        controller.setComputerPlayer(new ComputerPlayer(9, 100, 12));
+        searches = Executors.newSingleThreadExecutor();
+        events = new LinkedBlockingQueue<>();
+    }
+
+    @After
+    public void tearDown() {
+        searches.shutdownNow();
+    }
+
+    @Test
+    public void testComputerMovesBeforeReturningByDefault() {
+        controller.seatComputer(true, true);
+        assertTrue(board.getStatus() != GameEvent.Status.NO_WINNER);
+    }
+
+    @Test
+    public void testComputerMovesInTheBackground() throws InterruptedException {
+        controller.setSearchExecutors(searches, events::add);
+        controller.seatComputer(false, true);
+        controller.registerClick(1, 1);
+        // The click returns before the computer has moved
+        assertEquals(board.getMoveCount(), 1);
+        // Clicks are ignored while the computer is thinking
+        controller.registerClick(0, 0);
+        assertEquals(board.getMoveCount(), 1);
+        events.take().run();
+        assertEquals(board.getMoveCount(), 2);
+        assertTrue(board.getCurrentTurn());
+    }
+
+    @Test
+    public void testStaleSearchIsDiscarded() throws InterruptedException {
+        controller.setSearchExecutors(searches, events::add);
+        controller.seatComputer(false, true);
+        controller.registerClick(1, 1);
+        controller.undo();
+        events.take().run();
+        // The reply to the move taken back is not played
+        assertEquals(board.getMoveCount(), 0);
+        assertTrue(board.getCurrentTurn());
+    }
+
+    @Test
+    public void testComputerPlaysItselfInTheBackground() throws InterruptedException {
+        controller.setSearchExecutors(searches, events::add);
+        controller.seatComputer(true, true);
+        while (board.getStatus() == GameEvent.Status.NO_WINNER) {
+            events.take().run();
+        }
+        assertEquals(board.getStatus(), GameEvent.Status.DRAW);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExecutorsSetTogether() {
+        controller.setSearchExecutors(searches, null);
+    }
+}
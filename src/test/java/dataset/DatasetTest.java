@@ -0,0 +1,175 @@
+package dataset;
+
+import static model.TestBoards.play;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.Board;
+import simulation.RandomStrategy;
+import simulation.SimulationResult;
+import simulation.Simulator;
+
+/**
+ * Tests for the DatasetWriter and DatasetReader classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class DatasetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsRoundTrip() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("games.ttd");
+        // x wins the top row in five moves, then a drawn game of nine
+        Board won = play(new Board(), 0, 3, 1, 4, 2);
+        Board drawn = play(new Board(), 4, 0, 8, 2, 1, 7, 6, 3, 5);
+        // Blocks of two records, so the games span several blocks
+        try (DatasetWriter writer = new DatasetWriter(path, 3, 3, 3, 2, 2)) {
+            writer.writeGame(won);
+            writer.writeGame(drawn);
+            assertEquals(writer.getGames(), 2);
+            assertEquals(writer.getRecords(), 14);
+        }
+        try (DatasetReader reader = new DatasetReader(path)) {
+            assertEquals(reader.getWidth(), 3);
+            assertEquals(reader.getWinLength(), 3);
+            Board replay = new Board();
+            for (int i = 0; i < 14; i++) {
+                if (i == 5) {
+                    replay.resetBoard();
+                }
+                assertTrue(reader.next());
+                for (int x = 0; x < 3; x++) {
+                    for (int y = 0; y < 3; y++) {
+                        assertEquals(reader.getCharacter(x, y), replay.getCharacter(x, y));
+                    }
+                }
+                assertEquals(reader.getCurrentTurn(), replay.getCurrentTurn());
+                assertEquals(reader.getWinner(), i < 5 ? 'x' : ' ');
+                int move = reader.getMove();
+                assertEquals(move, (i < 5 ? won : drawn).getHistoryMove(i < 5 ? i : i - 5));
+                replay.makeMove(move / 3, move % 3);
+            }
+            assertFalse(reader.next());
+            assertFalse(reader.next());
+            assertEquals(reader.getRecordsRead(), 14);
+        }
+    }
+
+    @Test
+    public void testSimulatorExport() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("simulated.ttd");
+        Simulator simulator = new Simulator(5, 5, 4, 3);
+        SimulationResult result;
+        try (DatasetWriter writer = new DatasetWriter(path, 5, 5, 4, 100, 3)) {
+            simulator.setDataset(writer);
+            result = simulator.run(RandomStrategy::new, RandomStrategy::new, 2000, 5);
+        }
+        long records = 0;
+        long games = 0;
+        long xWins = 0;
+        try (DatasetReader reader = new DatasetReader(path)) {
+            while (reader.next()) {
+                assertEquals(reader.getPiece(reader.getMove()), 0);
+                boolean empty = true;
+                for (int cell = 0; cell < 25; cell++) {
+                    empty &= reader.getPiece(cell) == 0;
+                }
+                // Each game starts from the empty Board
+                if (empty) {
+                    games++;
+                    if (reader.getWinner() == 'x') {
+                        xWins++;
+                    }
+                }
+                records++;
+            }
+        }
+        assertEquals(games, 2000);
+        assertEquals(xWins, result.getXWins());
+        assertEquals(records, result.getMoves());
+        // Random games compress well below their fixed width size
+        assertTrue(Files.size(path) < records * DatasetWriter.recordBytes(25));
+    }
+
+    @Test
+    public void testStalledProducerDoesNotBlockOthers() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("stalled.ttd");
+        CountDownLatch stalled = new CountDownLatch(1);
+        CountDownLatch resume = new CountDownLatch(1);
+        // A game whose producer stops part way through encoding its records
+        Board slow = new Board(play(new Board(), 4, 0, 8, 2, 1, 7, 6, 3, 5)) {
+            @Override
+            public int getHistoryMove(int index) {
+                if (index == 2 && stalled.getCount() > 0) {
+                    stalled.countDown();
+                    try {
+                        resume.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.getHistoryMove(index);
+            }
+        };
+        try (DatasetWriter writer = new DatasetWriter(path, 3, 3, 3, 4, 2)) {
+            Thread producer = new Thread(() -> writer.writeGame(slow));
+            producer.start();
+            try {
+                stalled.await();
+                Thread other = new Thread(() -> writer.writeGame(play(new Board(), 0, 3, 1, 4, 2)));
+                other.start();
+                other.join(5000);
+                assertFalse(other.isAlive());
+            } finally {
+                resume.countDown();
+                producer.join();
+            }
+            assertEquals(writer.getGames(), 2);
+        }
+        long records = 0;
+        try (DatasetReader reader = new DatasetReader(path)) {
+            while (reader.next()) {
+                records++;
+            }
+        }
+        assertEquals(records, 14);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnfinishedGame() throws IOException {
+        try (DatasetWriter writer = new DatasetWriter(folder.getRoot().toPath().resolve("open.ttd"), 3, 3, 3)) {
+            writer.writeGame(play(new Board(), 4));
+        }
+    }
+
+    @Test(expected = StreamCorruptedException.class)
+    public void testTruncatedFile() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("truncated.ttd");
+        try (DatasetWriter writer = new DatasetWriter(path, 3, 3, 3)) {
+            writer.writeGame(play(new Board(), 0, 3, 1, 4, 2));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 1);
+        }
+        try (DatasetReader reader = new DatasetReader(path)) {
+            reader.next();
+        }
+    }
+}
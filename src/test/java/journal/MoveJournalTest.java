@@ -0,0 +1,195 @@
+package journal;
+
+import static model.TestBoards.assertSamePosition;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.Board;
+
+/**
+ * Tests for the MoveJournal class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MoveJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecoverAfterCrash() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        // The journal is never closed, as if the JVM had died
+        MoveJournal journal = new MoveJournal(directory, 1024, 0, 0);
+        int first = journal.newSession(3, 3, 3);
+        int second = journal.newSession(15, 15, 5);
+        int closed = journal.newSession(3, 3, 3);
+        Board board = journal.getSession(first);
+        board.makeMove(1, 1);
+        board.makeMove(0, 0);
+        board.makeMove(2, 2);
+        board.unmakeMove();
+        journal.getSession(second).makeMove(7, 7);
+        journal.getSession(closed).makeMove(0, 0);
+        journal.closeSession(closed);
+
+        MoveJournal recovered = new MoveJournal(directory, 1024, 0, 0);
+        assertEquals(recovered.getSessions().size(), 2);
+        assertSamePosition(recovered.getSession(first), board);
+        assertSamePosition(recovered.getSession(second), journal.getSession(second));
+        assertNull(recovered.getSession(closed));
+        // Recovered games are still journaled, and new sessions get fresh ids
+        recovered.getSession(first).makeMove(2, 0);
+        int third = recovered.newSession(3, 3, 3);
+        assertTrue(third > closed);
+        recovered.close();
+        MoveJournal reopened = new MoveJournal(directory, 1024, 0, 0);
+        assertEquals(reopened.getSession(first).getCharacter(2, 0), 'x');
+        assertEquals(reopened.getSessions().size(), 3);
+        reopened.close();
+    }
+
+    @Test
+    public void testRecoverPastTornRecord() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MoveJournal journal = new MoveJournal(directory, 1024, 0, 0);
+        int torn = journal.newSession(3, 3, 3);
+        int intact = journal.newSession(3, 3, 3);
+        journal.getSession(torn).makeMove(1, 1);
+        Board board = journal.getSession(intact);
+        board.makeMove(0, 0);
+        board.makeMove(2, 2);
+        board.makeMove(0, 1);
+        // Tear the third record, as if the machine went down while it was
+        // written, while the records after it reached the disk
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal-00000000.log"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 2 * JournalSegment.RECORD_SIZE + 12);
+        }
+
+        MoveJournal recovered = new MoveJournal(directory, 1024, 0, 0);
+        assertEquals(recovered.getSession(torn).getMoveCount(), 0);
+        assertSamePosition(recovered.getSession(intact), board);
+        recovered.close();
+    }
+
+    @Test
+    public void testStopAtFirstGap() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MoveJournal journal = new MoveJournal(directory, 1024, 0, 0);
+        int gap = journal.newSession(3, 3, 3);
+        int intact = journal.newSession(3, 3, 3);
+        Board board = journal.getSession(gap);
+        board.makeMove(1, 1);
+        journal.getSession(intact).makeMove(0, 0);
+        board.makeMove(0, 0);
+        journal.getSession(intact).makeMove(1, 1);
+        board.makeMove(2, 2);
+        // Lose the gap session's second move while its third reaches the disk
+        try (FileChannel channel = FileChannel.open(directory.resolve("journal-00000000.log"),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 4 * JournalSegment.RECORD_SIZE + 12);
+        }
+
+        MoveJournal recovered = new MoveJournal(directory, 1024, 0, 0);
+        Board stopped = recovered.getSession(gap);
+        assertEquals(stopped.getMoveCount(), 1);
+        assertEquals(stopped.getCharacter(1, 1), 'x');
+        assertEquals(stopped.getCharacter(2, 2), ' ');
+        assertSamePosition(recovered.getSession(intact), journal.getSession(intact));
+        assertEquals(recovered.getDamagedSessions(), Collections.singleton(gap));
+        // The session is journaled again from where it stopped
+        stopped.makeMove(0, 2);
+        recovered.close();
+        MoveJournal reopened = new MoveJournal(directory, 1024, 0, 0);
+        assertSamePosition(reopened.getSession(gap), stopped);
+        assertTrue(reopened.getDamagedSessions().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void testRejectedMoveIsCorruption() throws IOException {
+        Path directory = folder.newFolder().toPath();
+        MoveJournal journal = new MoveJournal(directory, 1024, 0, 0);
+        int id = journal.newSession(3, 3, 3);
+        journal.getSession(id).makeMove(1, 1);
+        // A well-formed record for an occupied cell, followed by a valid one
+        JournalSegment forged = JournalSegment.create(directory.resolve("journal-00000001.log"), 1, 4);
+        forged.append(id, MoveJournal.MOVE, 0, 0, 2, 4);
+        forged.append(id, MoveJournal.MOVE, 0, 0, 3, 0);
+        forged.force();
+        forged.close();
+
+        MoveJournal recovered = new MoveJournal(directory, 1024, 0, 0);
+        assertEquals(recovered.getSession(id).getMoveCount(), 1);
+        assertEquals(recovered.getSession(id).getCharacter(0, 0), ' ');
+        assertTrue(recovered.getDamagedSessions().contains(id));
+        recovered.close();
+    }
+
+    @Test
+    public void testSnapshotsAndConcurrentWriters() throws Exception {
+        Path directory = folder.newFolder().toPath();
+        // Tiny segments force many rotations and automatic snapshots
+        MoveJournal journal = new MoveJournal(directory, 16, 1, 2);
+        int threads = 4;
+        List<Thread> players = new ArrayList<>();
+        Map<Integer, Board> expected = new HashMap<>();
+        for (int t = 0; t < threads; t++) {
+            int[] ids = new int[8];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = journal.newSession(5, 5, 4);
+            }
+            long seed = t;
+            players.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 500; i++) {
+                    Board board = journal.getSession(ids[random.nextInt(ids.length)]);
+                    if (random.nextInt(5) == 0) {
+                        board.unmakeMove();
+                    } else if (board.getMoveCount() == 25) {
+                        board.resetBoard();
+                    } else {
+                        board.makeMove(random.nextInt(5), random.nextInt(5));
+                    }
+                }
+            }));
+        }
+        players.forEach(Thread::start);
+        for (Thread player : players) {
+            player.join();
+        }
+        journal.snapshot();
+        for (Map.Entry<Integer, Board> entry : journal.getSessions().entrySet()) {
+            expected.put(entry.getKey(), new Board(entry.getValue()));
+        }
+        journal.getSession(0).resetBoard();
+        expected.get(0).resetBoard();
+        journal.close();
+
+        MoveJournal recovered = new MoveJournal(directory, 16, 0, 0);
+        assertEquals(recovered.getSessions().size(), expected.size());
+        for (Map.Entry<Integer, Board> entry : expected.entrySet()) {
+            assertSamePosition(recovered.getSession(entry.getKey()), entry.getValue());
+        }
+        recovered.close();
+    }
+}
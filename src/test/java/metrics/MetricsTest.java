@@ -0,0 +1,144 @@
+package metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import model.Board;
+import model.BoardCodec;
+
+/**
+ * Tests for the Metrics, LatencyHistogram and MetricsExporter classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Metrics metrics;
+
+    @Before
+    public void setUp() {
+        metrics = Metrics.enable();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.disable();
+    }
+
+    @Test
+    public void testHistogramBuckets() {
+        for (long value : new long[] { 0, 1, 7, 8, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE }) {
+            int bucket = LatencyHistogram.bucket(value);
+            // Every value lies within its bucket, and within 12.5% of its top
+            assertTrue(value <= LatencyHistogram.bucketLimit(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.bucketLimit(bucket - 1));
+            assertTrue(LatencyHistogram.bucketLimit(bucket) - value <= value / 8);
+        }
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(histogram.getPercentile(50), 0);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(histogram.getCount(), 1000);
+        assertEquals(histogram.getMax(), 1000000);
+        assertEquals(histogram.getSum(), 500500000L);
+        long median = histogram.getPercentile(50);
+        assertTrue(median >= 500000 && median <= 500000 * 9 / 8);
+        assertEquals(histogram.getPercentile(100), 1000000);
+    }
+
+    @Test
+    public void testBoardIsInstrumented() {
+        Board board = new Board();
+        board.addListener(() -> {
+        });
+        board.makeMove(0, 0);
+        board.makeMove(0, 0);
+        board.makeMove(5, 5);
+        board.makeMove(1, 1);
+        board.unmakeMove();
+        board.redoMove();
+        board.boardState();
+        assertEquals(metrics.getMoves(), 2);
+        assertEquals(metrics.getRejectedMoves(), 2);
+        assertEquals(metrics.getUndoneMoves(), 1);
+        assertEquals(metrics.getRedoneMoves(), 1);
+        // One check of the game's state per piece placed
+        assertEquals(metrics.getStateChecks().getCount(), 3);
+        // One notification per accepted, undone or redone move
+        assertEquals(metrics.getListeners().getCount(), 4);
+        // Copies played on by search code are not counted
+        new Board(board).makeMove(2, 2);
+        assertEquals(metrics.getMoves(), 2);
+
+        Metrics.disable();
+        board.makeMove(2, 2);
+        assertEquals(metrics.getMoves(), 2);
+    }
+
+    @Test
+    public void testPersistenceIsInstrumented() throws Exception {
+        Board board = new Board();
+        board.makeMove(1, 1);
+        Path path = folder.getRoot().toPath().resolve("game.ttt");
+        BoardCodec.write(board, path);
+        BoardCodec.read(path);
+        assertEquals(metrics.getPersistence().getCount(), 2);
+        assertTrue(metrics.format().contains("tictactoe_persisted_bytes_total " + 2 * Files.size(path)));
+    }
+
+    @Test
+    public void testExportToFile() throws Exception {
+        new Board().makeMove(0, 0);
+        Path path = folder.getRoot().toPath().resolve("metrics.prom");
+        MetricsExporter exporter = MetricsExporter.toFile(path, 60000);
+        exporter.close();
+        String text = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        assertTrue(text.contains("# TYPE tictactoe_moves_total counter"));
+        assertTrue(text.contains("tictactoe_moves_total 1\n"));
+        assertTrue(text.contains("tictactoe_state_check_seconds_count 1\n"));
+    }
+
+    @Test
+    public void testServeOverHttp() throws Exception {
+        new Board().makeMove(0, 0);
+        try (MetricsExporter exporter = MetricsExporter
+                .serve(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            URL url = new URL("http://127.0.0.1:" + exporter.getPort() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(connection.getResponseCode(), 200);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                byte[] chunk = new byte[4096];
+                for (int n; (n = in.read(chunk)) > 0;) {
+                    body.write(chunk, 0, n);
+                }
+            }
+            assertTrue(new String(body.toByteArray(), StandardCharsets.UTF_8).contains("tictactoe_moves_total 1\n"));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package model;
+
+import static model.TestBoards.assertSamePosition;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the BoardCodec class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class BoardCodecTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Board roundTrip(Board board) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BoardCodec.encodedSize(board));
+        BoardCodec.encode(board, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        Board decoded = BoardCodec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decoded;
+    }
+
+    @Test
+    public void testMoveListRoundTrip() throws IOException {
+        Board board = new Board();
+        board.makeMove(1, 1);
+        board.makeMove(0, 0);
+        board.makeMove(2, 2);
+        Board decoded = roundTrip(board);
+        assertSamePosition(decoded, board);
+        // The moves are replayed, so they can still be taken back
+        assertTrue(decoded.unmakeMove());
+        assertEquals(decoded.getCharacter(2, 2), ' ');
+    }
+
+    @Test
+    public void testCompactSize() {
+        Board board = new Board();
+        int[] moves = { 4, 0, 8, 2, 1, 7, 6, 3, 5 };
+        for (int cell : moves) {
+            board.makeMove(cell / 3, cell % 3);
+        }
+        assertEquals(board.getStatus(), GameEvent.Status.DRAW);
+        assertTrue(BoardCodec.encodedSize(board) <= 17);
+    }
+
+    @Test
+    public void testRandomGamesRoundTrip() throws IOException {
+        Random random = new Random(3110);
+        ByteBuffer stream = ByteBuffer.allocate(1 << 16);
+        List<Board> boards = new ArrayList<>();
+        for (int trial = 0; trial < 50; trial++) {
+            Board board = new Board(15, 15, 5);
+            int moves = random.nextInt(60);
+            for (int i = 0; i < moves; i++) {
+                board.makeMove(random.nextInt(15), random.nextInt(15));
+            }
+            boards.add(board);
+            BoardCodec.encode(board, stream);
+        }
+        // Games written back to back are read back one after another
+        stream.flip();
+        for (Board board : boards) {
+            assertSamePosition(BoardCodec.decode(stream), board);
+        }
+        assertFalse(stream.hasRemaining());
+    }
+
+    @Test
+    public void testLegacyFile() throws Exception {
+        Board board = new Board(4, 4, 3);
+        board.makeMove(0, 0);
+        board.makeMove(1, 1);
+        board.makeMove(0, 1);
+        board.makeMove(3, 3);
+        board.makeMove(0, 2);
+        Path path = folder.getRoot().toPath().resolve("legacy.ttt");
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(path))) {
+            out.writeObject(board);
+        }
+        Board legacy = BoardCodec.read(path);
+        assertSamePosition(legacy, board);
+        // A legacy game has no move history, so it is saved cell by cell
+        assertEquals(legacy.getHistorySize(), 0);
+        Board decoded = roundTrip(legacy);
+        assertSamePosition(decoded, board);
+        assertEquals(decoded.getLastMove(), 2);
+    }
+
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        Board board = new Board(7, 5, 4);
+        board.makeMove(2, 3);
+        board.makeMove(4, 6);
+        Path path = folder.getRoot().toPath().resolve("game.ttt");
+        BoardCodec.write(board, path);
+        assertSamePosition(BoardCodec.read(path), board);
+        try {
+            BoardCodec.write(board, path);
+            fail("An existing file was overwritten");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testRejectsOtherObjects() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new ArrayList<String>());
+        }
+        try {
+            BoardCodec.readLegacy(new ByteArrayInputStream(bytes.toByteArray()));
+            fail("A saved file held something other than a Board");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testRejectsTruncatedGame() {
+        Board board = new Board();
+        board.makeMove(1, 1);
+        ByteBuffer buffer = ByteBuffer.allocate(BoardCodec.encodedSize(board));
+        BoardCodec.encode(board, buffer);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        try {
+            BoardCodec.decode(buffer);
+            fail("A truncated game was decoded");
+        } catch (IOException ex) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testRejectsHugeBoard() {
+        // A header claiming a 30000x30000 Board, in a handful of bytes
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[] { 'T', 'T', BoardCodec.VERSION, 0, (byte) 0xB0, (byte) 0xEA,
+                1, (byte) 0xB0, (byte) 0xEA, 1, 5, 0 });
+        try {
+            BoardCodec.decode(buffer);
+            fail("A Board larger than any Board was decoded");
+        } catch (StreamCorruptedException ex) {
+            // Expected
+        } catch (IOException ex) {
+            fail("The wrong exception was thrown: " + ex);
+        }
+    }
+
+    @Test
+    public void testLegacyStreamStillReadable() throws Exception {
+        // Boards keep their serialized form for older readers
+        Board board = new Board();
+        board.makeMove(0, 0);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(board);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSamePosition((Board) in.readObject(), board);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests for the BoardSnapshot class and the snapshot mode of the Board.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class BoardSnapshotTest {
+
+    @Test
+    public void testSnapshotsAreOffByDefault() {
+        Board board = new Board();
+        assertNull(board.getSnapshot());
+        board.makeMove(1, 1);
+        assertNull(board.getSnapshot());
+    }
+
+    @Test
+    public void testEnableSnapshotsCopiesThePosition() {
+        Board board = new Board(4, 3, 3);
+        board.makeMove(0, 0);
+        board.makeMove(2, 3);
+        BoardSnapshot snapshot = board.enableSnapshots();
+        assertSame(board.getSnapshot(), snapshot);
+        // Enabling again keeps the published snapshot
+        assertSame(board.enableSnapshots(), snapshot);
+        assertEquals(snapshot.getWidth(), 4);
+        assertEquals(snapshot.getHeight(), 3);
+        assertEquals(snapshot.getWinLength(), 3);
+        assertEquals(snapshot.getCharacter(0, 0), 'x');
+        assertEquals(snapshot.getCharacter(2, 3), 'o');
+        assertEquals(snapshot.getCharacter(1, 1), ' ');
+        assertEquals(snapshot.getMoveCount(), 2);
+        assertEquals(snapshot.getLastMove(), 2 * 4 + 3);
+        assertEquals(snapshot.getHash(), board.getHash());
+        assertTrue(snapshot.getCurrentTurn());
+        assertEquals(snapshot.getVersion(), 0);
+    }
+
+    @Test
+    public void testEveryChangePublishesANewSnapshot() {
+        Board board = new Board();
+        BoardSnapshot empty = board.enableSnapshots();
+        board.makeMove(0, 0);
+        BoardSnapshot first = board.getSnapshot();
+        assertEquals(first.getVersion(), 1);
+        assertEquals(first.getCharacter(0, 0), 'x');
+        assertFalse(first.getCurrentTurn());
+        // Published snapshots never change
+        assertEquals(empty.getCharacter(0, 0), ' ');
+        assertEquals(empty.getMoveCount(), 0);
+        assertEquals(empty.getLastMove(), -1);
+
+        // A rejected move publishes nothing
+        assertFalse(board.makeMove(0, 0));
+        assertSame(board.getSnapshot(), first);
+
+        board.unmakeMove();
+        assertEquals(board.getSnapshot().getVersion(), 2);
+        assertEquals(board.getSnapshot().getCharacter(0, 0), ' ');
+        assertEquals(board.getSnapshot().getHash(), empty.getHash());
+        board.redoMove();
+        assertEquals(board.getSnapshot().getVersion(), 3);
+        assertEquals(board.getSnapshot().getCharacter(0, 0), 'x');
+        board.resetBoard();
+        assertEquals(board.getSnapshot().getVersion(), 4);
+        assertEquals(board.getSnapshot().getMoveCount(), 0);
+    }
+
+    @Test
+    public void testSnapshotStatus() {
+        Board board = new Board();
+        board.enableSnapshots();
+        board.makeMove(0, 0);
+        board.makeMove(1, 0);
+        board.makeMove(0, 1);
+        board.makeMove(1, 1);
+        assertEquals(board.getSnapshot().getStatus(), GameEvent.Status.NO_WINNER);
+        assertEquals(board.getSnapshot().getWinner(), ' ');
+        board.makeMove(0, 2);
+        assertEquals(board.getSnapshot().getStatus(), GameEvent.Status.WINNER);
+        assertEquals(board.getSnapshot().getWinner(), 'x');
+    }
+
+    @Test
+    public void testCopiesDoNotPublish() {
+        Board board = new Board();
+        board.enableSnapshots();
+        Board copy = new Board(board);
+        assertNull(copy.getSnapshot());
+        copy.makeMove(1, 1);
+        assertEquals(board.getSnapshot().getVersion(), 0);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testCellOffTheBoard() {
+        new Board().enableSnapshots().getCharacter(3, 0);
+    }
+
+    @Test
+    public void testReadersAlwaysSeeConsistentPositions() throws InterruptedException {
+        Board board = new Board(7, 7, 4);
+        board.enableSnapshots();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicLong reads = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                long lastVersion = -1;
+                do {
+                    BoardSnapshot snapshot = board.getSnapshot();
+                    int xs = 0;
+                    int os = 0;
+                    for (int x = 0; x < 7; x++) {
+                        for (int y = 0; y < 7; y++) {
+                            char piece = snapshot.getCharacter(x, y);
+                            xs += piece == 'x' ? 1 : 0;
+                            os += piece == 'o' ? 1 : 0;
+                        }
+                    }
+                    boolean turn = snapshot.getCurrentTurn();
+                    if (xs + os != snapshot.getMoveCount() || xs - os != (turn ? 0 : 1)
+                            || snapshot.getVersion() < lastVersion) {
+                        failure.compareAndSet(null, "Torn snapshot " + snapshot.getVersion() + ": " + xs + " X, "
+                                + os + " O, " + snapshot.getMoveCount() + " moves, turn " + turn);
+                    }
+                    lastVersion = snapshot.getVersion();
+                    reads.incrementAndGet();
+                } while (!done.get() && failure.get() == null);
+            }));
+        }
+        readers.forEach(Thread::start);
+        Random random = new Random(7);
+        for (int game = 0; game < 2000; game++) {
+            while (board.getStatus() == GameEvent.Status.NO_WINNER) {
+                board.makeMove(random.nextInt(7), random.nextInt(7));
+                if (random.nextInt(8) == 0) {
+                    board.unmakeMove();
+                }
+            }
+            board.resetBoard();
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertTrue(reads.get() > 0);
+    }
+}
@@ -4,8 +4,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -103,4 +112,399 @@ public class BoardTest {
         board.resetBoard();
         assertEquals(board.boardState().getStatus(), GameEvent.Status.NO_WINNER);
     }
+    
+    @Test
+    public void testWinningLines() {
+        // Column win for x
+        board.makeMove(0, 1);
+        board.makeMove(0, 0);
+        board.makeMove(1, 1);
+        board.makeMove(0, 2);
+        board.makeMove(2, 1);
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.WINNER);
+        board.resetBoard();
+        
+        // Anti-diagonal win for o
+        board.makeMove(0, 0);
+        board.makeMove(0, 2);
+        board.makeMove(0, 1);
+        board.makeMove(1, 1);
+        board.makeMove(2, 2);
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.NO_WINNER);
+        board.makeMove(2, 0);
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.WINNER);
+        // The winner is the player who just moved, so it is x's turn now
+        assertTrue(board.boardState().getTurn());
+    }
+    
+    @Test
+    public void testStatusWithoutEvent() {
+        assertEquals(board.getStatus(), GameEvent.Status.NO_WINNER);
+        assertEquals(board.getWinner(), ' ');
+        // Row win for x
+        board.makeMove(0, 0);
+        board.makeMove(1, 0);
+        board.makeMove(0, 1);
+        board.makeMove(1, 1);
+        board.makeMove(0, 2);
+        assertEquals(board.getStatus(), GameEvent.Status.WINNER);
+        assertEquals(board.getStatus(), board.boardState().getStatus());
+        assertEquals(board.getWinner(), 'x');
+        // Taking back the winning move clears the cached status
+        board.unmakeMove();
+        assertEquals(board.getStatus(), GameEvent.Status.NO_WINNER);
+        assertEquals(board.getWinner(), ' ');
+        board.redoMove();
+        assertEquals(board.getWinner(), 'x');
+        board.resetBoard();
+        assertEquals(board.getStatus(), GameEvent.Status.NO_WINNER);
+    }
+    
+    @Test
+    public void testRejectedMoveDoesNotNotify() {
+        int[] notified = new int[1];
+        board.addListener(() -> notified[0]++);
+        board.makeMove(1, 1);
+        assertEquals(notified[0], 1);
+        board.makeMove(1, 1);
+        board.makeMove(5, 5);
+        assertEquals(notified[0], 1);
+        board.unmakeMove();
+        assertEquals(notified[0], 2);
+    }
+    
+    @Test
+    public void testAsynchronousListenersCoalesce() {
+        List<Runnable> queue = new ArrayList<>();
+        int[] notified = new int[2];
+        board.setListenerExecutor(queue::add);
+        board.addListener(() -> notified[0]++);
+        board.addListener(() -> notified[1]++);
+        board.makeMove(0, 0);
+        board.makeMove(1, 1);
+        board.makeMove(2, 2);
+        // Nothing runs on the moving thread, and the burst is queued once per listener
+        assertEquals(notified[0], 0);
+        assertEquals(queue.size(), 2);
+        queue.forEach(Runnable::run);
+        queue.clear();
+        assertEquals(notified[0], 1);
+        assertEquals(notified[1], 1);
+        // A change after the listeners ran schedules them again
+        board.unmakeMove();
+        assertEquals(queue.size(), 2);
+    }
+    
+    @Test
+    public void testListenersReceiveChangedCells() {
+        List<BoardChange> changes = new ArrayList<>();
+        board.addListener(new BoardListener() {
+            @Override
+            public void handleBoardChange() {
+            }
+
+            @Override
+            public void handleBoardChange(BoardChange change) {
+                changes.add(change);
+            }
+        });
+        board.makeMove(1, 2);
+        assertEquals(changes.size(), 1);
+        assertEquals(changes.get(0).isFullUpdate(), false);
+        assertEquals(changes.get(0).getCellCount(), 1);
+        assertEquals(changes.get(0).getCell(0), 5);
+        board.unmakeMove();
+        assertEquals(changes.get(1).getCell(0), 5);
+        
+        // Coalesced changes list every cell touched since the last notification
+        List<Runnable> queue = new ArrayList<>();
+        board.setListenerExecutor(queue::add);
+        board.makeMove(0, 0);
+        board.makeMove(2, 2);
+        assertEquals(queue.size(), 1);
+        queue.get(0).run();
+        queue.clear();
+        BoardChange change = changes.get(2);
+        assertEquals(change.getCellCount(), 2);
+        assertEquals(change.getCell(0), 0);
+        assertEquals(change.getCell(1), 8);
+        
+        // A reset is not notified, but the next change is a full update
+        board.resetBoard();
+        assertEquals(queue.size(), 0);
+        board.makeMove(1, 1);
+        queue.get(0).run();
+        assertEquals(changes.get(3).isFullUpdate(), true);
+        assertEquals(changes.get(3).getCellCount(), 0);
+    }
+    
+    @Test
+    public void testSerialization() throws Exception {
+        board.makeMove(0, 0);
+        board.makeMove(1, 2);
+        board.makeMove(2, 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(board);
+        }
+        Board copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Board) in.readObject();
+        }
+        for (int x = 0; x < Board.SIZE; x++) {
+            for (int y = 0; y < Board.SIZE; y++) {
+                assertEquals(board.getCharacter(x, y), copy.getCharacter(x, y));
+            }
+        }
+        assertFalse(copy.getCurrentTurn());
+        // The copy should keep playing normally
+        copy.makeMove(1, 1);
+        assertEquals(copy.getCharacter(1, 1), 'o');
+    }
+    
+    @Test
+    public void testCustomDimensions() {
+        board = new Board(7, 4, 3);
+        assertEquals(board.getWidth(), 7);
+        assertEquals(board.getHeight(), 4);
+        assertEquals(board.getWinLength(), 3);
+        // y ranges over the width, x over the height
+        board.makeMove(3, 6);
+        assertEquals(board.getCharacter(3, 6), 'x');
+        // Out of range, so it is still o's turn
+        board.makeMove(6, 3);
+        assertFalse(board.getCurrentTurn());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testWinLengthTooLong() {
+        new Board(3, 3, 4);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyCells() {
+        new Board(Board.MAX_CELLS / 64 + 1, 64, 5);
+    }
+    
+    @Test
+    public void testGeometryCacheIsBounded() {
+        for (int width = 16; width <= 256; width += 16) {
+            new Board(width, 256, 1);
+        }
+        assertTrue(BoardGeometry.cachedCells() <= BoardGeometry.CACHED_CELLS);
+        // The tables of a game in use stay shared
+        assertSame(BoardGeometry.of(100, 100, 5), BoardGeometry.of(100, 100, 5));
+        board = new Board(100, 100, 5);
+        board.makeMove(0, 0);
+        board.makeMove(99, 99);
+        // Evicting the tables does not change the keys of later Boards
+        for (int width = 16; width <= 256; width += 16) {
+            new Board(width, 255, 1);
+        }
+        Board turned = new Board(100, 100, 5);
+        turned.makeMove(99, 99);
+        turned.makeMove(0, 0);
+        assertNotEquals(turned.getHash(), board.getHash());
+        assertEquals(turned.getCanonicalHash(), board.getCanonicalHash());
+    }
+    
+    @Test
+    public void testCompletesLine() {
+        Random random = new Random(3);
+        for (int game = 0; game < 50; game++) {
+            board = new Board(7, 6, 4);
+            while (board.getStatus() == GameEvent.Status.NO_WINNER) {
+                for (int x = 0; x < 6; x++) {
+                    for (int y = 0; y < 7; y++) {
+                        if (board.getCharacter(x, y) == ' ') {
+                            for (char piece : new char[] { 'x', 'o' }) {
+                                assertEquals(board.completesLine(x, y, piece), longestLine(board, x, y, piece) >= 4);
+                            }
+                        }
+                    }
+                }
+                board.makeMove(random.nextInt(6), random.nextInt(7));
+            }
+        }
+    }
+
+    /**
+     * Count the longest line a piece on an empty cell would be part of.
+     */
+    private static int longestLine(Board board, int x, int y, char piece) {
+        int longest = 0;
+        int[][] steps = { { 0, 1 }, { 1, 0 }, { 1, 1 }, { 1, -1 } };
+        for (int[] step : steps) {
+            int length = 1;
+            for (int sign = -1; sign <= 1; sign += 2) {
+                int i = x + sign * step[0];
+                int j = y + sign * step[1];
+                while (i >= 0 && i < board.getHeight() && j >= 0 && j < board.getWidth()
+                        && board.getCharacter(i, j) == piece) {
+                    length++;
+                    i += sign * step[0];
+                    j += sign * step[1];
+                }
+            }
+            longest = Math.max(longest, length);
+        }
+        return longest;
+    }
+    
+    @Test
+    public void testHashesDependOnTheGame() {
+        // Boards of the same number of cells, or the same dimensions and a
+        // different win length, get different keys
+        Board[] games = { new Board(3, 4, 3), new Board(4, 3, 3), new Board(2, 6, 2), new Board(6, 2, 2),
+                new Board(4, 3, 2) };
+        for (int i = 0; i < games.length; i++) {
+            games[i].makeMove(0, 0);
+            for (int j = 0; j < i; j++) {
+                assertNotEquals(games[i].getHash(), games[j].getHash());
+            }
+        }
+    }
+    
+    @Test
+    public void testGomokuJoinsRuns() {
+        // 19x19 spans several words of the bitboards
+        board = new Board(19, 19, 5);
+        // x builds two separate pairs on a diagonal, o plays far away
+        int[][] xMoves = { { 10, 10 }, { 11, 11 }, { 13, 13 }, { 14, 14 } };
+        for (int i = 0; i < xMoves.length; i++) {
+            board.makeMove(xMoves[i][0], xMoves[i][1]);
+            board.makeMove(0, i);
+            assertEquals(board.boardState().getStatus(), GameEvent.Status.NO_WINNER);
+        }
+        // Filling the gap joins both pairs into a run of five
+        board.makeMove(12, 12);
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.WINNER);
+    }
+    
+    @Test
+    public void testSerializationKeepsDimensions() throws Exception {
+        board = new Board(6, 5, 4);
+        board.makeMove(4, 0);
+        board.makeMove(0, 0);
+        board.makeMove(3, 1);
+        board.makeMove(0, 1);
+        board.makeMove(2, 2);
+        board.makeMove(0, 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(board);
+        }
+        Board copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Board) in.readObject();
+        }
+        assertEquals(copy.getWidth(), 6);
+        assertEquals(copy.getHeight(), 5);
+        assertEquals(copy.getWinLength(), 4);
+        // The restored runs should still join with new moves
+        copy.makeMove(1, 3);
+        assertEquals(copy.boardState().getStatus(), GameEvent.Status.WINNER);
+    }
+    
+    @Test
+    public void testUndoRedo() {
+        assertFalse(board.unmakeMove());
+        board.makeMove(0, 0);
+        board.makeMove(1, 1);
+        board.makeMove(0, 1);
+        board.makeMove(2, 2);
+        board.makeMove(0, 2);
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.WINNER);
+        assertTrue(board.unmakeMove());
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.NO_WINNER);
+        assertEquals(board.getCharacter(0, 2), ' ');
+        assertTrue(board.getCurrentTurn());
+        assertTrue(board.canRedo());
+        assertTrue(board.redoMove());
+        assertEquals(board.boardState().getStatus(), GameEvent.Status.WINNER);
+        assertFalse(board.redoMove());
+        // A new move replaces the moves that could be redone
+        board.unmakeMove();
+        board.unmakeMove();
+        board.makeMove(2, 0);
+        assertFalse(board.canRedo());
+        assertEquals(board.getMoveCount(), 4);
+        while (board.unmakeMove()) {
+            // Take back every move
+        }
+        assertEquals(board.getHash(), 0L);
+        assertEquals(board.getMoveCount(), 0);
+    }
+    
+    @Test
+    public void testUndoRestoresIncrementalState() {
+        Random random = new Random(3110);
+        for (int game = 0; game < 50; game++) {
+            board = new Board(7, 6, 4);
+            List<Integer> moves = new ArrayList<>();
+            for (int step = 0; step < 120; step++) {
+                if (!moves.isEmpty() && random.nextInt(3) == 0) {
+                    assertTrue(board.unmakeMove());
+                    moves.remove(moves.size() - 1);
+                } else if (moves.size() < 42) {
+                    int cell;
+                    do {
+                        cell = random.nextInt(42);
+                    } while (moves.contains(cell));
+                    assertTrue(board.makeMove(cell / 7, cell % 7));
+                    moves.add(cell);
+                }
+                // The Board must match one played forward from scratch
+                Board replayed = new Board(7, 6, 4);
+                for (int cell : moves) {
+                    replayed.makeMove(cell / 7, cell % 7);
+                }
+                assertEquals(replayed.getHash(), board.getHash());
+                assertEquals(replayed.getCurrentTurn(), board.getCurrentTurn());
+                assertEquals(replayed.getMoveCount(), board.getMoveCount());
+                assertEquals(replayed.boardState().getStatus(), board.boardState().getStatus());
+            }
+        }
+    }
+    
+    @Test
+    public void testCanonicalHash() {
+        // The same opening played in every orientation has one canonical hash
+        board = new Board(5, 5, 4);
+        board.makeMove(0, 1);
+        board.makeMove(2, 2);
+        board.makeMove(4, 3);
+        assertEquals(board.getSymmetryCount(), 8);
+        for (int s = 0; s < board.getSymmetryCount(); s++) {
+            Board image = new Board(5, 5, 4);
+            for (int cell : new int[] { 1, 12, 23 }) {
+                int moved = board.transformCell(s, cell);
+                image.makeMove(moved / 5, moved % 5);
+                assertEquals(board.inverseTransformCell(s, moved), cell);
+            }
+            assertEquals(image.getHash(), board.getSymmetricHash(s));
+            assertEquals(image.getCanonicalHash(), board.getCanonicalHash());
+        }
+        // A different position has a different canonical hash
+        Board other = new Board(5, 5, 4);
+        other.makeMove(0, 0);
+        other.makeMove(2, 2);
+        other.makeMove(4, 3);
+        assertNotEquals(other.getCanonicalHash(), board.getCanonicalHash());
+        // Undo restores the hashes of every image
+        long canonical = board.getCanonicalHash();
+        board.makeMove(3, 3);
+        board.unmakeMove();
+        assertEquals(board.getCanonicalHash(), canonical);
+    }
+    
+    @Test
+    public void testRectangularSymmetries() {
+        board = new Board(4, 3, 3);
+        assertEquals(board.getSymmetryCount(), 4);
+        board.makeMove(0, 0);
+        Board mirrored = new Board(4, 3, 3);
+        mirrored.makeMove(2, 3);
+        assertEquals(mirrored.getCanonicalHash(), board.getCanonicalHash());
+    }
 }
@@ -0,0 +1,108 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the SparseBoard and CellMap classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SparseBoardTest {
+
+    private SparseBoard board;
+
+    @Before
+    public void setUp() {
+        board = new SparseBoard(5);
+    }
+
+    @Test
+    public void testWinAcrossTheOrigin() {
+        // x plays a diagonal through (0, 0) while o plays far away
+        for (int i = -2; i <= 1; i++) {
+            assertTrue(board.makeMove(i, i));
+            assertTrue(board.makeMove(1000000, i));
+            assertEquals(board.getStatus(), GameEvent.Status.NO_WINNER);
+        }
+        assertTrue(board.makeMove(2, 2));
+        assertEquals(board.getStatus(), GameEvent.Status.WINNER);
+        assertEquals(board.getWinner(), 'x');
+        // No move is accepted after a win
+        assertFalse(board.makeMove(5, 5));
+        assertTrue(board.unmakeMove());
+        assertEquals(board.getStatus(), GameEvent.Status.NO_WINNER);
+        assertEquals(board.getCharacter(2, 2), ' ');
+        assertTrue(board.getCurrentTurn());
+    }
+
+    @Test
+    public void testMoves() {
+        assertTrue(board.makeMove(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertFalse(board.makeMove(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertTrue(board.makeMove(-1, 0));
+        assertEquals(board.getCharacter(Integer.MIN_VALUE, Integer.MAX_VALUE), 'x');
+        assertEquals(board.getCharacter(-1, 0), 'o');
+        assertEquals(board.getCharacter(0, -1), ' ');
+        assertEquals(board.getMoveCount(), 2);
+        assertEquals(board.getHistoryX(0), Integer.MIN_VALUE);
+        assertEquals(board.getHistoryY(0), Integer.MAX_VALUE);
+        assertEquals(board.getHistoryX(1), -1);
+        board.resetBoard();
+        assertEquals(board.getMoveCount(), 0);
+        assertEquals(board.getCharacter(-1, 0), ' ');
+        assertTrue(board.getCurrentTurn());
+        assertFalse(board.unmakeMove());
+    }
+
+    @Test
+    public void testLongGameGrowsWithMoves() {
+        // Pieces a knight's move apart never line up
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(board.makeMove(i, 2 * i));
+        }
+        assertEquals(board.getStatus(), GameEvent.Status.NO_WINNER);
+        assertEquals(board.getMoveCount(), 10000);
+        // The map stays between a quarter and half full
+        assertTrue(board.getCapacity() <= 4 * 10000);
+        while (board.unmakeMove()) {
+        }
+        assertEquals(board.getCharacter(5000, 10000), ' ');
+    }
+
+    @Test
+    public void testCellMapMatchesHashMap() {
+        CellMap map = new CellMap();
+        Map<Long, Byte> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100000; i++) {
+            // A small range of coordinates forces collisions and removals
+            long key = CellMap.key(random.nextInt(64) - 32, random.nextInt(64) - 32);
+            if (random.nextInt(3) == 0) {
+                assertEquals(map.remove(key), expected.remove(key) != null);
+            } else {
+                byte piece = (byte) (1 + random.nextInt(2));
+                map.put(key, piece);
+                expected.put(key, piece);
+            }
+            assertEquals(map.size(), expected.size());
+        }
+        for (int x = -32; x < 32; x++) {
+            for (int y = -32; y < 32; y++) {
+                Byte piece = expected.get(CellMap.key(x, y));
+                assertEquals(map.get(CellMap.key(x, y)), piece == null ? 0 : piece.byteValue());
+            }
+        }
+        assertEquals(CellMap.x(CellMap.key(-7, 9)), -7);
+        assertEquals(CellMap.y(CellMap.key(-7, 9)), 9);
+    }
+}
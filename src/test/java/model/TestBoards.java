@@ -0,0 +1,46 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Helpers shared by the tests of every package that plays on Boards.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public final class TestBoards {
+
+    private TestBoards() {
+    }
+
+    /**
+     * Make a series of moves on a Board.
+     *
+     * @param board The Board to play on
+     * @param cells The cells of the moves (x * width + y), in order
+     * @return The Board
+     */
+    public static Board play(Board board, int... cells) {
+        for (int cell : cells) {
+            board.makeMove(cell / board.getWidth(), cell % board.getWidth());
+        }
+        return board;
+    }
+
+    /**
+     * Check that two Boards hold the same game: the same dimensions, pieces,
+     * turn and state.
+     *
+     * @param actual   The Board under test
+     * @param expected The Board it should match
+     */
+    public static void assertSamePosition(Board actual, Board expected) {
+        assertEquals(actual.getWidth(), expected.getWidth());
+        assertEquals(actual.getHeight(), expected.getHeight());
+        assertEquals(actual.getWinLength(), expected.getWinLength());
+        assertEquals(actual.getMoveCount(), expected.getMoveCount());
+        assertEquals(actual.getCurrentTurn(), expected.getCurrentTurn());
+        assertEquals(actual.getStatus(), expected.getStatus());
+        assertEquals(actual.getHash(), expected.getHash());
+    }
+}
@@ -0,0 +1,127 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the ThreatIndex class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class ThreatIndexTest {
+
+    private Board board;
+    private ThreatIndex threats;
+
+    @Before
+    public void setUp() {
+        board = new Board(15, 15, 5);
+        threats = board.enableThreatIndex(2);
+    }
+
+    private void play(int... cells) {
+        for (int cell : cells) {
+            assertTrue(board.makeMove(cell / 15, cell % 15));
+        }
+    }
+
+    @Test
+    public void testCandidates() {
+        assertEquals(threats.getCandidateCount(), 0);
+        play(0);
+        // A corner piece has a 3x3 neighbourhood on the Board, less itself
+        assertEquals(threats.getCandidateCount(), 8);
+        assertTrue(threats.isCandidate(2 * 15 + 2));
+        assertFalse(threats.isCandidate(3 * 15));
+        assertFalse(threats.isCandidate(0));
+        play(7 * 15 + 7);
+        assertEquals(threats.getCandidateCount(), 8 + 24);
+        board.unmakeMove();
+        assertEquals(threats.getCandidateCount(), 8);
+        assertFalse(threats.isCandidate(7 * 15 + 7));
+        board.unmakeMove();
+        assertEquals(threats.getCandidateCount(), 0);
+        board.redoMove();
+        assertEquals(threats.getCandidateCount(), 8);
+    }
+
+    @Test
+    public void testThreats() {
+        // x builds a row from (7, 5) while o plays far away
+        play(7 * 15 + 5, 0, 7 * 15 + 6, 14, 7 * 15 + 7);
+        // Windows starting at (7, 3), (7, 4) and (7, 5) each hold three of x's pieces
+        assertEquals(threats.getThrees(true), 3);
+        assertEquals(threats.getFours(true), 0);
+        assertEquals(threats.getWinningCellCount(true), 0);
+        play(210, 7 * 15 + 8);
+        // An open four wins at either end
+        assertEquals(threats.getFours(true), 2);
+        assertEquals(threats.getWinningCellCount(true), 2);
+        assertTrue(threats.hasDoubleThreat(true));
+        assertFalse(threats.hasDoubleThreat(false));
+        assertTrue(threats.getWinningCell(true, 0) == 7 * 15 + 4 || threats.getWinningCell(true, 0) == 7 * 15 + 9);
+        // Blocking one end leaves a single winning cell
+        play(7 * 15 + 4);
+        assertEquals(threats.getWinningCellCount(true), 1);
+        assertEquals(threats.getWinningCell(true, 0), 7 * 15 + 9);
+        board.unmakeMove();
+        assertEquals(threats.getWinningCellCount(true), 2);
+        board.resetBoard();
+        assertEquals(threats.getThrees(true), 0);
+        assertEquals(threats.getWinningCellCount(true), 0);
+        assertEquals(threats.getCandidateCount(), 0);
+    }
+
+    @Test
+    public void testScoresPreferLongerLines() {
+        play(7 * 15 + 5, 0, 7 * 15 + 6, 14);
+        // Extending the pair scores higher than a cell diagonal to it
+        assertTrue(threats.getScore(7 * 15 + 7, true) > threats.getScore(8 * 15 + 8, true));
+        // And O rates blocking it above an empty corner
+        assertTrue(threats.getScore(7 * 15 + 7, false) > threats.getScore(14 * 15 + 14, false));
+    }
+
+    @Test
+    public void testMatchesRebuiltIndex() {
+        // An index kept up to date move by move agrees with one built from scratch
+        Random random = new Random(5);
+        for (int game = 0; game < 20; game++) {
+            board.resetBoard();
+            while (board.getStatus() == GameEvent.Status.NO_WINNER) {
+                int cell = random.nextInt(225);
+                board.makeMove(cell / 15, cell % 15);
+                if (random.nextInt(4) == 0) {
+                    board.unmakeMove();
+                }
+            }
+            ThreatIndex rebuilt = new Board(board).enableThreatIndex(2);
+            for (boolean player : new boolean[] { true, false }) {
+                assertEquals(threats.getFours(player), rebuilt.getFours(player));
+                assertEquals(threats.getThrees(player), rebuilt.getThrees(player));
+                assertEquals(threats.getWinningCellCount(player), rebuilt.getWinningCellCount(player));
+            }
+            assertEquals(threats.getCandidateCount(), rebuilt.getCandidateCount());
+            for (int cell = 0; cell < 225; cell++) {
+                assertEquals(threats.isCandidate(cell), rebuilt.isCandidate(cell));
+            }
+        }
+    }
+
+    @Test
+    public void testCopiesAreIndependent() {
+        play(112);
+        Board copy = new Board(board);
+        copy.makeMove(0, 0);
+        assertEquals(threats.getCandidateCount(), 24);
+        assertEquals(copy.getThreatIndex().getCandidateCount(), 24 + 8);
+        assertNull(new Board().getThreatIndex());
+    }
+}
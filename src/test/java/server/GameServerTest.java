@@ -0,0 +1,169 @@
+package server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the GameServer and LoadGenerator classes.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class GameServerTest {
+
+    private GameServer server;
+    private Thread thread;
+    private SocketChannel channel;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new GameServer(new InetSocketAddress("localhost", 0));
+        thread = new Thread(server);
+        thread.start();
+        channel = SocketChannel.open(new InetSocketAddress("localhost", server.getPort()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        channel.close();
+        server.close();
+        thread.join();
+    }
+
+    /**
+     * Send a request and read the response to it.
+     */
+    private ByteBuffer request(ByteBuffer request) throws IOException {
+        request.flip();
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+        ByteBuffer response = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        response.limit(1);
+        readFully(response);
+        response.limit(Protocol.responseLength(response.get(0)));
+        readFully(response);
+        response.flip();
+        return response;
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("The server closed the connection");
+            }
+        }
+    }
+
+    private int newGame(int width, int height, int winLength) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putNewGame(request, width, height, winLength);
+        ByteBuffer response = request(request);
+        assertEquals(response.get(), Protocol.GAME);
+        return response.getInt();
+    }
+
+    private ByteBuffer move(int game, int x, int y) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putMove(request, game, x, y);
+        return request(request);
+    }
+
+    @Test
+    public void testPlayGame() throws IOException {
+        int game = newGame(3, 3, 3);
+        int[][] moves = { { 0, 0 }, { 1, 0 }, { 0, 1 }, { 1, 1 } };
+        for (int[] move : moves) {
+            ByteBuffer response = move(game, move[0], move[1]);
+            assertEquals(response.get(), Protocol.STATE);
+            assertEquals(response.getInt(), game);
+            assertEquals(response.get(), 1);
+            assertEquals(response.get(), Protocol.NO_WINNER);
+        }
+        // An occupied cell is rejected
+        ByteBuffer rejected = move(game, 0, 0);
+        rejected.getInt();
+        rejected.get();
+        assertEquals(rejected.get(), 0);
+        ByteBuffer won = move(game, 0, 2);
+        won.position(6);
+        assertEquals(won.get(), Protocol.WINNER);
+    }
+
+    @Test
+    public void testIndependentGames() throws IOException {
+        int first = newGame(3, 3, 3);
+        int second = newGame(15, 15, 5);
+        assertTrue(first != second);
+        move(first, 1, 1);
+        // The same cell is still free in the other game
+        ByteBuffer response = move(second, 1, 1);
+        response.position(5);
+        assertEquals(response.get(), 1);
+        assertEquals(server.getGameCount(), 2);
+
+        ByteBuffer close = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putClose(close, first);
+        assertEquals(request(close).get(), Protocol.CLOSED);
+        ByteBuffer missing = move(first, 0, 0);
+        assertEquals(missing.get(), Protocol.ERROR);
+        assertEquals(missing.get(), Protocol.UNKNOWN_GAME);
+    }
+
+    @Test
+    public void testBadDimensions() throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putNewGame(request, 3, 3, 4);
+        ByteBuffer response = request(request);
+        assertEquals(response.get(), Protocol.ERROR);
+        assertEquals(response.get(), Protocol.BAD_DIMENSIONS);
+    }
+
+    @Test
+    public void testOversizedGame() throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putNewGame(request, 33, 32, 5);
+        ByteBuffer response = request(request);
+        assertEquals(response.get(), Protocol.ERROR);
+        assertEquals(response.get(), Protocol.BAD_DIMENSIONS);
+        newGame(32, 32, 5);
+    }
+
+    @Test
+    public void testConnectionCellBudget() throws IOException {
+        int games = Protocol.MAX_CONNECTION_CELLS / Protocol.MAX_CELLS;
+        for (int i = 0; i < games; i++) {
+            newGame(32, 32, 5);
+        }
+        ByteBuffer request = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putNewGame(request, 3, 3, 3);
+        ByteBuffer response = request(request);
+        assertEquals(response.get(), Protocol.ERROR);
+        assertEquals(response.get(), Protocol.TOO_MANY_GAMES);
+
+        // Closing a game frees its cells
+        ByteBuffer close = ByteBuffer.allocate(Protocol.MAX_FRAME);
+        Protocol.putClose(close, 0);
+        assertEquals(request(close).get(), Protocol.CLOSED);
+        newGame(3, 3, 3);
+    }
+
+    @Test
+    public void testLoadGenerator() throws IOException {
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress("localhost", server.getPort()), 8, 3, 3,
+                3);
+        generator.run(300, 3110);
+        assertTrue(generator.getGames() > 0);
+        assertTrue(generator.getMoves() >= 5 * generator.getGames());
+        assertTrue(generator.getPercentileMicros(50) <= generator.getPercentileMicros(99));
+    }
+}
@@ -0,0 +1,158 @@
+package session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import server.LoadGenerator;
+import server.Protocol;
+
+/**
+ * Tests for the SessionServer class.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SessionServerTest {
+
+    private SessionServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new SessionServer(new InetSocketAddress("localhost", 0), SessionExecutors.newSessionExecutor(),
+                true);
+        Thread acceptor = new Thread(server);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void testComputerReplies() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeByte(Protocol.NEW_GAME);
+            out.writeByte(3);
+            out.writeByte(3);
+            out.writeByte(3);
+            out.flush();
+            assertEquals(in.readByte(), Protocol.GAME);
+            int game = in.readInt();
+
+            out.writeByte(Protocol.MOVE);
+            out.writeInt(game);
+            out.writeByte(1);
+            out.writeByte(1);
+            out.flush();
+            assertEquals(in.readByte(), Protocol.STATE);
+            assertEquals(in.readInt(), game);
+            assertEquals(in.readByte(), 1);
+            assertEquals(in.readByte(), Protocol.NO_WINNER);
+            // The computer has already answered as O, so it is X's turn again
+            assertEquals(in.readByte(), 1);
+        }
+    }
+
+    @Test
+    public void testLargeGames() throws IOException {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            out.writeByte(Protocol.NEW_GAME);
+            out.writeByte(255);
+            out.writeByte(255);
+            out.writeByte(5);
+            out.flush();
+            assertEquals(in.readByte(), Protocol.ERROR);
+            assertEquals(in.readByte(), Protocol.BAD_DIMENSIONS);
+
+            out.writeByte(Protocol.NEW_GAME);
+            out.writeByte(32);
+            out.writeByte(32);
+            out.writeByte(5);
+            out.flush();
+            assertEquals(in.readByte(), Protocol.GAME);
+            int game = in.readInt();
+            // The computer's reply on the largest Board is bounded by its time limit
+            long start = System.nanoTime();
+            out.writeByte(Protocol.MOVE);
+            out.writeInt(game);
+            out.writeByte(16);
+            out.writeByte(16);
+            out.flush();
+            assertEquals(in.readByte(), Protocol.STATE);
+            in.readInt();
+            assertEquals(in.readByte(), 1);
+            in.readByte();
+            assertEquals(in.readByte(), 1);
+            assertTrue(System.nanoTime() - start < 20 * GameSession.SEARCH_MILLIS * 1000000L);
+        }
+    }
+
+    @Test
+    public void testManySessions() throws IOException {
+        SessionServer plain = new SessionServer(new InetSocketAddress("localhost", 0),
+                SessionExecutors.newFixedThreadExecutor(16), false);
+        Thread acceptor = new Thread(plain);
+        acceptor.setDaemon(true);
+        acceptor.start();
+        try {
+            LoadGenerator generator = new LoadGenerator(new InetSocketAddress("localhost", plain.getPort()), 16, 3,
+                    3, 3);
+            generator.run(300, 3110);
+            assertTrue(generator.getGames() > 0);
+        } finally {
+            plain.close();
+        }
+    }
+
+    @Test
+    public void testKeepsAcceptingAfterFailure() throws IOException {
+        AtomicInteger failures = new AtomicInteger(2);
+        ServerSocket failing = new ServerSocket() {
+            @Override
+            public Socket accept() throws IOException {
+                if (failures.getAndDecrement() > 0) {
+                    throw new SocketException("Too many open files");
+                }
+                return super.accept();
+            }
+        };
+        failing.bind(new InetSocketAddress("localhost", 0));
+        try (SessionServer flaky = new SessionServer(failing, SessionExecutors.newSessionExecutor(), false)) {
+            Thread acceptor = new Thread(flaky);
+            acceptor.setDaemon(true);
+            acceptor.start();
+            try (Socket socket = new Socket("localhost", flaky.getPort())) {
+                // A server that stopped accepting would leave the client waiting
+                socket.setSoTimeout(5000);
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                out.writeByte(Protocol.NEW_GAME);
+                out.writeByte(3);
+                out.writeByte(3);
+                out.writeByte(3);
+                out.flush();
+                assertEquals(in.readByte(), Protocol.GAME);
+            }
+            assertTrue(failures.get() < 0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests for the Simulator class and its Strategies.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class SimulatorTest {
+
+    @Test
+    public void testPlaysEveryGame() {
+        SimulationResult result = new Simulator(3, 3, 3, 4).run(RandomStrategy::new, RandomStrategy::new, 1001, 3110);
+        assertEquals(result.getGames(), 1001);
+        assertEquals(result.getThreads(), 4);
+        // Every game takes at least five moves and at most nine
+        assertTrue(result.getMoves() >= 5 * 1001);
+        assertTrue(result.getMoves() <= 9 * 1001);
+        // X moves first, so it wins random games more often than O
+        assertTrue(result.getXWins() > result.getOWins());
+    }
+
+    @Test
+    public void testRepeatableForSeed() {
+        Simulator simulator = new Simulator(4, 4, 3, 2);
+        SimulationResult first = simulator.run(RandomStrategy::new, GreedyStrategy::new, 500, 42);
+        SimulationResult second = simulator.run(RandomStrategy::new, GreedyStrategy::new, 500, 42);
+        assertEquals(first.getXWins(), second.getXWins());
+        assertEquals(first.getOWins(), second.getOWins());
+        assertEquals(first.getMoves(), second.getMoves());
+    }
+
+    @Test
+    public void testSearchNeverLosesToRandom() {
+        SimulationResult result = new Simulator(3, 3, 3, 2).run(() -> new SearchStrategy(9, 14),
+                RandomStrategy::new, 200, 7);
+        assertEquals(result.getOWins(), 0);
+    }
+
+    @Test
+    public void testGreedyBeatsRandom() {
+        SimulationResult result = new Simulator(3, 3, 3, 2).run(GreedyStrategy::new, RandomStrategy::new, 2000, 11);
+        assertTrue(result.getXWins() > 5 * result.getOWins());
+    }
+}
@@ -0,0 +1,94 @@
+package view;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.GameController;
+import model.Board;
+
+/**
+ * Tests for the BoardCanvas class. These only paint into images, so they run
+ * headless.
+ *
+ * @author John Breton
+ * @version December 15th, 2019
+ */
+public class BoardCanvasTest {
+
+    private Board board;
+    private BoardCanvas canvas;
+
+    @Before
+    public void setUp() {
+        System.setProperty("java.awt.headless", "true");
+        board = new Board(200, 200, 5);
+        canvas = new BoardCanvas(board, new GameController(board), 10);
+        canvas.setSize(canvas.getPreferredSize());
+    }
+
+    @Test
+    public void testPreferredSize() {
+        assertEquals(canvas.getPreferredSize().width, 2000);
+        assertEquals(canvas.getPreferredSize().height, 2000);
+        canvas.setCellSize(1000);
+        assertEquals(canvas.getCellSize(), BoardCanvas.MAX_CELL_SIZE);
+        canvas.setCellSize(0);
+        assertEquals(canvas.getCellSize(), BoardCanvas.MIN_CELL_SIZE);
+    }
+
+    @Test
+    public void testCellAt() {
+        assertEquals(canvas.cellAt(0, 0), 0);
+        assertEquals(canvas.cellAt(9, 9), 0);
+        assertEquals(canvas.cellAt(10, 0), 1);
+        // The x coordinate of a point selects the column, the y coordinate the row
+        assertEquals(canvas.cellAt(35, 127), 12 * 200 + 3);
+        assertEquals(canvas.cellAt(1999, 1999), 200 * 200 - 1);
+        assertEquals(canvas.cellAt(2000, 0), -1);
+        assertEquals(canvas.cellAt(-1, 5), -1);
+    }
+
+    @Test
+    public void testClickMakesMove() {
+        click(35, 127);
+        assertEquals(board.getCharacter(12, 3), 'x');
+        // Clicks on occupied cells are ignored
+        click(35, 127);
+        assertEquals(board.getMoveCount(), 1);
+        canvas.setEnabled(false);
+        click(0, 0);
+        assertEquals(board.getMoveCount(), 1);
+    }
+
+    @Test
+    public void testPaintsPieces() {
+        board.makeMove(1, 2);
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, 100, 100);
+        canvas.paint(g);
+        g.dispose();
+        int white = Color.WHITE.getRGB();
+        assertEquals(image.getRGB(5, 5), white);
+        // Some pixel of cell (1, 2) is covered by the X glyph
+        boolean drawn = false;
+        for (int px = 21; px < 29; px++) {
+            for (int py = 11; py < 19; py++) {
+                drawn |= image.getRGB(px, py) != white;
+            }
+        }
+        assertEquals(drawn, true);
+    }
+
+    private void click(int x, int y) {
+        canvas.dispatchEvent(new MouseEvent(canvas, MouseEvent.MOUSE_PRESSED, 0, MouseEvent.BUTTON1_DOWN_MASK, x, y,
+                1, false, MouseEvent.BUTTON1));
+    }
+}